@@ -0,0 +1,103 @@
+package io.github.turtleisaac.nds4j.ui;
+
+import io.github.turtleisaac.nds4j.NintendoDsRom;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures unpacking a ROM into a new project, with and without a <code>ContentStore</code> which already holds the
+ * ROM's files, and reading a project back in with
+ * <code>NintendoDsRom.fromUnpacked</code>, through its <code>ProjectManifest</code> or lazily with <code>LazyProject</code>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class ProjectOpenBenchmark
+{
+    @Param({"256", "4096"})
+    public int fileCount;
+
+    @Param({"16384"})
+    public int fileSize;
+
+    private Path directory;
+    private Path romPath;
+    private ContentStore store;
+    private Path projectPath;
+    private Path newProjectPath;
+    private int newProjectCount;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception
+    {
+        directory = SyntheticRom.createWorkingDirectory();
+        romPath = SyntheticRom.write(directory.resolve("base.nds"), fileCount, fileSize, 1);
+
+        projectPath = Files.createDirectory(directory.resolve("project"));
+        ProjectUnpacker.unpack(romPath, projectPath, () -> false, progress -> {});
+
+        store = new ContentStore(directory.resolve("store"));
+        Path storedProjectPath = Files.createDirectory(directory.resolve("stored-project"));
+        ProjectUnpacker.unpack(romPath, storedProjectPath, store, () -> false, progress -> {});
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown()
+    {
+        SyntheticRom.deleteWorkingDirectory(directory);
+    }
+
+    @Setup(Level.Invocation)
+    public void createEmptyProject() throws IOException
+    {
+        newProjectPath = Files.createDirectory(directory.resolve("new-project-" + newProjectCount++));
+    }
+
+    @TearDown(Level.Invocation)
+    public void deleteEmptyProject()
+    {
+        SyntheticRom.deleteWorkingDirectory(newProjectPath);
+    }
+
+    @Benchmark
+    public Path unpack() throws Exception
+    {
+        ProjectUnpacker.unpack(romPath, newProjectPath, () -> false, progress -> {});
+        return newProjectPath;
+    }
+
+    @Benchmark
+    public Path unpackIntoStore() throws Exception
+    {
+        ProjectUnpacker.unpack(romPath, newProjectPath, store, () -> false, progress -> {});
+        return newProjectPath;
+    }
+
+    @Benchmark
+    public NintendoDsRom fromUnpacked()
+    {
+        return NintendoDsRom.fromUnpacked(FileUtils.getProjectUnpackedRomPath(projectPath.toString()));
+    }
+
+    @Benchmark
+    public NintendoDsRom openWithManifest()
+    {
+        return ProjectManifest.load(projectPath);
+    }
+
+    @Benchmark
+    public int openLazily() throws IOException
+    {
+        try (LazyProject project = LazyProject.open(FileUtils.getProjectUnpackedRomPath(projectPath.toString())))
+        {
+            return project.getPaths().size();
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package io.github.turtleisaac.nds4j.ui;
+
+import io.github.turtleisaac.nds4j.NintendoDsRom;
+import org.eclipse.jgit.api.Git;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures saving a single modified file into a project with <code>writeModifiedFile</code>, and committing it to the
+ * project's Git repository
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class ProjectSaveBenchmark
+{
+    private static final Duration commitTimeout = Duration.ofMinutes(1);
+
+    @Param({"256", "4096"})
+    public int fileCount;
+
+    @Param({"16384"})
+    public int fileSize;
+
+    private Path directory;
+    private Git git;
+    private Tool tool;
+    private String modifiedPath;
+    private int invocation;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception
+    {
+        directory = SyntheticRom.createWorkingDirectory();
+        Path romPath = SyntheticRom.write(directory.resolve("base.nds"), fileCount, fileSize, 1);
+        NintendoDsRom rom = NintendoDsRom.fromFile(romPath.toString());
+
+        Path projectPath = Files.createDirectory(directory.resolve("project"));
+        ProjectUnpacker.unpack(romPath, projectPath, () -> false, progress -> {});
+        git = Git.init().setDirectory(projectPath.toFile()).call();
+        git.add().addFilepattern(".").call();
+        git.commit().setMessage("Initial commit").call();
+
+        tool = Tool.create()
+                .setType(ProgramType.PROJECT)
+                .setName("Save Benchmark")
+                .setVersion("1.0.0")
+                .setGitEnabled(true);
+        tool.setLoadedRom(rom, null);
+        tool.setPath(projectPath.toString());
+        tool.setGit(git);
+
+        modifiedPath = SyntheticRom.getPath(fileCount / 2);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown()
+    {
+        tool.flushCommits(commitTimeout);
+        git.close();
+        SyntheticRom.deleteWorkingDirectory(directory);
+    }
+
+    /**
+     * Changes a byte of the modified file, so that every write and commit has something to do
+     */
+    @Setup(Level.Invocation)
+    public void modifyFile()
+    {
+        tool.getFileForWriting(modifiedPath)[0] = (byte) invocation++;
+        tool.markModified(modifiedPath);
+    }
+
+    @Benchmark
+    public boolean writeModifiedFile()
+    {
+        return tool.writeModifiedFile(modifiedPath);
+    }
+
+    @Benchmark
+    public boolean writeModifiedFileAndCommit()
+    {
+        tool.writeModifiedFile(modifiedPath);
+        tool.commit("Benchmark change " + invocation);
+        return tool.flushCommits(commitTimeout);
+    }
+
+    /**
+     * Measures a save where the file on disk already matches, which is most files in a typical save
+     */
+    @Benchmark
+    public boolean writeUnchangedFile()
+    {
+        return tool.writeModifiedFile(SyntheticRom.getPath(0));
+    }
+}
@@ -0,0 +1,63 @@
+package io.github.turtleisaac.nds4j.ui;
+
+import io.github.turtleisaac.nds4j.NintendoDsRom;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures opening a ROM, both by loading it onto the heap and by memory-mapping it
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class RomOpenBenchmark
+{
+    @Param({"256", "4096"})
+    public int fileCount;
+
+    @Param({"16384"})
+    public int fileSize;
+
+    private Path directory;
+    private Path romPath;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException
+    {
+        directory = SyntheticRom.createWorkingDirectory();
+        romPath = SyntheticRom.write(directory.resolve("base.nds"), fileCount, fileSize, 1);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown()
+    {
+        SyntheticRom.deleteWorkingDirectory(directory);
+    }
+
+    @Benchmark
+    public NintendoDsRom loadOntoHeap() throws IOException
+    {
+        return NintendoDsRom.fromFile(romPath.toString());
+    }
+
+    @Benchmark
+    public String memoryMap() throws IOException
+    {
+        try (MappedRom rom = MappedRom.open(romPath.toString()))
+        {
+            return rom.getGameCode();
+        }
+    }
+
+    @Benchmark
+    public RomLayout readLayout() throws IOException
+    {
+        return RomLayout.read(romPath);
+    }
+}
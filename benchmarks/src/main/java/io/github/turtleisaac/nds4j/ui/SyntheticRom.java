@@ -0,0 +1,224 @@
+package io.github.turtleisaac.nds4j.ui;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Generates Nintendo DS ROM images for the benchmarks to run against, so that they don't depend on any real game
+ * being available.
+ * <p>Each image has a valid header, small ARM9 and ARM7 binaries, a banner, and a filesystem of the requested number
+ * of files filled with seeded random data, grouped into folders of 64 files each (<code>00/0000.bin</code>,
+ * <code>00/0001.bin</code>, ...). The same arguments always produce the same image.</p>
+ */
+class SyntheticRom
+{
+    /**
+     * The game code written into the header of every generated ROM
+     */
+    static final String gameCode = "BNCE";
+
+    private static final int filesPerFolder = 64;
+    private static final int alignment = 0x200;
+    private static final int headerSize = 0x4000;
+    private static final int arm9Size = 0x800;
+    private static final int arm7Size = 0x400;
+    private static final int bannerSize = 0x840;
+
+    private SyntheticRom() {}
+
+    /**
+     * Gets the path within the ROM of one of the files in a generated ROM's filesystem
+     * @param index an <code>int</code> containing the index of the file
+     * @return a <code>String</code> containing the path of the file within the ROM
+     */
+    static String getPath(int index)
+    {
+        return String.format("%02x/%04x.bin", index / filesPerFolder, index);
+    }
+
+    /**
+     * Writes a new synthetic ROM
+     * @param target a <code>Path</code> to the file to write the ROM to
+     * @param fileCount an <code>int</code> containing the number of files in the ROM's filesystem, up to 16384
+     * @param fileSize an <code>int</code> containing the size of each file in bytes
+     * @param seed a <code>long</code> to seed the contents of the files with
+     * @return <code>target</code>
+     * @throws IOException if the ROM can't be written
+     * @throws IllegalArgumentException if <code>fileCount</code> is out of range
+     */
+    static Path write(Path target, int fileCount, int fileSize, long seed) throws IOException
+    {
+        if (fileCount < 1 || fileCount > 0x100 * filesPerFolder)
+            throw new IllegalArgumentException("A synthetic ROM must have between 1 and 16384 files");
+
+        int folderCount = (fileCount + filesPerFolder - 1) / filesPerFolder;
+        byte[] fnt = buildFnt(fileCount, folderCount);
+
+        int arm9Offset = headerSize;
+        int arm7Offset = align(arm9Offset + arm9Size);
+        int fntOffset = align(arm7Offset + arm7Size);
+        int fatOffset = align(fntOffset + fnt.length);
+        int bannerOffset = align(fatOffset + fileCount * RomLayout.fatEntrySize);
+        int filesOffset = align(bannerOffset + bannerSize);
+        int romSize = filesOffset + fileCount * align(fileSize);
+
+        ByteBuffer rom = ByteBuffer.allocate(romSize).order(ByteOrder.LITTLE_ENDIAN);
+
+        rom.put(0, "BENCHMARK".getBytes(StandardCharsets.US_ASCII));
+        rom.put(RomLayout.gameCodeOffset, gameCode.getBytes(StandardCharsets.US_ASCII));
+        rom.put(0x10, "01".getBytes(StandardCharsets.US_ASCII));
+        rom.put(0x14, (byte) capacity(romSize));
+
+        rom.putInt(0x20, arm9Offset);
+        rom.putInt(0x24, 0x02000000);
+        rom.putInt(0x28, 0x02000000);
+        rom.putInt(0x2C, arm9Size);
+        rom.putInt(0x30, arm7Offset);
+        rom.putInt(0x34, 0x02380000);
+        rom.putInt(0x38, 0x02380000);
+        rom.putInt(0x3C, arm7Size);
+
+        rom.putInt(RomLayout.fntOffsetOffset, fntOffset);
+        rom.putInt(RomLayout.fntSizeOffset, fnt.length);
+        rom.putInt(RomLayout.fatOffsetOffset, fatOffset);
+        rom.putInt(RomLayout.fatSizeOffset, fileCount * RomLayout.fatEntrySize);
+        // no overlays, so both overlay tables are left empty at offset 0
+
+        rom.putInt(0x68, bannerOffset);
+        rom.putInt(0x80, romSize);
+        rom.putInt(0x84, headerSize);
+        rom.putShort(0x15C, (short) 0xCF56);
+        rom.putShort(0x15E, (short) crc16(rom, 0, 0x15E));
+
+        // a branch-to-self at each entry point, which is enough for anything that inspects the binaries
+        rom.putInt(arm9Offset, 0xEAFFFFFE);
+        rom.putInt(arm7Offset, 0xEAFFFFFE);
+
+        rom.put(fntOffset, fnt);
+
+        rom.putShort(bannerOffset, (short) 1);
+        byte[] title = "Benchmark\nNds4j-ToolUI".getBytes(StandardCharsets.UTF_16LE);
+        for (int language = 0; language < 6; language++)
+            rom.put(bannerOffset + 0x240 + language * 0x100, title);
+        rom.putShort(bannerOffset + 2, (short) crc16(rom, bannerOffset + 0x20, bannerSize - 0x20));
+
+        Random random = new Random(seed);
+        byte[] data = new byte[fileSize];
+        for (int i = 0; i < fileCount; i++)
+        {
+            int start = filesOffset + i * align(fileSize);
+            random.nextBytes(data);
+            rom.put(start, data);
+            rom.putInt(fatOffset + i * RomLayout.fatEntrySize, start);
+            rom.putInt(fatOffset + i * RomLayout.fatEntrySize + 4, start + fileSize);
+        }
+
+        Files.write(target, rom.array());
+        return target;
+    }
+
+    /**
+     * Builds a file name table with a root folder containing <code>folderCount</code> folders, which share the files
+     * between them in order
+     */
+    private static byte[] buildFnt(int fileCount, int folderCount)
+    {
+        List<byte[]> subtables = new ArrayList<>();
+
+        ByteBuffer root = ByteBuffer.allocate(folderCount * 5 + 1).order(ByteOrder.LITTLE_ENDIAN);
+        for (int folder = 0; folder < folderCount; folder++)
+        {
+            byte[] name = String.format("%02x", folder).getBytes(StandardCharsets.US_ASCII);
+            root.put((byte) (0x80 | name.length)).put(name).putShort((short) (0xF001 + folder));
+        }
+        root.put((byte) 0);
+        subtables.add(root.array());
+
+        for (int folder = 0; folder < folderCount; folder++)
+        {
+            int first = folder * filesPerFolder;
+            int last = Math.min(fileCount, first + filesPerFolder);
+            ByteBuffer subtable = ByteBuffer.allocate((last - first) * 9 + 1);
+            for (int i = first; i < last; i++)
+            {
+                byte[] name = String.format("%04x.bin", i).getBytes(StandardCharsets.US_ASCII);
+                subtable.put((byte) name.length).put(name);
+            }
+            subtable.put((byte) 0);
+            subtables.add(subtable.array());
+        }
+
+        int directoryTableSize = (folderCount + 1) * 8;
+        int size = directoryTableSize;
+        for (byte[] subtable : subtables)
+            size += subtable.length;
+
+        ByteBuffer fnt = ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN);
+        int subtableOffset = directoryTableSize;
+        for (int folder = 0; folder <= folderCount; folder++)
+        {
+            fnt.putInt(folder * 8, subtableOffset);
+            // the root's entry holds the folder count where the others hold their parent's ID
+            fnt.putShort(folder * 8 + 4, (short) (folder == 0 ? 0 : (folder - 1) * filesPerFolder));
+            fnt.putShort(folder * 8 + 6, (short) (folder == 0 ? folderCount + 1 : 0xF000));
+            fnt.put(subtableOffset, subtables.get(folder));
+            subtableOffset += subtables.get(folder).length;
+        }
+        return fnt.array();
+    }
+
+    private static int align(int offset)
+    {
+        return (offset + alignment - 1) & -alignment;
+    }
+
+    /**
+     * Gets the device capacity header value, which is the smallest n where 128 KiB shifted left by n holds the ROM
+     */
+    private static int capacity(int romSize)
+    {
+        int capacity = 0;
+        while ((0x20000L << capacity) < romSize)
+            capacity++;
+        return capacity;
+    }
+
+    private static int crc16(ByteBuffer buffer, int offset, int length)
+    {
+        int crc = 0xFFFF;
+        for (int i = offset; i < offset + length; i++)
+        {
+            crc ^= buffer.get(i) & 0xFF;
+            for (int bit = 0; bit < 8; bit++)
+                crc = (crc & 1) != 0 ? (crc >>> 1) ^ 0xA001 : crc >>> 1;
+        }
+        return crc;
+    }
+
+    /**
+     * Creates a new temporary folder for a benchmark to work in
+     * @return a <code>Path</code> to the folder
+     * @throws IOException if the folder can't be created
+     */
+    static Path createWorkingDirectory() throws IOException
+    {
+        return Files.createTempDirectory("nds4j-toolui-benchmark");
+    }
+
+    /**
+     * Deletes a folder created by <code>createWorkingDirectory()</code> along with everything inside it
+     * @param directory a <code>Path</code> to the folder
+     */
+    static void deleteWorkingDirectory(Path directory)
+    {
+        if (directory != null && Files.exists(directory) && !FileUtils.clearDirectory(directory.toFile()))
+            System.err.println("[WARNING]: Failed to delete benchmark folder: " + directory);
+    }
+}
@@ -0,0 +1,71 @@
+package io.github.turtleisaac.nds4j.ui;
+
+import com.formdev.flatlaf.FlatDarkLaf;
+import com.formdev.flatlaf.FlatLightLaf;
+import org.openjdk.jmh.annotations.*;
+
+import javax.swing.*;
+import java.awt.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures switching between two themes with <code>ThemeUtils.changeTheme()</code>, and updating a component tree of
+ * the size of a typical tool window to match
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class ThemeSwitchBenchmark
+{
+    @Param({"500"})
+    public int componentCount;
+
+    private JPanel panel;
+    private String savedTheme;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception
+    {
+        // changeTheme() saves the theme as the user's preference, so whatever is there is put back afterwards
+        savedTheme = Tool.preferences.get("laf", null);
+
+        ThemeUtils.addLookAndFeel(new FlatLightLaf());
+        ThemeUtils.addLookAndFeel(new FlatDarkLaf());
+        EventQueue.invokeAndWait(() -> {
+            ThemeUtils.changeTheme();
+            panel = new JPanel(new GridLayout(0, 5));
+            for (int i = 0; i < componentCount; i++)
+            {
+                switch (i % 5) {
+                    case 0 -> panel.add(new JLabel("Label " + i));
+                    case 1 -> panel.add(new JTextField("Field " + i));
+                    case 2 -> panel.add(new JButton("Button " + i, ThemeUtils.saveIcon));
+                    case 3 -> panel.add(new JCheckBox("Check " + i));
+                    default -> panel.add(new JComboBox<>(new String[] {"A", "B", "C"}));
+                }
+            }
+        });
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown()
+    {
+        if (savedTheme != null)
+            Tool.preferences.put("laf", savedTheme);
+        else
+            Tool.preferences.remove("laf");
+    }
+
+    @Benchmark
+    public JPanel changeTheme() throws Exception
+    {
+        EventQueue.invokeAndWait(() -> {
+            ThemeUtils.changeTheme();
+            SwingUtilities.updateComponentTreeUI(panel);
+        });
+        return panel;
+    }
+}
@@ -0,0 +1,89 @@
+package io.github.turtleisaac.nds4j.ui;
+
+import io.github.turtleisaac.nds4j.NintendoDsRom;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+/**
+ * Measures <code>isRomSupported</code>, both running the validation checks and answering from the cached verdict
+ * for a ROM which has been seen before, along with fingerprinting the ROM for that cache
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class ValidationBenchmark
+{
+    @Param({"1", "8"})
+    public int checkCount;
+
+    @Param({"1024"})
+    public int fileCount;
+
+    private Path directory;
+    private NintendoDsRom rom;
+    private MappedRom mappedRom;
+    private Tool tool;
+    private String fingerprint;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException
+    {
+        directory = SyntheticRom.createWorkingDirectory();
+        Path romPath = SyntheticRom.write(directory.resolve("base.nds"), fileCount, 16384, 1);
+        rom = NintendoDsRom.fromFile(romPath.toString());
+        mappedRom = MappedRom.open(romPath.toString());
+
+        // each check reads a different slice of the filesystem, like a check looking for a tool's expected data would
+        tool = Tool.create()
+                .setType(ProgramType.ROM)
+                .setName("Validation Benchmark")
+                .setVersion(checkCount + "x" + fileCount)
+                .addGame("Benchmark", SyntheticRom.gameCode);
+        int filesPerCheck = Math.max(1, fileCount / checkCount);
+        for (int check = 0; check < checkCount; check++)
+        {
+            int first = check * filesPerCheck;
+            tool.addValidationCheck(candidate -> {
+                CRC32 crc = new CRC32();
+                for (int i = first; i < first + filesPerCheck && i < fileCount; i++)
+                    crc.update(candidate.getFileByName(SyntheticRom.getPath(i)));
+                return crc.getValue() != 0;
+            }, "Check " + check + " failed");
+        }
+
+        fingerprint = RomValidator.fingerprint(mappedRom.getImage());
+        tool.isRomSupported(SyntheticRom.gameCode, fingerprint, () -> rom);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException
+    {
+        mappedRom.close();
+        SyntheticRom.deleteWorkingDirectory(directory);
+    }
+
+    @Benchmark
+    public Tool.RomSupportContext runChecks()
+    {
+        return tool.isRomSupported(rom);
+    }
+
+    @Benchmark
+    public Tool.RomSupportContext cachedVerdict()
+    {
+        return tool.isRomSupported(SyntheticRom.gameCode, fingerprint, () -> rom);
+    }
+
+    @Benchmark
+    public String fingerprint()
+    {
+        return RomValidator.fingerprint(mappedRom.getImage());
+    }
+}
@@ -0,0 +1,248 @@
+package io.github.turtleisaac.nds4j.ui;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import io.github.turtleisaac.nds4j.NintendoDsRom;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+/**
+ * Runs a function-based <code>Tool</code> over many ROMs without any user interface, loading, validating, modifying
+ * and saving several ROMs in parallel.
+ * <p>The number of ROMs in flight at once is limited both by the worker count and by a memory budget, since each ROM
+ * being processed is held on the heap in its entirety.</p>
+ */
+class BatchRunner
+{
+    /**
+     * The name of the report written to the output directory after a batch has run
+     */
+    static final String reportFileName = "batch-report.json";
+
+    // a ROM is on the heap once after loading, and is roughly duplicated again while being serialized
+    private static final int memoryFactor = 3;
+    private static final AtomicInteger poolNumber = new AtomicInteger();
+
+    private final Tool tool;
+    private final int workerCount;
+    private final int memoryBudget;
+    private final Semaphore memoryPermits;
+
+    /**
+     * Creates a new <code>BatchRunner</code>
+     * @param tool the function-based <code>Tool</code> whose validation checks and functions are run on each ROM
+     * @param workerCount an <code>int</code> containing the maximum number of ROMs to process at once
+     * @param memoryBudgetBytes a <code>long</code> containing roughly how much heap the ROMs in flight may use at once
+     */
+    BatchRunner(Tool tool, int workerCount, long memoryBudgetBytes)
+    {
+        this.tool = tool;
+        this.workerCount = Math.max(1, workerCount);
+        this.memoryBudget = (int) Math.max(1, Math.min(Integer.MAX_VALUE, memoryBudgetBytes >> 20));
+        this.memoryPermits = new Semaphore(memoryBudget, true);
+    }
+
+    /**
+     * Resolves the ROMs to process from either a directory (every ROM directly inside it) or a glob pattern
+     * such as <code>roms/**&#47;*.nds</code>
+     * @param input a <code>String</code> containing a directory path or a glob pattern
+     * @return a sorted <code>List</code><<code>Path</code>> of ROM files
+     * @throws IOException if the directory can't be listed
+     */
+    static List<Path> resolveInputs(String input) throws IOException
+    {
+        int globStart = indexOfGlob(input);
+        if (globStart == -1 && Files.isDirectory(Path.of(input)))
+        {
+            try (Stream<Path> files = Files.list(Path.of(input)))
+            {
+                return files.filter(Files::isRegularFile)
+                        .filter(file -> FileUtils.romFilter.accept(file.toFile()))
+                        .sorted()
+                        .toList();
+            }
+        }
+
+        // walk from the deepest folder which comes before any wildcard, keeping paths relative if the pattern is
+        String prefix = globStart == -1 ? input : input.substring(0, globStart);
+        Path base = prefix.endsWith("/") || prefix.endsWith(File.separator) ? Path.of(prefix) : Path.of(prefix).getParent();
+        if (base == null)
+            base = Path.of("");
+        PathMatcher matcher = FileSystems.getDefault().getPathMatcher("glob:" + input);
+        try (Stream<Path> files = Files.walk(base))
+        {
+            return files.filter(Files::isRegularFile)
+                    .filter(matcher::matches)
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    private static int indexOfGlob(String input)
+    {
+        for (int i = 0; i < input.length(); i++)
+        {
+            if ("*?[{".indexOf(input.charAt(i)) != -1)
+                return i;
+        }
+        return -1;
+    }
+
+    /**
+     * Processes every provided ROM, saving each modified ROM in the output directory under its path relative to the
+     * deepest folder all the inputs have in common, then writes a report of the batch to the output directory.
+     * ROMs with the same file name found in different folders by a recursive glob are therefore never saved to the same
+     * path.
+     * @param inputs a <code>List</code><<code>Path</code>> of ROM files
+     * @param outputDirectory a <code>Path</code> to the directory to save the modified ROMs in
+     * @return a <code>List</code><<code>BatchResult</code>> in the same order as <code>inputs</code>
+     * @throws IOException if the output directory can't be created or the report can't be written
+     */
+    List<Tool.BatchResult> run(List<Path> inputs, Path outputDirectory) throws IOException
+    {
+        Files.createDirectories(outputDirectory);
+
+        String poolName = "batch-" + poolNumber.incrementAndGet();
+        AtomicInteger threadNumber = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(workerCount, Math.max(1, inputs.size())), runnable -> {
+            Thread thread = new Thread(runnable, poolName + "-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        Path root = commonParent(inputs);
+        List<Tool.BatchResult> results = new ArrayList<>();
+        try {
+            List<Future<Tool.BatchResult>> futures = new ArrayList<>();
+            for (Path input : inputs)
+            {
+                Path output = outputDirectory.resolve(root.relativize(input.toAbsolutePath().normalize()).toString());
+                futures.add(executor.submit(() -> process(input, output)));
+            }
+
+            for (int i = 0; i < futures.size(); i++)
+            {
+                try {
+                    results.add(futures.get(i).get());
+                }
+                catch (ExecutionException e) {
+                    results.add(new Tool.BatchResult(inputs.get(i), null, Tool.BatchResult.Status.FAILED, e.getCause().getMessage(), Map.of()));
+                }
+            }
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("The batch was interrupted", e);
+        }
+        finally {
+            executor.shutdownNow();
+        }
+
+        writeReport(results, outputDirectory.resolve(reportFileName));
+        return results;
+    }
+
+    /**
+     * Gets the deepest folder which contains every one of the given files
+     */
+    private static Path commonParent(List<Path> files)
+    {
+        Path common = null;
+        for (Path file : files)
+        {
+            Path parent = file.toAbsolutePath().normalize().getParent();
+            if (common == null)
+                common = parent;
+            while (!parent.startsWith(common))
+                common = common.getParent();
+        }
+        return common == null ? Path.of("").toAbsolutePath() : common;
+    }
+
+    private Tool.BatchResult process(Path input, Path output) throws InterruptedException
+    {
+        Map<String, Long> timings = new LinkedHashMap<>();
+        int permits;
+        try {
+            permits = (int) Math.min(memoryBudget, Math.max(1, (Files.size(input) * memoryFactor) >> 20));
+        }
+        catch (IOException e) {
+            return new Tool.BatchResult(input, null, Tool.BatchResult.Status.FAILED, e.getMessage(), timings);
+        }
+
+        memoryPermits.acquire(permits);
+        long lapStart = System.nanoTime();
+        try {
+            NintendoDsRom rom = NintendoDsRom.fromFile(input.toString());
+            lapStart = lap(timings, "load", lapStart);
+
+            Tool.RomSupportContext supportContext = tool.isRomSupported(rom);
+            lapStart = lap(timings, "validate", lapStart);
+            if (!supportContext.isSupported())
+                return new Tool.BatchResult(input, null, Tool.BatchResult.Status.UNSUPPORTED, supportContext.getErrorMessage().orElse(null), timings);
+
+            tool.runProvidedFunctions(rom);
+            lapStart = lap(timings, "functions", lapStart);
+
+            Files.createDirectories(output.getParent());
+            Path temp = FileUtils.createTempFileFor(output);
+            try {
+                rom.saveToFile(temp.toString(), true);
+                FileUtils.replaceAtomically(temp, output);
+            }
+            finally {
+                Files.deleteIfExists(temp);
+            }
+            lap(timings, "save", lapStart);
+
+            return new Tool.BatchResult(input, output, Tool.BatchResult.Status.SUCCEEDED, null, timings);
+        }
+        catch (Exception e) {
+            String message = e.getMessage() == null ? e.getClass().getSimpleName() : e.getMessage();
+            return new Tool.BatchResult(input, null, Tool.BatchResult.Status.FAILED, message, timings);
+        }
+        finally {
+            memoryPermits.release(permits);
+        }
+    }
+
+    private static long lap(Map<String, Long> timings, String stage, long lapStart)
+    {
+        long now = System.nanoTime();
+        timings.put(stage, TimeUnit.NANOSECONDS.toMillis(now - lapStart));
+        return now;
+    }
+
+    private static void writeReport(List<Tool.BatchResult> results, Path reportPath) throws IOException
+    {
+        ObjectMapper objectMapper = new ObjectMapper();
+        ObjectNode report = objectMapper.createObjectNode();
+        ArrayNode roms = report.putArray("roms");
+        Map<Tool.BatchResult.Status, Integer> counts = new EnumMap<>(Tool.BatchResult.Status.class);
+        for (Tool.BatchResult result : results)
+        {
+            counts.merge(result.getStatus(), 1, Integer::sum);
+
+            ObjectNode node = roms.addObject();
+            node.put("input", result.getInput().toString());
+            node.put("output", result.getOutput().map(Path::toString).orElse(null));
+            node.put("status", result.getStatus().name());
+            node.put("message", result.getMessage().orElse(null));
+            ObjectNode timings = node.putObject("timingsMillis");
+            result.getTimings().forEach(timings::put);
+        }
+        report.put("total", results.size());
+        report.put("succeeded", counts.getOrDefault(Tool.BatchResult.Status.SUCCEEDED, 0));
+        report.put("unsupported", counts.getOrDefault(Tool.BatchResult.Status.UNSUPPORTED, 0));
+        report.put("failed", counts.getOrDefault(Tool.BatchResult.Status.FAILED, 0));
+
+        FileUtils.writeFileAtomically(reportPath, objectMapper.writerWithDefaultPrettyPrinter().writeValueAsBytes(report));
+    }
+}
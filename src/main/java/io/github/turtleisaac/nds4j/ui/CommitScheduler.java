@@ -0,0 +1,117 @@
+package io.github.turtleisaac.nds4j.ui;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Future;
+
+/**
+ * Queues commit requests and performs them in the background, one commit at a time.
+ * <p>A commit is only made once requests stop arriving, as decided by a <code>Debouncer</code>. Every request queued up
+ * to that point is merged into a single commit, so rapid save cycles never have to wait for, or be rejected because
+ * of, a previous commit.</p>
+ */
+class CommitScheduler
+{
+    /**
+     * The operation which actually creates a commit out of one or more queued requests
+     */
+    @FunctionalInterface
+    interface CommitAction
+    {
+        /**
+         * Creates a single commit
+         * @param messages a <code>List</code><<code>String</code>> containing the message of each merged request in
+         *                 the order they were queued. Entries are <code>null</code> for requests without a message.
+         * @throws Exception if the commit fails
+         */
+        void commit(List<String> messages) throws Exception;
+    }
+
+    private final CommitAction action;
+    private final Debouncer debouncer;
+
+    private final List<String> pendingMessages = new ArrayList<>();
+    private long oldestPendingNanos;
+
+    private volatile Duration lastCommitLatency;
+
+    /**
+     * Creates a new <code>CommitScheduler</code>
+     * @param action the <code>CommitAction</code> to run for each merged batch of requests
+     * @param debounce a <code>Duration</code> containing how long to wait for further requests before committing
+     * @param executor the <code>TaskExecutor</code> to make the commits on
+     */
+    CommitScheduler(CommitAction action, Duration debounce, TaskExecutor executor)
+    {
+        this.action = action;
+        this.debouncer = new Debouncer(executor, "Committing to Git", debounce, this::commitPending);
+    }
+
+    /**
+     * Queues a commit request. This never blocks on, or is rejected because of, a commit which is already in progress.
+     * @param message a <code>String</code> containing the commit message, or <code>null</code>
+     * @throws IllegalStateException if the tool's window has closed
+     */
+    void request(String message)
+    {
+        synchronized (this)
+        {
+            if (pendingMessages.isEmpty())
+                oldestPendingNanos = System.nanoTime();
+            pendingMessages.add(message);
+        }
+        debouncer.request();
+    }
+
+    /**
+     * Commits every queued request right away, skipping the rest of the debounce window
+     * @return a <code>Future</code> which completes once the commit (if there was anything to commit) has finished
+     */
+    Future<?> flush()
+    {
+        return debouncer.flush();
+    }
+
+    private void commitPending()
+    {
+        List<String> messages;
+        long oldest;
+        synchronized (this)
+        {
+            if (pendingMessages.isEmpty())
+                return;
+            messages = new ArrayList<>(pendingMessages);
+            oldest = oldestPendingNanos;
+            pendingMessages.clear();
+        }
+
+        try {
+            action.commit(messages);
+        }
+        catch (Exception e) {
+            System.err.println("[ERROR]: Git commit failed: " + e.getMessage());
+        }
+        finally {
+            lastCommitLatency = Duration.ofNanos(System.nanoTime() - oldest);
+        }
+    }
+
+    /**
+     * Gets the number of commit requests which are queued and have not been committed yet
+     * @return an <code>int</code>
+     */
+    synchronized int getQueueDepth()
+    {
+        return pendingMessages.size();
+    }
+
+    /**
+     * Gets how long the most recent commit took from its oldest merged request being queued to the commit completing
+     * @return a <code>Duration</code>, or <code>null</code> if no commit has been made yet
+     */
+    Duration getLastCommitLatency()
+    {
+        return lastCommitLatency;
+    }
+}
@@ -0,0 +1,345 @@
+package io.github.turtleisaac.nds4j.ui;
+
+import java.io.*;
+import java.nio.file.*;
+import java.nio.file.attribute.PosixFilePermission;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+
+/**
+ * A directory of files shared between projects, each stored once under the SHA-256 hash of its contents.
+ * <p>When a project is created with a store, every file in the ROM's filesystem is hard linked into the project from
+ * the store rather than written out again, so projects made from the same base ROM take up almost no extra space and
+ * are created in about the time it takes to hash the ROM. The framework always saves project files by renaming a new
+ * file over the old one, so the first time a file is saved it is broken out into a private copy and the stored file
+ * is left untouched.</p>
+ * <p>The stored files are made read-only, through POSIX permissions or the DOS read-only attribute on Windows, so
+ * that a program which writes into a project file in place fails instead of changing that file in every other project.
+ * On Windows the attribute is shared by every link to a file and has to be cleared before a linked file can be
+ * replaced, so it is set again on a stored file each time that file is linked. If hard links aren't supported, such as
+ * when the store is on a different drive than the project, files are copied instead.</p>
+ * <p>The store also remembers which files each ROM it has unpacked was made of, keyed by the hash of the whole ROM, so
+ * a project made from a base ROM which was already unpacked once only has to be linked, without parsing the ROM
+ * again.</p>
+ * <p>Files are never removed from the store automatically. <code>prune()</code> removes the ones which are no longer
+ * linked into any project, and a remembered ROM whose files were pruned is simply unpacked again.</p>
+ */
+public class ContentStore
+{
+    private static final Set<PosixFilePermission> readOnly = EnumSet.of(PosixFilePermission.OWNER_READ,
+            PosixFilePermission.GROUP_READ, PosixFilePermission.OTHERS_READ);
+    private static final int romIndexMagic = 0x4E445352; // "NDSR"
+    private static final int romIndexVersion = 1;
+    private static final int hashLength = 32;
+
+    private final Path directory;
+    private final Path objects;
+    private final Path roms;
+    private final boolean posix;
+    private final boolean dos;
+    private final AtomicBoolean linksSupported = new AtomicBoolean(true);
+
+    /**
+     * Opens a store in the given directory, creating it if it doesn't exist yet. A store can be shared by any number
+     * of tools and processes.
+     * @param directory a <code>Path</code> to the directory to keep the stored files in
+     * @throws IOException if the directory can't be created
+     */
+    public ContentStore(Path directory) throws IOException
+    {
+        this.directory = directory.toAbsolutePath();
+        this.objects = Files.createDirectories(this.directory.resolve("objects"));
+        this.roms = Files.createDirectories(this.directory.resolve("roms"));
+        FileStore fileStore = Files.getFileStore(objects);
+        this.posix = fileStore.supportsFileAttributeView("posix");
+        this.dos = !posix && fileStore.supportsFileAttributeView("dos");
+    }
+
+    /**
+     * Gets the directory this store keeps its files in
+     * @return a <code>Path</code>
+     */
+    public Path getDirectory()
+    {
+        return directory;
+    }
+
+    /**
+     * Creates a file with the given contents, linking it to the stored copy of those contents if there is one and
+     * adding the contents to the store if there isn't
+     * @param target a <code>Path</code> to the file to create, which must not exist yet
+     * @param data a <code>byte[]</code> containing the contents of the file
+     * @return a <code>boolean</code> containing whether the file was linked, or <code>false</code> if it had to be copied
+     * @throws IOException if an I/O error occurs
+     */
+    protected boolean link(Path target, byte[] data) throws IOException
+    {
+        return link(target, data, hash(data));
+    }
+
+    /**
+     * Creates a file with the given contents whose hash is already known, linking it to the stored copy of those
+     * contents if there is one and adding the contents to the store if there isn't
+     * @param target a <code>Path</code> to the file to create, which must not exist yet
+     * @param data a <code>byte[]</code> containing the contents of the file
+     * @param hash a <code>byte[]</code> containing the SHA-256 hash of <code>data</code>
+     * @return a <code>boolean</code> containing whether the file was linked, or <code>false</code> if it had to be copied
+     * @throws IOException if an I/O error occurs
+     */
+    protected boolean link(Path target, byte[] data, byte[] hash) throws IOException
+    {
+        Path object = getObjectPath(hash);
+        if (!Files.exists(object))
+            add(object, temp -> Files.write(temp, data));
+
+        if (createLink(target, object))
+            return true;
+        Files.write(target, data, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        return false;
+    }
+
+    /**
+     * Creates a copy of a file, linking it to the stored copy of its contents if there is one and adding its contents
+     * to the store if there isn't. This is meant for files too large to hold in memory, such as whole ROMs.
+     * @param target a <code>Path</code> to the file to create, which must not exist yet
+     * @param source a <code>Path</code> to the file to copy
+     * @return a <code>boolean</code> containing whether the file was linked, or <code>false</code> if it had to be copied
+     * @throws IOException if an I/O error occurs
+     */
+    protected boolean link(Path target, Path source) throws IOException
+    {
+        return link(target, source, hash(source));
+    }
+
+    /**
+     * Creates a copy of a file whose hash is already known, linking it to the stored copy of its contents if there is
+     * one and adding its contents to the store if there isn't
+     * @param target a <code>Path</code> to the file to create, which must not exist yet
+     * @param source a <code>Path</code> to the file to copy
+     * @param hash a <code>byte[]</code> containing the SHA-256 hash of the contents of <code>source</code>
+     * @return a <code>boolean</code> containing whether the file was linked, or <code>false</code> if it had to be copied
+     * @throws IOException if an I/O error occurs
+     */
+    protected boolean link(Path target, Path source, byte[] hash) throws IOException
+    {
+        Path object = getObjectPath(hash);
+        if (!Files.exists(object))
+            add(object, temp -> Files.copy(source, temp, StandardCopyOption.REPLACE_EXISTING));
+
+        if (createLink(target, object))
+            return true;
+        Files.copy(source, target);
+        return false;
+    }
+
+    /**
+     * Creates a file from contents which are already in the store, linking it if possible and copying it otherwise
+     * @param target a <code>Path</code> to the file to create, which must not exist yet
+     * @param hash a <code>byte[]</code> containing the SHA-256 hash of the stored contents
+     * @throws NoSuchFileException if the store doesn't have those contents, such as after they were pruned
+     * @throws IOException if an I/O error occurs
+     */
+    protected void linkStored(Path target, byte[] hash) throws IOException
+    {
+        Path object = getObjectPath(hash);
+        if (createLink(target, object))
+            return;
+        // copied through a stream so that the copy isn't made read-only like the stored file
+        try (InputStream in = Files.newInputStream(object))
+        {
+            Files.copy(in, target);
+        }
+    }
+
+    /**
+     * Gets which files a ROM was unpacked into when it was last unpacked with this store, as long as every one of them
+     * is still stored
+     * @param romHash a <code>byte[]</code> containing the SHA-256 hash of the whole ROM file
+     * @return a <code>Map</code><<code>String</code>, <code>byte[]</code>> of the path of each file relative to the
+     * unpacked ROM's folder to the hash of its contents, or <code>null</code> if the ROM isn't known
+     * @throws IOException if the record of the ROM can't be read
+     */
+    protected Map<String, byte[]> findRom(byte[] romHash) throws IOException
+    {
+        Path index = roms.resolve(HexFormat.of().formatHex(romHash));
+        if (!Files.isRegularFile(index))
+            return null;
+
+        Map<String, byte[]> files = new LinkedHashMap<>();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(index))))
+        {
+            if (in.readInt() != romIndexMagic || in.readInt() != romIndexVersion)
+                return null;
+            int count = in.readInt();
+            for (int i = 0; i < count; i++)
+            {
+                String path = in.readUTF();
+                byte[] hash = new byte[hashLength];
+                in.readFully(hash);
+                if (!Files.exists(getObjectPath(hash)))
+                    return null;
+                files.put(path, hash);
+            }
+        }
+        catch (EOFException e) {
+            return null;
+        }
+        return files;
+    }
+
+    /**
+     * Remembers which files a ROM was unpacked into, every one of which must already be stored, so that the next
+     * project made from the same ROM only has to be linked
+     * @param romHash a <code>byte[]</code> containing the SHA-256 hash of the whole ROM file
+     * @param files a <code>Map</code><<code>String</code>, <code>byte[]</code>> of the path of each file relative to
+     *              the unpacked ROM's folder to the hash of its contents
+     * @throws IOException if the record of the ROM can't be written
+     */
+    protected void recordRom(byte[] romHash, Map<String, byte[]> files) throws IOException
+    {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(16 + files.size() * 64);
+        try (DataOutputStream out = new DataOutputStream(bytes))
+        {
+            out.writeInt(romIndexMagic);
+            out.writeInt(romIndexVersion);
+            out.writeInt(files.size());
+            for (Map.Entry<String, byte[]> file : new TreeMap<>(files).entrySet())
+            {
+                out.writeUTF(file.getKey());
+                out.write(file.getValue());
+            }
+        }
+        FileUtils.writeFileAtomically(roms.resolve(HexFormat.of().formatHex(romHash)), bytes.toByteArray());
+    }
+
+    private boolean createLink(Path target, Path object) throws IOException
+    {
+        if (linksSupported.get())
+        {
+            try {
+                // saving a file linked from this one clears the attribute they share, so it may need setting again
+                if (dos)
+                    makeReadOnly(object);
+                Files.createLink(target, object);
+                return true;
+            }
+            catch (FileAlreadyExistsException e) {
+                throw e;
+            }
+            catch (NoSuchFileException e) {
+                // pruned by another tool between being found and being linked, so just copy this one
+            }
+            catch (UnsupportedOperationException | FileSystemException e) {
+                // a different filesystem, too many links to one file, or no hard links at all
+                if (linksSupported.compareAndSet(true, false))
+                    System.err.println("[WARNING]: Hard links into the content store at " + directory + " are not supported, copying instead: " + e.getMessage());
+            }
+        }
+        return false;
+    }
+
+    private interface Writer
+    {
+        void write(Path temp) throws IOException;
+    }
+
+    private void add(Path object, Writer writer) throws IOException
+    {
+        Files.createDirectories(object.getParent());
+        Path temp = FileUtils.createTempFileFor(object);
+        try {
+            writer.write(temp);
+            makeReadOnly(temp);
+            // another tool may store the same contents at the same time, in which case either copy is fine
+            FileUtils.replaceAtomically(temp, object);
+        }
+        finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    private void makeReadOnly(Path file) throws IOException
+    {
+        if (posix)
+            Files.setPosixFilePermissions(file, readOnly);
+        else if (dos)
+            Files.setAttribute(file, "dos:readonly", true);
+    }
+
+    /**
+     * Removes every stored file which is no longer linked into any project. This is only possible on filesystems which
+     * report how many links a file has, and does nothing elsewhere.
+     * <p>This must not be run while a project is being created with this store, since files which were just stored
+     * aren't linked into the new project yet.</p>
+     * @return a <code>long</code> containing the number of bytes freed
+     * @throws IOException if an I/O error occurs
+     */
+    public long prune() throws IOException
+    {
+        if (!Files.getFileStore(objects).supportsFileAttributeView("unix"))
+            return 0;
+
+        long freed = 0;
+        try (Stream<Path> files = Files.walk(objects))
+        {
+            for (Path file : (Iterable<Path>) files.filter(Files::isRegularFile)::iterator)
+            {
+                if ((int) Files.getAttribute(file, "unix:nlink") > 1 || file.getFileName().toString().endsWith(".tmp"))
+                    continue;
+                long size = Files.size(file);
+                if (Files.deleteIfExists(file))
+                    freed += size;
+            }
+        }
+        return freed;
+    }
+
+    private Path getObjectPath(byte[] hash)
+    {
+        String hex = HexFormat.of().formatHex(hash);
+        return objects.resolve(hex.substring(0, 2)).resolve(hex.substring(2));
+    }
+
+    /**
+     * Gets the SHA-256 hash of the given contents, which is what the store files them under
+     * @param data a <code>byte[]</code>
+     * @return a <code>byte[]</code>
+     */
+    static byte[] hash(byte[] data)
+    {
+        return createDigest().digest(data);
+    }
+
+    /**
+     * Gets the SHA-256 hash of the contents of the given file, which is what the store files them under
+     * @param file a <code>Path</code>
+     * @return a <code>byte[]</code>
+     * @throws IOException if the file can't be read
+     */
+    static byte[] hash(Path file) throws IOException
+    {
+        MessageDigest digest = createDigest();
+        byte[] buffer = new byte[64 * 1024];
+        try (InputStream in = Files.newInputStream(file))
+        {
+            int read;
+            while ((read = in.read(buffer)) != -1)
+                digest.update(buffer, 0, read);
+        }
+        return digest.digest();
+    }
+
+    private static MessageDigest createDigest()
+    {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        }
+        catch (NoSuchAlgorithmException e) {
+            // every Java platform is required to support SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package io.github.turtleisaac.nds4j.ui;
+
+import java.time.Duration;
+import java.util.concurrent.Future;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Runs an action once requests for it stop arriving, on a <code>Tool</code>'s <code>TaskExecutor</code>.
+ * <p>The action is only run once no new request has arrived for the debounce window, or once the oldest request has
+ * waited for several debounce windows, whichever comes first, so a burst of requests runs it only once. The action is
+ * never run twice at the same time, and is responsible for working out what there is to do when it runs. No thread is
+ * kept while nothing has been requested.</p>
+ */
+class Debouncer
+{
+    private static final int maxDebounceWindows = 6;
+
+    private final TaskExecutor executor;
+    private final String name;
+    private final long debounceNanos;
+    private final Runnable action;
+
+    private final Lock lock = new ReentrantLock();
+    private final Condition timer = lock.newCondition();
+    private final Lock runLock = new ReentrantLock();
+    private boolean requested;
+    private long oldestRequestNanos;
+    private long deadline;
+    private TaskExecutor.Task<Void> waiter;
+
+    /**
+     * Creates a new <code>Debouncer</code>
+     * @param executor the <code>TaskExecutor</code> to wait and run the action on
+     * @param name a <code>String</code> describing the action, used as the name of its tasks
+     * @param debounce a <code>Duration</code> containing how long to wait for further requests before running the action
+     * @param action a <code>Runnable</code> containing the action to run
+     */
+    Debouncer(TaskExecutor executor, String name, Duration debounce, Runnable action)
+    {
+        this.executor = executor;
+        this.name = name;
+        this.debounceNanos = debounce.toNanos();
+        this.action = action;
+    }
+
+    /**
+     * Requests that the action is run once the debounce window has passed. This never blocks on the action.
+     * @throws IllegalStateException if the tool's window has closed
+     */
+    void request()
+    {
+        lock.lock();
+        try {
+            long now = System.nanoTime();
+            if (!requested)
+                oldestRequestNanos = now;
+            requested = true;
+            deadline = Math.min(now + debounceNanos, oldestRequestNanos + debounceNanos * maxDebounceWindows);
+
+            if (waiter == null)
+                waiter = executor.submit(name, this::awaitDeadline);
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Runs the action right away, skipping the rest of the debounce window
+     * @return a <code>Future</code> which completes once the action has run
+     * @throws IllegalStateException if the tool's window has closed
+     */
+    Future<?> flush()
+    {
+        return executor.submit(name, this::run);
+    }
+
+    private void awaitDeadline()
+    {
+        boolean finished = false;
+        try {
+            while (true)
+            {
+                lock.lock();
+                try {
+                    long remaining;
+                    while ((remaining = deadline - System.nanoTime()) > 0)
+                        timer.awaitNanos(remaining);
+                    requested = false;
+                }
+                catch (InterruptedException e) {
+                    // cancelled, which only happens once the window has closed and anything requested was flushed
+                    return;
+                }
+                finally {
+                    lock.unlock();
+                }
+
+                run();
+
+                lock.lock();
+                try {
+                    if (!requested)
+                    {
+                        waiter = null;
+                        finished = true;
+                        return;
+                    }
+                }
+                finally {
+                    lock.unlock();
+                }
+            }
+        }
+        finally {
+            if (!finished)
+            {
+                lock.lock();
+                try {
+                    waiter = null;
+                }
+                finally {
+                    lock.unlock();
+                }
+            }
+        }
+    }
+
+    private void run()
+    {
+        runLock.lock();
+        try {
+            action.run();
+        }
+        finally {
+            runLock.unlock();
+        }
+    }
+}
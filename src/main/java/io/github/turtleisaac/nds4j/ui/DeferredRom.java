@@ -0,0 +1,41 @@
+package io.github.turtleisaac.nds4j.ui;
+
+import io.github.turtleisaac.nds4j.NintendoDsRom;
+
+import java.io.Closeable;
+import java.nio.ByteBuffer;
+
+/**
+ * A Nintendo DS ROM whose file contents are only brought onto the heap when they are actually used
+ */
+interface DeferredRom extends Closeable
+{
+    /**
+     * Gets the game code stored in the ROM header
+     * @return a <code>String</code>
+     */
+    String getGameCode();
+
+    /**
+     * Gets a read-only view of the contents of the file with the given path
+     * @param pathWithinRom a <code>String</code> containing the path of a file within the ROM's filesystem
+     * @return a read-only <code>ByteBuffer</code>
+     * @throws IllegalArgumentException if there is no such file
+     */
+    ByteBuffer getFileView(String pathWithinRom);
+
+    /**
+     * Gets the contents of the file with the given path so that they can be modified in place.
+     * Repeated calls for the same file return the same array.
+     * @param pathWithinRom a <code>String</code> containing the path of a file within the ROM's filesystem
+     * @return a <code>byte[]</code>
+     * @throws IllegalArgumentException if there is no such file
+     */
+    byte[] getFileForWriting(String pathWithinRom);
+
+    /**
+     * Loads the entire ROM onto the heap as a <code>NintendoDsRom</code>, with all modifications applied
+     * @return a <code>NintendoDsRom</code>
+     */
+    NintendoDsRom toNintendoDsRom();
+}
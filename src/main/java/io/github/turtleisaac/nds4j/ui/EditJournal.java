@@ -0,0 +1,562 @@
+package io.github.turtleisaac.nds4j.ui;
+
+import java.util.*;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Function;
+
+/**
+ * Records edits made to the files of the loaded ROM so that they can be undone, redone and replayed, without ever
+ * copying a whole file.
+ * <p>Each edit is stored as a byte-range delta (the bytes a range of a file held before and after it changed), with the
+ * unchanged bytes at either end of the range trimmed off. The deltas are packed into fixed size chunks, and once they
+ * take up more than the memory limit, the oldest steps are forgotten and can no longer be undone.</p>
+ * <p>Every edit made outside a transaction is its own undo step, while every edit made inside a transaction is undone
+ * and redone together with the rest of the transaction. Making an edit after undoing discards the steps which could
+ * have been redone.</p>
+ * <p>The journal keeps the <code>Tool</code>'s modified files in sync: edited files are marked as modified, and a file
+ * which is undone or redone back to the state it was last saved in is no longer counted as an unsaved change.</p>
+ * <p>Files can only be edited in place, so an edit must lie entirely within the file. All methods are thread-safe.</p>
+ */
+public class EditJournal
+{
+    private static final int chunkSize = 64 * 1024;
+    private static final long defaultMemoryLimit = 16 * 1024 * 1024;
+
+    private final Tool tool;
+    private final DeltaLog log = new DeltaLog();
+    private final ArrayDeque<Step> undoSteps = new ArrayDeque<>();
+    private final ArrayDeque<Step> redoSteps = new ArrayDeque<>();
+    private final Map<String, Long> fileStates = new HashMap<>();
+    private final Map<String, Long> savedStates = new HashMap<>();
+    private final List<EditListener> listeners = new CopyOnWriteArrayList<>();
+
+    private long memoryLimit = defaultMemoryLimit;
+    private long nextStepId = 1;
+    private long droppedSteps;
+    private Transaction transaction;
+
+    /**
+     * Used to be notified whenever the contents of files change through this journal
+     */
+    public interface EditListener
+    {
+        /**
+         * Called after an edit, undo or redo, on the thread which made it
+         * @param pathsWithinRom an unmodifiable <code>Set</code><<code>String</code>> of the paths of every file
+         *                       whose contents changed
+         * @param source whether the files changed because of an <code>EDIT</code>, <code>UNDO</code> or <code>REDO</code>
+         */
+        void filesChanged(Set<String> pathsWithinRom, Source source);
+    }
+
+    /**
+     * Used to indicate why the contents of files changed
+     */
+    public enum Source
+    {
+        EDIT,
+        UNDO,
+        REDO
+    }
+
+    /**
+     * A group of edits which are undone and redone together, as started by <code>beginTransaction()</code>
+     */
+    public class Transaction implements AutoCloseable
+    {
+        private final Step step;
+        private int depth = 1;
+
+        private Transaction(Step step)
+        {
+            this.step = step;
+        }
+
+        /**
+         * Ends this transaction, after which its edits are undone as a single step. If this transaction was started
+         * inside another one, its edits are instead part of the outer transaction.
+         */
+        @Override
+        public void close()
+        {
+            synchronized (EditJournal.this)
+            {
+                if (transaction != this)
+                    return;
+                if (--depth > 0)
+                    return;
+
+                transaction = null;
+                if (!step.deltas.isEmpty())
+                    push(step);
+            }
+        }
+    }
+
+    /**
+     * A single byte-range change to a file
+     */
+    private record Delta(String pathWithinRom, int offset, int length, long position)
+    {
+        // the old bytes are stored at position, followed by the new bytes
+    }
+
+    /**
+     * A single undo step, which is either one edit or every edit made in a transaction
+     */
+    private static final class Step
+    {
+        private final long id;
+        private final String description;
+        private final List<Delta> deltas = new ArrayList<>();
+        // the state each file was in before this step, so that undoing it can restore the file's state
+        private final Map<String, Long> previousStates = new HashMap<>();
+        private long start = -1;
+        private long end;
+
+        private Step(long id, String description)
+        {
+            this.id = id;
+            this.description = description;
+        }
+    }
+
+    /**
+     * Creates a new <code>EditJournal</code> for the files of the ROM loaded by a <code>Tool</code>
+     * @param tool the <code>Tool</code> whose files are edited
+     */
+    EditJournal(Tool tool)
+    {
+        this.tool = tool;
+    }
+
+    /**
+     * Sets the most memory the recorded deltas may take up. Once they take up more than this, the oldest steps are
+     * forgotten, although the most recent step is always kept no matter how large it is. The default is 16 MiB.
+     * @param bytes a <code>long</code> containing the limit in bytes
+     * @return a reference to this object
+     */
+    public synchronized EditJournal setMemoryLimit(long bytes)
+    {
+        if (bytes <= 0)
+            throw new IllegalArgumentException("The memory limit must be positive");
+        memoryLimit = bytes;
+        enforceMemoryLimit();
+        return this;
+    }
+
+    /**
+     * Writes bytes into a file of the loaded ROM in place, recording the change so that it can be undone
+     * @param pathWithinRom a <code>String</code> containing the path of a file within the ROM's filesystem
+     * @param offset an <code>int</code> containing the offset within the file to start writing at
+     * @param data a <code>byte[]</code> containing the bytes to write
+     * @throws IllegalArgumentException if the bytes don't fit within the file
+     */
+    public void edit(String pathWithinRom, int offset, byte[] data)
+    {
+        Set<String> changed;
+        synchronized (this)
+        {
+            byte[] file = tool.getFileForWriting(pathWithinRom);
+            checkRange(file, pathWithinRom, offset, data.length);
+            if (!record(pathWithinRom, offset, Arrays.copyOfRange(file, offset, offset + data.length), data))
+                return;
+            System.arraycopy(data, 0, file, offset, data.length);
+            changed = Set.of(pathWithinRom);
+        }
+        notifyListeners(changed, Source.EDIT);
+    }
+
+    /**
+     * Records a change which has already been made in place to a file of the loaded ROM, so that it can be undone
+     * <p>This is meant for code which edits the array returned by <code>Tool.getFileForWriting()</code> directly,
+     * such as a parser which writes a whole structure back at once. Only the bytes which actually differ from
+     * <code>previous</code> are stored, so passing a larger range than was really edited is cheap.</p>
+     * @param pathWithinRom a <code>String</code> containing the path of a file within the ROM's filesystem
+     * @param offset an <code>int</code> containing the offset within the file the range starts at
+     * @param previous a <code>byte[]</code> containing what the range held before it was edited
+     * @throws IllegalArgumentException if the range doesn't fit within the file
+     */
+    public void recordEdit(String pathWithinRom, int offset, byte[] previous)
+    {
+        synchronized (this)
+        {
+            byte[] file = tool.getFileForWriting(pathWithinRom);
+            checkRange(file, pathWithinRom, offset, previous.length);
+            if (!record(pathWithinRom, offset, previous, Arrays.copyOfRange(file, offset, offset + previous.length)))
+                return;
+        }
+        notifyListeners(Set.of(pathWithinRom), Source.EDIT);
+    }
+
+    /**
+     * Starts a transaction, so that every edit made until it is closed is undone and redone as a single step.
+     * Only one transaction can be open at a time, and starting one while another is open joins the open one.
+     * <pre>
+     * try (EditJournal.Transaction transaction = journal.beginTransaction("Change trainer party")) {
+     *     ...
+     * }
+     * </pre>
+     * @param description a <code>String</code> describing the edits, such as to display in the Edit menu
+     * @return a <code>Transaction</code> which must be closed once the edits are done
+     */
+    public synchronized Transaction beginTransaction(String description)
+    {
+        if (transaction != null)
+        {
+            transaction.depth++;
+            return transaction;
+        }
+        transaction = new Transaction(new Step(nextStepId++, description));
+        return transaction;
+    }
+
+    private static void checkRange(byte[] file, String pathWithinRom, int offset, int length)
+    {
+        if (offset < 0 || offset > file.length - length)
+            throw new IllegalArgumentException("Edit of " + length + " bytes at offset " + offset + " is outside of "
+                    + pathWithinRom + ", which is " + file.length + " bytes long");
+    }
+
+    private boolean record(String pathWithinRom, int offset, byte[] before, byte[] after)
+    {
+        int start = Arrays.mismatch(before, after);
+        if (start == -1)
+            return false;
+        int end = before.length;
+        while (end > start && before[end - 1] == after[end - 1])
+            end--;
+
+        Step step = transaction != null ? transaction.step : new Step(nextStepId++, null);
+        if (transaction == null || step.deltas.isEmpty())
+        {
+            // a new step discards everything which could have been redone, along with its deltas
+            if (!redoSteps.isEmpty())
+            {
+                log.truncate(undoSteps.isEmpty() ? log.start : undoSteps.peekLast().end);
+                redoSteps.clear();
+            }
+        }
+
+        int length = end - start;
+        long position = log.append(before, start, length);
+        log.append(after, start, length);
+        if (step.start == -1)
+            step.start = position;
+        step.end = log.end;
+        step.deltas.add(new Delta(pathWithinRom, offset + start, length, position));
+        step.previousStates.putIfAbsent(pathWithinRom, fileStates.getOrDefault(pathWithinRom, 0L));
+        fileStates.put(pathWithinRom, step.id);
+        tool.markModified(pathWithinRom);
+
+        if (transaction == null)
+            push(step);
+        return true;
+    }
+
+    private void push(Step step)
+    {
+        undoSteps.addLast(step);
+        enforceMemoryLimit();
+    }
+
+    private void enforceMemoryLimit()
+    {
+        while (undoSteps.size() > 1 && log.end - log.start > memoryLimit)
+        {
+            undoSteps.removeFirst();
+            droppedSteps++;
+            log.release(undoSteps.peekFirst().start);
+        }
+    }
+
+    /**
+     * Undoes the most recent step which hasn't been undone yet
+     * @return a <code>boolean</code> containing whether there was anything to undo
+     * @throws IllegalStateException if a transaction is open
+     */
+    public boolean undo()
+    {
+        Set<String> changed;
+        synchronized (this)
+        {
+            checkNoTransaction();
+            Step step = undoSteps.pollLast();
+            if (step == null)
+                return false;
+
+            ListIterator<Delta> iterator = step.deltas.listIterator(step.deltas.size());
+            while (iterator.hasPrevious())
+                apply(iterator.previous(), false);
+            for (Map.Entry<String, Long> entry : step.previousStates.entrySet())
+                setState(entry.getKey(), entry.getValue());
+
+            redoSteps.addLast(step);
+            changed = Collections.unmodifiableSet(step.previousStates.keySet());
+        }
+        notifyListeners(changed, Source.UNDO);
+        return true;
+    }
+
+    /**
+     * Redoes the most recently undone step
+     * @return a <code>boolean</code> containing whether there was anything to redo
+     * @throws IllegalStateException if a transaction is open
+     */
+    public boolean redo()
+    {
+        Set<String> changed;
+        synchronized (this)
+        {
+            checkNoTransaction();
+            Step step = redoSteps.pollLast();
+            if (step == null)
+                return false;
+
+            for (Delta delta : step.deltas)
+                apply(delta, true);
+            for (String pathWithinRom : step.previousStates.keySet())
+                setState(pathWithinRom, step.id);
+
+            undoSteps.addLast(step);
+            changed = Collections.unmodifiableSet(step.previousStates.keySet());
+        }
+        notifyListeners(changed, Source.REDO);
+        return true;
+    }
+
+    private void checkNoTransaction()
+    {
+        if (transaction != null)
+            throw new IllegalStateException("Cannot undo or redo while a transaction is open");
+    }
+
+    private void apply(Delta delta, boolean forwards)
+    {
+        byte[] file = tool.getFileForWriting(delta.pathWithinRom());
+        log.read(delta.position() + (forwards ? delta.length() : 0), file, delta.offset(), delta.length());
+    }
+
+    private void setState(String pathWithinRom, long state)
+    {
+        fileStates.put(pathWithinRom, state);
+        if (state == savedStates.getOrDefault(pathWithinRom, 0L))
+            tool.clearModified(pathWithinRom);
+        else
+            tool.markModified(pathWithinRom);
+    }
+
+    /**
+     * Records that a file has been saved in its current state, so that undoing or redoing back to this state doesn't
+     * count as an unsaved change. The <code>Tool</code> calls this whenever it writes a file to the project.
+     * @param pathWithinRom a <code>String</code> containing the path of a file within the ROM's filesystem
+     */
+    protected synchronized void markSaved(String pathWithinRom)
+    {
+        savedStates.put(pathWithinRom, fileStates.getOrDefault(pathWithinRom, 0L));
+    }
+
+    /**
+     * Applies every step which hasn't been undone, oldest first, to another copy of the files, such as a freshly
+     * loaded copy of the same ROM. Steps which were forgotten because of the memory limit can't be replayed.
+     * @param files a <code>Function</code> which returns the contents of the file with the given path to apply the
+     *              edits to in place
+     * @return an <code>int</code> containing how many steps were replayed
+     */
+    public synchronized int replay(Function<String, byte[]> files)
+    {
+        for (Step step : undoSteps)
+        {
+            for (Delta delta : step.deltas)
+                log.read(delta.position() + delta.length(), files.apply(delta.pathWithinRom()), delta.offset(), delta.length());
+        }
+        return undoSteps.size();
+    }
+
+    /**
+     * Forgets every step, so nothing can be undone or redone. This does not change any file.
+     */
+    public synchronized void clear()
+    {
+        checkNoTransaction();
+        undoSteps.clear();
+        redoSteps.clear();
+        log.truncate(log.start);
+        log.release(log.end);
+        droppedSteps = 0;
+    }
+
+    /**
+     * Forgets every step along with the state every file was last saved in, for when a different ROM is loaded
+     */
+    synchronized void reset()
+    {
+        transaction = null;
+        clear();
+        fileStates.clear();
+        savedStates.clear();
+    }
+
+    /**
+     * Gets whether there is a step which can be undone
+     * @return a <code>boolean</code>
+     */
+    public synchronized boolean canUndo()
+    {
+        return !undoSteps.isEmpty();
+    }
+
+    /**
+     * Gets whether there is a step which can be redone
+     * @return a <code>boolean</code>
+     */
+    public synchronized boolean canRedo()
+    {
+        return !redoSteps.isEmpty();
+    }
+
+    /**
+     * Gets the description of the step which would be undone next
+     * @return a <code>String</code> wrapped in an <code>Optional</code>, or <code>Optional.empty()</code> if there is
+     * nothing to undo or the step was an edit made outside a transaction
+     */
+    public synchronized Optional<String> getUndoDescription()
+    {
+        return undoSteps.isEmpty() ? Optional.empty() : Optional.ofNullable(undoSteps.peekLast().description);
+    }
+
+    /**
+     * Gets the description of the step which would be redone next
+     * @return a <code>String</code> wrapped in an <code>Optional</code>, or <code>Optional.empty()</code> if there is
+     * nothing to redo or the step was an edit made outside a transaction
+     */
+    public synchronized Optional<String> getRedoDescription()
+    {
+        return redoSteps.isEmpty() ? Optional.empty() : Optional.ofNullable(redoSteps.peekLast().description);
+    }
+
+    /**
+     * Gets whether any file edited through this journal is in a different state than it was last saved in
+     * @return a <code>boolean</code>
+     */
+    public synchronized boolean hasUnsavedEdits()
+    {
+        for (Map.Entry<String, Long> entry : fileStates.entrySet())
+        {
+            if (!entry.getValue().equals(savedStates.getOrDefault(entry.getKey(), 0L)))
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * Gets how many bytes the recorded deltas currently take up
+     * @return a <code>long</code>
+     */
+    public synchronized long getMemoryUsage()
+    {
+        return log.end - log.start;
+    }
+
+    /**
+     * Gets how many of the oldest steps have been forgotten because of the memory limit
+     * @return a <code>long</code>
+     */
+    public synchronized long getDroppedStepCount()
+    {
+        return droppedSteps;
+    }
+
+    /**
+     * Adds a listener which is notified whenever the contents of files change through this journal, such as for a
+     * panel to reload what it displays after an undo
+     * @param listener an <code>EditListener</code>
+     */
+    public void addEditListener(EditListener listener)
+    {
+        listeners.add(listener);
+    }
+
+    /**
+     * Removes a listener added by <code>addEditListener()</code>
+     * @param listener an <code>EditListener</code>
+     */
+    public void removeEditListener(EditListener listener)
+    {
+        listeners.remove(listener);
+    }
+
+    private void notifyListeners(Set<String> pathsWithinRom, Source source)
+    {
+        for (EditListener listener : listeners)
+        {
+            try {
+                listener.filesChanged(pathsWithinRom, source);
+            }
+            catch (RuntimeException e) {
+                System.err.println("[WARNING]: Edit listener failed: " + e);
+            }
+        }
+    }
+
+    /**
+     * An append-only log of bytes stored in fixed size chunks, addressed by the position they were appended at.
+     * Bytes can be released from the start and truncated from the end, and chunks which no longer hold any live bytes
+     * are dropped.
+     */
+    private static final class DeltaLog
+    {
+        private final List<byte[]> chunks = new ArrayList<>();
+        private long firstChunk; // the chunk number of chunks.get(0)
+        private long start;
+        private long end;
+
+        private long append(byte[] data, int offset, int length)
+        {
+            long position = end;
+            while (length > 0)
+            {
+                int index = (int) (end / chunkSize - firstChunk);
+                if (index == chunks.size())
+                    chunks.add(new byte[chunkSize]);
+                int within = (int) (end % chunkSize);
+                int count = Math.min(length, chunkSize - within);
+                System.arraycopy(data, offset, chunks.get(index), within, count);
+                offset += count;
+                length -= count;
+                end += count;
+            }
+            return position;
+        }
+
+        private void read(long position, byte[] target, int offset, int length)
+        {
+            while (length > 0)
+            {
+                int within = (int) (position % chunkSize);
+                int count = Math.min(length, chunkSize - within);
+                System.arraycopy(chunks.get((int) (position / chunkSize - firstChunk)), within, target, offset, count);
+                offset += count;
+                length -= count;
+                position += count;
+            }
+        }
+
+        private void release(long newStart)
+        {
+            start = newStart;
+            int unused = (int) Math.min(start / chunkSize - firstChunk, chunks.size());
+            chunks.subList(0, unused).clear();
+            firstChunk = start / chunkSize;
+        }
+
+        private void truncate(long newEnd)
+        {
+            end = newEnd;
+            int used = (int) Math.max(0, (end + chunkSize - 1) / chunkSize - firstChunk);
+            if (used < chunks.size())
+                chunks.subList(used, chunks.size()).clear();
+        }
+    }
+}
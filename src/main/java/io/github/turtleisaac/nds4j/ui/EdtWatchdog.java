@@ -0,0 +1,332 @@
+package io.github.turtleisaac.nds4j.ui;
+
+import java.awt.*;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.*;
+import java.util.List;
+
+/**
+ * Watches the event dispatch thread for events which take too long to dispatch, which is what users see as the
+ * tool window freezing.
+ * <p>The watchdog replaces the event queue with one which timestamps every dispatch. A background thread checks on
+ * the dispatch in progress, and once it has run longer than the threshold, captures the event dispatch thread's stack
+ * along with whatever operations the <code>Tool</code> has in progress. The most recent stalls are kept in a ring
+ * buffer, which can be viewed from the Debug menu of the tool window and exported to a file.</p>
+ * <p>A modal dialog runs a nested event loop from inside a dispatch, so while one is open it is the events dispatched
+ * by the nested loop which are timed rather than the dispatch which opened it, and nothing is timed while the nested
+ * loop is waiting for events.</p>
+ */
+public class EdtWatchdog
+{
+    private static final int capacity = 100;
+    private static final DateTimeFormatter timeFormatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss.SSS").withZone(ZoneId.systemDefault());
+
+    private final Tool tool;
+    private final Duration threshold;
+    private final ArrayDeque<StallEvent> stallEvents = new ArrayDeque<>();
+
+    private volatile Dispatch current;
+    private Thread thread;
+
+    /**
+     * A single dispatch which took longer than the threshold
+     */
+    public static class StallEvent
+    {
+        private final Instant time;
+        private final String event;
+        private final StackTraceElement[] stackTrace;
+        private final Map<String, String> operations;
+        private volatile Duration duration;
+        private volatile boolean finished;
+
+        private StallEvent(Instant time, String event, StackTraceElement[] stackTrace, Map<String, String> operations, Duration duration)
+        {
+            this.time = time;
+            this.event = event;
+            this.stackTrace = stackTrace;
+            this.operations = operations;
+            this.duration = duration;
+        }
+
+        /**
+         * Gets when the stalled dispatch started
+         * @return an <code>Instant</code>
+         */
+        public Instant getTime()
+        {
+            return time;
+        }
+
+        /**
+         * Gets a description of the event being dispatched
+         * @return a <code>String</code>
+         */
+        public String getEvent()
+        {
+            return event;
+        }
+
+        /**
+         * Gets the stack of the event dispatch thread at the moment the stall was detected
+         * @return a <code>StackTraceElement[]</code>
+         */
+        public StackTraceElement[] getStackTrace()
+        {
+            return stackTrace.clone();
+        }
+
+        /**
+         * Gets the operations the <code>Tool</code> had in progress when the stall was detected
+         * @return an unmodifiable <code>Map</code><<code>String</code>, <code>String</code>> of thread names to the
+         * description of the operation in progress on that thread
+         */
+        public Map<String, String> getOperations()
+        {
+            return operations;
+        }
+
+        /**
+         * Gets how long the dispatch took, or how long it has taken so far if it hasn't finished yet
+         * @return a <code>Duration</code>
+         */
+        public Duration getDuration()
+        {
+            return duration;
+        }
+
+        /**
+         * Gets whether the stalled dispatch has finished
+         * @return a <code>boolean</code>
+         */
+        public boolean isFinished()
+        {
+            return finished;
+        }
+
+        @Override
+        public String toString()
+        {
+            StringBuilder sb = new StringBuilder();
+            sb.append(timeFormatter.format(time)).append(" - ").append(event).append(" took ")
+                    .append(duration.toMillis()).append(" ms").append(finished ? "" : " (still running)").append('\n');
+            if (operations.isEmpty())
+                sb.append("  No operations in progress\n");
+            for (Map.Entry<String, String> operation : operations.entrySet())
+                sb.append("  Operation on \"").append(operation.getKey()).append("\": ").append(operation.getValue()).append('\n');
+            for (StackTraceElement element : stackTrace)
+                sb.append("\tat ").append(element).append('\n');
+            return sb.toString();
+        }
+    }
+
+    /**
+     * A dispatch in progress on the event dispatch thread
+     */
+    private static final class Dispatch
+    {
+        private final AWTEvent event;
+        private final Thread thread;
+        private volatile long start;
+        private volatile StallEvent stallEvent;
+
+        private Dispatch(AWTEvent event, Thread thread)
+        {
+            this.event = event;
+            this.thread = thread;
+            this.start = System.nanoTime();
+        }
+    }
+
+    private final class MonitoredEventQueue extends EventQueue
+    {
+        // only touched on the event dispatch thread
+        private final ArrayDeque<Dispatch> dispatches = new ArrayDeque<>();
+
+        @Override
+        protected void dispatchEvent(AWTEvent event)
+        {
+            Dispatch dispatch = new Dispatch(event, Thread.currentThread());
+            dispatches.push(dispatch);
+            current = dispatch;
+            try {
+                super.dispatchEvent(event);
+            }
+            finally {
+                dispatches.pop();
+                finish(dispatch);
+
+                // the dispatch which ran a nested loop only counts as busy again from now on
+                Dispatch outer = dispatches.peek();
+                if (outer != null)
+                    outer.start = System.nanoTime();
+                current = outer;
+            }
+        }
+
+        @Override
+        public AWTEvent getNextEvent() throws InterruptedException
+        {
+            Dispatch outer = dispatches.peek();
+            if (outer == null)
+                return super.getNextEvent();
+
+            // a nested loop waiting for its next event, such as an idle modal dialog, isn't keeping anything busy
+            current = null;
+            try {
+                return super.getNextEvent();
+            }
+            finally {
+                outer.start = System.nanoTime();
+                current = outer;
+            }
+        }
+    }
+
+    /**
+     * Creates a new <code>EdtWatchdog</code>. Nothing is watched until <code>start()</code> is called.
+     * @param tool the <code>Tool</code> whose operations are reported with each stall
+     * @param threshold a <code>Duration</code> containing how long a dispatch may take before it counts as a stall
+     */
+    EdtWatchdog(Tool tool, Duration threshold)
+    {
+        this.tool = tool;
+        this.threshold = threshold;
+    }
+
+    /**
+     * Starts watching the event dispatch thread
+     */
+    synchronized void start()
+    {
+        if (thread != null)
+            return;
+
+        Toolkit.getDefaultToolkit().getSystemEventQueue().push(new MonitoredEventQueue());
+        thread = new Thread(this::watch, "edt-watchdog");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private void watch()
+    {
+        long thresholdNanos = threshold.toNanos();
+        long interval = Math.max(10, threshold.toMillis() / 4);
+        while (true)
+        {
+            try {
+                Thread.sleep(interval);
+            }
+            catch (InterruptedException e) {
+                return;
+            }
+
+            Dispatch dispatch = current;
+            if (dispatch == null)
+                continue;
+
+            long elapsed = System.nanoTime() - dispatch.start;
+            if (dispatch.stallEvent == null && elapsed > thresholdNanos)
+                capture(dispatch, elapsed);
+            else if (dispatch.stallEvent != null)
+                dispatch.stallEvent.duration = Duration.ofNanos(elapsed);
+        }
+    }
+
+    private void capture(Dispatch dispatch, long elapsed)
+    {
+        StackTraceElement[] stackTrace = dispatch.thread.getStackTrace();
+        // the dispatch may have finished while the stack was being captured, in which case the stack is of something else
+        if (current != dispatch)
+            return;
+
+        Instant time = Instant.now().minusNanos(elapsed);
+        StallEvent stallEvent = new StallEvent(time, describe(dispatch.event), stackTrace, tool.getCurrentOperations(), Duration.ofNanos(elapsed));
+        dispatch.stallEvent = stallEvent;
+        synchronized (stallEvents)
+        {
+            if (stallEvents.size() == capacity)
+                stallEvents.removeFirst();
+            stallEvents.addLast(stallEvent);
+        }
+        tool.getMetrics().counter("edt.stalls").increment();
+
+        // the dispatch may also have finished just before its stall was recorded, so nothing else will finish it
+        if (current != dispatch)
+            stallEvent.finished = true;
+    }
+
+    private void finish(Dispatch dispatch)
+    {
+        StallEvent stallEvent = dispatch.stallEvent;
+        if (stallEvent == null)
+            return;
+
+        Duration duration = Duration.ofNanos(System.nanoTime() - dispatch.start);
+        stallEvent.duration = duration;
+        stallEvent.finished = true;
+        tool.getMetrics().timer("edt.stall").record(duration);
+    }
+
+    private static String describe(AWTEvent event)
+    {
+        Object source = event.getSource();
+        String sourceName = source instanceof Component component && component.getName() != null
+                ? component.getName()
+                : source == null ? "null" : source.getClass().getName();
+        return event.getClass().getSimpleName() + " (" + event.paramString() + ") on " + sourceName;
+    }
+
+    /**
+     * Gets the stalls which have been detected, oldest first. Only the most recent 100 are kept.
+     * @return a <code>List</code><<code>StallEvent</code>>
+     */
+    public List<StallEvent> getStallEvents()
+    {
+        synchronized (stallEvents)
+        {
+            return new ArrayList<>(stallEvents);
+        }
+    }
+
+    /**
+     * Forgets every stall which has been detected so far
+     */
+    public void clearStallEvents()
+    {
+        synchronized (stallEvents)
+        {
+            stallEvents.clear();
+        }
+    }
+
+    /**
+     * Gets how long a dispatch may take before it counts as a stall
+     * @return a <code>Duration</code>
+     */
+    public Duration getThreshold()
+    {
+        return threshold;
+    }
+
+    /**
+     * Writes every stall which has been detected so far to a text file, each with its stack trace
+     * @param target a <code>Path</code> to the file to write
+     * @throws IOException if the file can't be written
+     */
+    public void exportStallEvents(Path target) throws IOException
+    {
+        List<StallEvent> events = getStallEvents();
+        StringBuilder sb = new StringBuilder();
+        sb.append(events.size()).append(" event dispatch thread stalls longer than ").append(threshold.toMillis()).append(" ms\n\n");
+        for (StallEvent event : events)
+            sb.append(event).append('\n');
+        FileUtils.writeFileAtomically(target, sb.toString().getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,258 @@
+package io.github.turtleisaac.nds4j.ui;
+
+import javax.swing.*;
+import java.util.*;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Lets the panels of a <code>Tool</code> tell each other about changes to the data they share, without each one
+ * refreshing for every single change.
+ * <p>Events are published to a <code>Topic</code> from any thread. Rather than being delivered right away, the events
+ * published to each topic over the course of a frame (about 16 ms, or until the event dispatch thread finishes what it
+ * was doing, if that takes longer) are collected into a single batch, in the order they were published, and each
+ * subscriber receives that batch at once. A bulk edit which publishes an event for each of 5,000 entries therefore
+ * causes one refresh rather than 5,000.</p>
+ * <p>Subscribers which only update Swing components receive their batches on the event dispatch thread. Subscribers
+ * which need to do heavy work first, such as rebuilding a search index, can have that work run on the bus's own
+ * background thread, and only the result is handed to the event dispatch thread. Every subscriber's updates for one
+ * frame are applied in a single event, and batches are always delivered in the order they were published.</p>
+ * <pre>
+ * EventBus.Topic&lt;Integer&gt; trainerChanged = new EventBus.Topic&lt;&gt;("trainerChanged");
+ * eventBus.subscribe(trainerChanged, ids -&gt; rebuildIndex(ids), index -&gt; table.setModel(index));
+ * eventBus.publish(trainerChanged, trainerId);
+ * </pre>
+ */
+public class EventBus
+{
+    private static final long frameNanos = TimeUnit.MILLISECONDS.toNanos(16);
+    private static final AtomicInteger busNumber = new AtomicInteger();
+
+    private final MetricsRegistry metrics;
+    private final ScheduledExecutorService executor;
+    private final Map<Topic<?>, List<Subscriber<?, ?>>> subscribers = new ConcurrentHashMap<>();
+
+    private Map<Topic<?>, List<Object>> pending = new LinkedHashMap<>();
+    private boolean flushScheduled;
+    private boolean closed;
+
+    /**
+     * Identifies a kind of event, along with the type of the events published to it. Topics are compared by identity,
+     * so the same <code>Topic</code> object has to be shared between publishers and subscribers.
+     * @param <T> the type of the events published to this topic
+     */
+    public static final class Topic<T>
+    {
+        private final String name;
+
+        /**
+         * Creates a new <code>Topic</code>
+         * @param name a <code>String</code> describing the topic, which is only used in error messages and metrics
+         */
+        public Topic(String name)
+        {
+            this.name = name;
+        }
+
+        /**
+         * Gets the name of this <code>Topic</code>
+         * @return a <code>String</code>
+         */
+        public String getName()
+        {
+            return name;
+        }
+
+        @Override
+        public String toString()
+        {
+            return name;
+        }
+    }
+
+    /**
+     * A subscription to a <code>Topic</code>, which stops receiving events once it is closed
+     */
+    public interface Subscription extends AutoCloseable
+    {
+        /**
+         * Stops delivering events to this subscription. Batches which are already being delivered may still arrive.
+         */
+        @Override
+        void close();
+    }
+
+    private record Subscriber<T, R>(Topic<T> topic, Function<List<T>, R> background, Consumer<R> onEdt)
+    {
+        /**
+         * Runs the background part of this subscriber, returning the update to apply on the event dispatch thread
+         */
+        private Runnable prepare(List<Object> events)
+        {
+            @SuppressWarnings("unchecked")
+            List<T> batch = (List<T>) Collections.unmodifiableList(events);
+            R result = background.apply(batch);
+            return () -> onEdt.accept(result);
+        }
+    }
+
+    /**
+     * Creates a new <code>EventBus</code>
+     * @param metrics the <code>MetricsRegistry</code> to record how many events are published and delivered in
+     */
+    EventBus(MetricsRegistry metrics)
+    {
+        this.metrics = metrics;
+        String threadName = "event-bus-" + busNumber.incrementAndGet();
+        this.executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, threadName);
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Publishes an event. It is delivered to the topic's subscribers along with every other event published to the
+     * topic during the same frame. This may be called from any thread, and never blocks on subscribers. Events
+     * published once the bus has been closed are dropped.
+     * @param topic the <code>Topic</code> to publish to
+     * @param event the event
+     * @param <T> the type of the events published to the topic
+     */
+    public <T> void publish(Topic<T> topic, T event)
+    {
+        metrics.counter("published").increment();
+        synchronized (this)
+        {
+            if (closed)
+                return;
+            pending.computeIfAbsent(topic, ignored -> new ArrayList<>()).add(event);
+            if (flushScheduled)
+                return;
+            flushScheduled = true;
+            // passing through the event dispatch thread first means that a bulk edit made in a single event on it is
+            // never split across two batches, no matter how long it takes. This is scheduled while still holding the
+            // lock, so that close() can't shut the executor down in between.
+            executor.schedule(() -> SwingUtilities.invokeLater(this::startFlush), frameNanos, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private void startFlush()
+    {
+        try {
+            executor.execute(this::flush);
+        }
+        catch (RejectedExecutionException e) {
+            // closed while the batch was on its way through the event dispatch thread
+        }
+    }
+
+    /**
+     * Subscribes to a topic with a subscriber which only updates Swing components
+     * @param topic the <code>Topic</code> to subscribe to
+     * @param onEdt a <code>Consumer</code> which is given each batch of events on the event dispatch thread
+     * @param <T> the type of the events published to the topic
+     * @return a <code>Subscription</code>
+     */
+    public <T> Subscription subscribe(Topic<T> topic, Consumer<List<T>> onEdt)
+    {
+        return subscribe(topic, Function.identity(), onEdt);
+    }
+
+    /**
+     * Subscribes to a topic with a subscriber which does heavy work with each batch of events before updating Swing
+     * components with the result
+     * @param topic the <code>Topic</code> to subscribe to
+     * @param background a <code>Function</code> which is given each batch of events on the bus's background thread. This
+     *                   must not touch any Swing components.
+     * @param onEdt a <code>Consumer</code> which is given the result of <code>background</code> on the event dispatch thread
+     * @param <T> the type of the events published to the topic
+     * @param <R> the type of the result of the background work
+     * @return a <code>Subscription</code>
+     */
+    public <T, R> Subscription subscribe(Topic<T> topic, Function<List<T>, R> background, Consumer<R> onEdt)
+    {
+        Subscriber<T, R> subscriber = new Subscriber<>(topic, background, onEdt);
+        List<Subscriber<?, ?>> topicSubscribers = subscribers.computeIfAbsent(topic, ignored -> new CopyOnWriteArrayList<>());
+        topicSubscribers.add(subscriber);
+        return () -> topicSubscribers.remove(subscriber);
+    }
+
+    /**
+     * Delivers every batch which is waiting right away instead of at the end of the frame, and waits until they have
+     * been handed to the event dispatch thread. This must not be called on the event dispatch thread.
+     * @throws InterruptedException if the calling thread is interrupted while waiting
+     */
+    public void flushNow() throws InterruptedException
+    {
+        try {
+            executor.submit(this::flush).get();
+        }
+        catch (RejectedExecutionException e) {
+            // closed, so there is nothing left to deliver
+        }
+        catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    /**
+     * Stops this bus's background thread once its session has ended. Batches which are waiting are dropped.
+     */
+    void close()
+    {
+        synchronized (this)
+        {
+            closed = true;
+            pending = new LinkedHashMap<>();
+        }
+        executor.shutdownNow();
+    }
+
+    /**
+     * Delivers every waiting batch. Runs on the bus's background thread.
+     */
+    private void flush()
+    {
+        Map<Topic<?>, List<Object>> batches;
+        synchronized (this)
+        {
+            batches = pending;
+            pending = new LinkedHashMap<>();
+            flushScheduled = false;
+        }
+        if (batches.isEmpty())
+            return;
+
+        long start = System.nanoTime();
+        List<Runnable> updates = new ArrayList<>();
+        for (Map.Entry<Topic<?>, List<Object>> batch : batches.entrySet())
+        {
+            for (Subscriber<?, ?> subscriber : subscribers.getOrDefault(batch.getKey(), List.of()))
+            {
+                try {
+                    Runnable update = subscriber.prepare(batch.getValue());
+                    updates.add(() -> {
+                        try {
+                            update.run();
+                        }
+                        catch (RuntimeException e) {
+                            System.err.println("[ERROR]: A subscriber to \"" + subscriber.topic() + "\" failed: " + e);
+                        }
+                    });
+                }
+                catch (RuntimeException e) {
+                    System.err.println("[ERROR]: A subscriber to \"" + subscriber.topic() + "\" failed: " + e);
+                }
+            }
+            metrics.counter("batches").increment();
+        }
+        metrics.timer("flush").recordSince(start);
+
+        if (!updates.isEmpty())
+            SwingUtilities.invokeLater(() -> updates.forEach(Runnable::run));
+    }
+}
@@ -9,10 +9,18 @@ import javax.swing.filechooser.FileView;
 import java.awt.*;
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.DosFileAttributeView;
+import java.nio.file.attribute.PosixFileAttributeView;
 import java.util.Arrays;
-import java.util.List;
 import java.util.Objects;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.stream.Stream;
 
 /**
  * Contains data and methods which assist in the disk access operations of a <code>Tool</code>
@@ -37,6 +45,8 @@ public class FileUtils
     protected static final ExtensionFilter romFilter = new ExtensionFilter("Nintendo DS ROM", ndsExtensions);
     /**
      * A <code>FileFilter</code> which displays only project files or folders which directly contain one.
+     * <p>Every Projectfile it sees is recorded in the shared <code>ProjectIndex</code>, so its folder is already known
+     * to be a project when the file chooser goes back up a level.</p>
      */
     protected static final FileFilter projectFilter = new FileFilter()
     {
@@ -45,7 +55,10 @@ public class FileUtils
         {
             if (pathname.isDirectory())
                 return true;
-            return pathname.getName().equals("Projectfile");
+            if (!pathname.getName().equals(projectFileName))
+                return false;
+            ProjectIndex.getInstance().recordProjectfile(pathname);
+            return true;
         }
 
         @Override
@@ -108,6 +121,129 @@ public class FileUtils
         return directory.delete();
     }
 
+    /**
+     * Adds up the sizes of every file inside a given directory, including those in its subdirectories
+     * @param directory a <code>Path</code> to a directory
+     * @return a <code>long</code> containing a number of bytes
+     * @throws IOException if the directory can't be walked
+     */
+    protected static long getDirectorySize(Path directory) throws IOException
+    {
+        try (Stream<Path> files = Files.walk(directory))
+        {
+            return files.filter(Files::isRegularFile).mapToLong(file -> file.toFile().length()).sum();
+        }
+    }
+
+    /**
+     * Writes the provided data to the given file, unless the file already has exactly those contents.
+     * <p>The data is written to a temporary file next to the target which is then renamed over it, so the target
+     * never ends up partially written.</p>
+     * @param target a <code>Path</code> to the file to write
+     * @param data a <code>byte[]</code> containing the new contents of the file
+     * @return a <code>boolean</code> containing whether the file was written, or <code>false</code> if it was skipped
+     * @throws IOException if an I/O error occurs
+     */
+    protected static boolean writeFileIfChanged(Path target, byte[] data) throws IOException
+    {
+        if (contentEquals(target, data))
+            return false;
+        writeFileAtomically(target, data);
+        return true;
+    }
+
+    /**
+     * Writes the provided data to a temporary file next to the target, then renames it over the target
+     * @param target a <code>Path</code> to the file to write
+     * @param data a <code>byte[]</code> containing the new contents of the file
+     * @throws IOException if an I/O error occurs
+     */
+    protected static void writeFileAtomically(Path target, byte[] data) throws IOException
+    {
+        Path directory = target.toAbsolutePath().getParent();
+        Files.createDirectories(directory);
+        Path temp = createTempFileFor(target);
+        try {
+            Files.write(temp, data);
+            replaceAtomically(temp, target);
+        }
+        finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * Creates an empty temporary file in the same directory as the given target, so that it can later be renamed
+     * over the target with <code>replaceAtomically()</code>.
+     * <p>Unlike <code>Files.createTempFile()</code>, which makes the file readable by its owner only, the file is
+     * created with the same default permissions as any other new file, so the target keeps them once replaced.</p>
+     * @param target a <code>Path</code> to the file which will eventually be replaced
+     * @return a <code>Path</code> to the temporary file
+     * @throws IOException if an I/O error occurs
+     */
+    protected static Path createTempFileFor(Path target) throws IOException
+    {
+        Path directory = target.toAbsolutePath().getParent();
+        while (true)
+        {
+            Path temp = directory.resolve("." + target.getFileName() + Long.toUnsignedString(ThreadLocalRandom.current().nextLong()) + ".tmp");
+            try {
+                return Files.createFile(temp);
+            }
+            catch (FileAlreadyExistsException ignored) {
+            }
+        }
+    }
+
+    /**
+     * Renames a fully written file over the target, so that the target is either left untouched or completely replaced
+     * @param source a <code>Path</code> to the fully written file, in the same directory as the target
+     * @param target a <code>Path</code> to the file to replace
+     * @throws IOException if an I/O error occurs
+     */
+    protected static void replaceAtomically(Path source, Path target) throws IOException
+    {
+        // files linked from a ContentStore are read-only on Windows, which stops them from being renamed over
+        DosFileAttributeView dosView = Files.getFileAttributeView(target, DosFileAttributeView.class);
+        if (dosView != null && Files.getFileAttributeView(target, PosixFileAttributeView.class) == null
+                && Files.exists(target) && dosView.readAttributes().isReadOnly())
+            dosView.setReadOnly(false);
+
+        try {
+            Files.move(source, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        }
+        catch (AtomicMoveNotSupportedException e) {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * Gets whether the given file exists and has exactly the provided contents
+     * @param file a <code>Path</code> to a file
+     * @param data a <code>byte[]</code>
+     * @return a <code>boolean</code>
+     * @throws IOException if an I/O error occurs
+     */
+    protected static boolean contentEquals(Path file, byte[] data) throws IOException
+    {
+        if (!Files.isRegularFile(file) || Files.size(file) != data.length)
+            return false;
+
+        byte[] buffer = new byte[8192];
+        try (InputStream in = Files.newInputStream(file))
+        {
+            int offset = 0;
+            int read;
+            while ((read = in.readNBytes(buffer, 0, buffer.length)) > 0)
+            {
+                if (Arrays.mismatch(buffer, 0, read, data, offset, offset + read) != -1)
+                    return false;
+                offset += read;
+            }
+            return offset == data.length;
+        }
+    }
+
     public static void promptLocationAndWriteFile(Component parent, String operationKey, byte[] data, String description, String extension) throws IOException
     {
         String lastPath = Tool.preferences.get(operationKey, null);
@@ -161,6 +297,7 @@ public class FileUtils
 
     /**
      * An implementation of <code>FileView</code> which gives special icons to Nintendo DS ROMs and projects of this framework
+     * <p>Whether a folder is a project is looked up in the shared <code>ProjectIndex</code> rather than by listing the folder.</p>
      */
     static class ToolFileView extends FileView
     {
@@ -183,11 +320,8 @@ public class FileUtils
                     type = "Nintendo DS Project";
                 }
             }
-            else if (f.isDirectory()) {
-                List<String> fileNames = Arrays.stream(f.listFiles()).map(File::getName).toList();
-                if (fileNames.contains(projectFileName)) {
-                    type = "Nintendo DS Project";
-                }
+            else if (f.isDirectory() && ProjectIndex.getInstance().isProject(f)) {
+                type = "Nintendo DS Project";
             }
 
             return type;
@@ -208,11 +342,8 @@ public class FileUtils
                     }
                 }
             }
-            else if (f.isDirectory()) {
-                List<String> fileNames = Arrays.stream(f.listFiles()).map(File::getName).toList();
-                if (fileNames.contains(projectFileName)) {
-                    icon = ThemeUtils.gamepadIcon;
-                }
+            else if (f.isDirectory() && ProjectIndex.getInstance().isProject(f)) {
+                icon = ThemeUtils.gamepadIcon;
             }
 
             return icon;
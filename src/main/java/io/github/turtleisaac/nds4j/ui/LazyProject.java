@@ -0,0 +1,226 @@
+package io.github.turtleisaac.nds4j.ui;
+
+import io.github.turtleisaac.nds4j.NintendoDsRom;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A view of the unpacked ROM inside a project which only indexes the project's files up front and reads each
+ * file's contents from disk the first time it is requested.
+ * <p>Whenever a file is read, the next few files in the same folder are read ahead in the background on a small
+ * bounded thread pool, since tools tend to walk through related files (such as the members of a NARC folder) in order.</p>
+ */
+class LazyProject implements DeferredRom
+{
+    private static final int readAheadCount = 8;
+    private static final int readAheadQueueSize = 64;
+    private static final AtomicInteger poolNumber = new AtomicInteger();
+
+    private final String unpackedRomPath;
+    private final Path dataPath;
+    private final String gameCode;
+    private final List<String> orderedPaths;
+    private final Map<String, Integer> pathIndices;
+    private final ConcurrentHashMap<String, CompletableFuture<byte[]>> files;
+    private final ThreadPoolExecutor readAheadExecutor;
+
+    private LazyProject(String unpackedRomPath, String gameCode, List<String> orderedPaths)
+    {
+        this.unpackedRomPath = unpackedRomPath;
+        this.dataPath = Path.of(unpackedRomPath, NintendoDsRom.UNPACKED_FILENAMES.DATA.getName());
+        this.gameCode = gameCode;
+        this.orderedPaths = orderedPaths;
+        this.pathIndices = new HashMap<>();
+        for (int i = 0; i < orderedPaths.size(); i++)
+            pathIndices.put(orderedPaths.get(i), i);
+        this.files = new ConcurrentHashMap<>();
+
+        int threads = Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors() / 2));
+        String poolName = "project-read-ahead-" + poolNumber.incrementAndGet();
+        AtomicInteger threadNumber = new AtomicInteger();
+        readAheadExecutor = new ThreadPoolExecutor(threads, threads, 5, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(readAheadQueueSize),
+                runnable -> {
+                    Thread thread = new Thread(runnable, poolName + "-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.DiscardPolicy());
+        readAheadExecutor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Indexes the unpacked ROM at the provided path without reading any of the files in its filesystem
+     * @param unpackedRomPath a <code>String</code> containing the path of the unpacked ROM inside a project
+     * @return a <code>LazyProject</code>
+     * @throws IOException if the header can't be read or the filesystem can't be walked
+     */
+    static LazyProject open(String unpackedRomPath) throws IOException
+    {
+        return new LazyProject(unpackedRomPath, readGameCode(unpackedRomPath), indexFiles(unpackedRomPath));
+    }
+
+    private static String readGameCode(String unpackedRomPath) throws IOException
+    {
+        Path headerPath = Path.of(unpackedRomPath, NintendoDsRom.UNPACKED_FILENAMES.HEADER.getName());
+        try (InputStream in = Files.newInputStream(headerPath))
+        {
+            byte[] header = in.readNBytes(RomLayout.gameCodeOffset + 4);
+            if (header.length < RomLayout.gameCodeOffset + 4)
+                throw new IOException("The project's ROM header is truncated: " + headerPath);
+            return new String(header, RomLayout.gameCodeOffset, 4, StandardCharsets.US_ASCII);
+        }
+    }
+
+    private static List<String> indexFiles(String unpackedRomPath) throws IOException
+    {
+        Path dataPath = Path.of(unpackedRomPath, NintendoDsRom.UNPACKED_FILENAMES.DATA.getName());
+        List<String> paths = new ArrayList<>();
+        Files.walkFileTree(dataPath, new SimpleFileVisitor<>()
+        {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs)
+            {
+                if (attrs.isRegularFile())
+                    paths.add(toPathWithinRom(dataPath, file));
+                return FileVisitResult.CONTINUE;
+            }
+        });
+        Collections.sort(paths);
+        return paths;
+    }
+
+    private static String toPathWithinRom(Path dataPath, Path file)
+    {
+        return dataPath.relativize(file).toString().replace(file.getFileSystem().getSeparator(), "/");
+    }
+
+    @Override
+    public String getGameCode()
+    {
+        return gameCode;
+    }
+
+    /**
+     * Gets the paths of every file in the project's ROM filesystem, in sorted order
+     * @return an unmodifiable <code>List</code><<code>String</code>>
+     */
+    List<String> getPaths()
+    {
+        return Collections.unmodifiableList(orderedPaths);
+    }
+
+    @Override
+    public ByteBuffer getFileView(String pathWithinRom)
+    {
+        return ByteBuffer.wrap(getFileForWriting(pathWithinRom)).asReadOnlyBuffer();
+    }
+
+    /**
+     * Gets the contents of the file with the given path, reading it from disk if this is the first time it was
+     * requested. Repeated calls for the same file return the same array.
+     * @param pathWithinRom a <code>String</code> containing the path of a file within the ROM's filesystem
+     * @return a <code>byte[]</code>
+     * @throws IllegalArgumentException if there is no such file
+     * @throws UncheckedIOException if the file can't be read
+     */
+    @Override
+    public byte[] getFileForWriting(String pathWithinRom)
+    {
+        Integer index = pathIndices.get(pathWithinRom);
+        if (index == null)
+            throw new IllegalArgumentException("No file exists in the project with the path: " + pathWithinRom);
+
+        CompletableFuture<byte[]> future = claimOrGet(pathWithinRom);
+        scheduleReadAhead(index);
+
+        try {
+            return future.join();
+        }
+        catch (CompletionException e) {
+            if (e.getCause() instanceof UncheckedIOException cause)
+                throw cause;
+            throw e;
+        }
+    }
+
+    /**
+     * Returns the future for the given file, reading it on the calling thread if nobody has started to yet
+     */
+    private CompletableFuture<byte[]> claimOrGet(String pathWithinRom)
+    {
+        CompletableFuture<byte[]> future = files.get(pathWithinRom);
+        if (future != null)
+            return future;
+
+        CompletableFuture<byte[]> claimed = new CompletableFuture<>();
+        future = files.putIfAbsent(pathWithinRom, claimed);
+        if (future != null)
+            return future;
+
+        try {
+            claimed.complete(Files.readAllBytes(dataPath.resolve(pathWithinRom)));
+        }
+        catch (IOException e) {
+            files.remove(pathWithinRom, claimed);
+            claimed.completeExceptionally(new UncheckedIOException(e));
+        }
+        return claimed;
+    }
+
+    private void scheduleReadAhead(int index)
+    {
+        String parent = parentOf(orderedPaths.get(index));
+        int end = Math.min(orderedPaths.size(), index + 1 + readAheadCount);
+        for (int i = index + 1; i < end; i++)
+        {
+            String path = orderedPaths.get(i);
+            if (!parent.equals(parentOf(path)))
+                break;
+            if (!files.containsKey(path))
+                readAheadExecutor.execute(() -> claimOrGet(path));
+        }
+    }
+
+    private static String parentOf(String pathWithinRom)
+    {
+        int idx = pathWithinRom.lastIndexOf('/');
+        return idx == -1 ? "" : pathWithinRom.substring(0, idx);
+    }
+
+    /**
+     * Loads the entire project onto the heap as a <code>NintendoDsRom</code>. Every file which has already been
+     * read is carried over, so any changes made to those arrays in place are kept.
+     * @return a <code>NintendoDsRom</code>
+     */
+    @Override
+    public NintendoDsRom toNintendoDsRom()
+    {
+        NintendoDsRom rom = NintendoDsRom.fromUnpacked(unpackedRomPath);
+        for (Map.Entry<String, CompletableFuture<byte[]>> entry : files.entrySet())
+        {
+            byte[] data = entry.getValue().getNow(null);
+            if (data != null)
+                rom.setFileByName(entry.getKey(), data);
+        }
+        return rom;
+    }
+
+    @Override
+    public void close()
+    {
+        readAheadExecutor.shutdownNow();
+    }
+}
@@ -0,0 +1,159 @@
+package io.github.turtleisaac.nds4j.ui;
+
+import io.github.turtleisaac.nds4j.NintendoDsRom;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A Nintendo DS ROM which is memory-mapped from disk rather than read onto the heap.
+ * <p>Files are handed out as read-only views of the mapping. The first time a file is requested for writing,
+ * its contents are copied onto the heap and all later accesses to that file use the copy, so only the files a
+ * <code>Tool</code> actually modifies take up heap space. The ROM file on disk is never written to.</p>
+ */
+class MappedRom implements DeferredRom
+{
+    private final String path;
+    private final FileChannel channel;
+    private final MappedByteBuffer mapping;
+    private final RomLayout layout;
+    private final Map<String, byte[]> modifiedFiles;
+
+    private MappedRom(String path, FileChannel channel, MappedByteBuffer mapping)
+    {
+        this.path = path;
+        this.channel = channel;
+        this.mapping = mapping;
+        this.layout = RomLayout.parse(mapping);
+        this.modifiedFiles = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Memory-maps the ROM at the provided path
+     * @param path a <code>String</code> containing the path of a Nintendo DS ROM
+     * @return a <code>MappedRom</code>
+     * @throws IOException if the file can't be opened or mapped
+     */
+    static MappedRom open(String path) throws IOException
+    {
+        FileChannel channel = FileChannel.open(Path.of(path), StandardOpenOption.READ);
+        try {
+            return new MappedRom(path, channel, channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+        catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Gets the game code stored in the ROM header
+     * @return a <code>String</code>
+     */
+    @Override
+    public String getGameCode()
+    {
+        return layout.getGameCode();
+    }
+
+    /**
+     * Gets the layout of the mapped ROM image
+     * @return a <code>RomLayout</code>
+     */
+    RomLayout getLayout()
+    {
+        return layout;
+    }
+
+    /**
+     * Gets a read-only view of the contents of the file with the given path. If the file has been modified,
+     * this is a view of the modified copy.
+     * @param pathWithinRom a <code>String</code> containing the path of a file within the ROM's filesystem
+     * @return a read-only <code>ByteBuffer</code>
+     * @throws IllegalArgumentException if there is no such file
+     */
+    @Override
+    public ByteBuffer getFileView(String pathWithinRom)
+    {
+        byte[] modified = modifiedFiles.get(pathWithinRom);
+        if (modified != null)
+            return ByteBuffer.wrap(modified).asReadOnlyBuffer();
+
+        int fileId = requireFileId(pathWithinRom);
+        int start = (int) layout.getFileStart(fileId);
+        int end = (int) layout.getFileEnd(fileId);
+        return mapping.slice(start, end - start).asReadOnlyBuffer();
+    }
+
+    /**
+     * Gets a heap copy of the contents of the file with the given path which can be modified freely.
+     * Repeated calls for the same file return the same array.
+     * @param pathWithinRom a <code>String</code> containing the path of a file within the ROM's filesystem
+     * @return a <code>byte[]</code>
+     * @throws IllegalArgumentException if there is no such file
+     */
+    @Override
+    public byte[] getFileForWriting(String pathWithinRom)
+    {
+        return modifiedFiles.computeIfAbsent(pathWithinRom, key -> {
+            ByteBuffer view = getFileView(key);
+            byte[] copy = new byte[view.remaining()];
+            view.get(copy);
+            return copy;
+        });
+    }
+
+    /**
+     * Gets every file which has been copied onto the heap for writing, with its current contents
+     * @return an unmodifiable <code>Map</code><<code>String</code>, <code>byte[]</code>> of paths to file contents
+     */
+    Map<String, byte[]> getModifiedFiles()
+    {
+        return Map.copyOf(modifiedFiles);
+    }
+
+    /**
+     * Gets a read-only view of the entire original ROM image, without any modifications applied
+     * @return a <code>ByteBuffer</code>
+     */
+    ByteBuffer getImage()
+    {
+        return mapping.asReadOnlyBuffer();
+    }
+
+    /**
+     * Loads the entire ROM onto the heap as a <code>NintendoDsRom</code>, with all modifications applied.
+     * <p>This is needed for operations which only exist on <code>NintendoDsRom</code>, such as exporting.</p>
+     * @return a <code>NintendoDsRom</code>
+     */
+    @Override
+    public NintendoDsRom toNintendoDsRom()
+    {
+        NintendoDsRom rom = NintendoDsRom.fromFile(path);
+        for (Map.Entry<String, byte[]> entry : modifiedFiles.entrySet())
+        {
+            rom.setFileByName(entry.getKey(), entry.getValue());
+        }
+        return rom;
+    }
+
+    private int requireFileId(String pathWithinRom)
+    {
+        int fileId = layout.getFileId(pathWithinRom);
+        if (fileId == -1)
+            throw new IllegalArgumentException("No file exists in the ROM with the path: " + pathWithinRom);
+        return fileId;
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+        channel.close();
+    }
+}
@@ -0,0 +1,170 @@
+package io.github.turtleisaac.nds4j.ui;
+
+import net.miginfocom.swing.MigLayout;
+
+import javax.swing.*;
+import javax.swing.table.AbstractTableModel;
+import java.awt.*;
+import java.awt.datatransfer.StringSelection;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A window listing every metric in a <code>MetricsRegistry</code>, refreshed every second while it is open
+ */
+class MetricsDashboard extends JDialog
+{
+    private static final int refreshInterval = 1000;
+    private static final String[] columnNames = {"Metric", "Count / Value", "Mean", "Max", "Last", "Total"};
+
+    private final MetricsRegistry metrics;
+    private final MetricsTableModel tableModel;
+    private final Timer refreshTimer;
+
+    /**
+     * Creates a new <code>MetricsDashboard</code>. It is not shown until <code>setVisible(true)</code> is called.
+     * @param owner the <code>Window</code> this dashboard belongs to
+     * @param metrics the <code>MetricsRegistry</code> to display
+     */
+    protected MetricsDashboard(Window owner, MetricsRegistry metrics)
+    {
+        super(owner, "Performance Metrics", ModalityType.MODELESS);
+        setDefaultCloseOperation(DISPOSE_ON_CLOSE);
+        this.metrics = metrics;
+
+        tableModel = new MetricsTableModel();
+        JTable table = new JTable(tableModel);
+        table.setAutoCreateRowSorter(true);
+        table.setFillsViewportHeight(true);
+        table.getColumnModel().getColumn(0).setPreferredWidth(220);
+
+        JButton copyButton = new JButton("Copy to Clipboard");
+        copyButton.addActionListener(e -> copyToClipboard());
+
+        JPanel contentPanel = new JPanel(new MigLayout(
+                "insets dialog",
+                // columns
+                "[grow,fill]",
+                // rows
+                "[grow,fill][]"));
+        contentPanel.add(new JScrollPane(table), "cell 0 0,width 700:700,height 350:350");
+        contentPanel.add(copyButton, "cell 0 1,alignx right,growx 0");
+        setContentPane(contentPanel);
+        pack();
+        setLocationRelativeTo(owner);
+
+        refreshTimer = new Timer(refreshInterval, e -> tableModel.refresh());
+        addWindowListener(new WindowAdapter()
+        {
+            @Override
+            public void windowOpened(WindowEvent e)
+            {
+                tableModel.refresh();
+                refreshTimer.start();
+            }
+
+            @Override
+            public void windowClosed(WindowEvent e)
+            {
+                refreshTimer.stop();
+            }
+        });
+    }
+
+    private void copyToClipboard()
+    {
+        StringBuilder sb = new StringBuilder(String.join("\t", columnNames));
+        for (int row = 0; row < tableModel.getRowCount(); row++)
+        {
+            sb.append('\n');
+            for (int column = 0; column < columnNames.length; column++)
+            {
+                if (column != 0)
+                    sb.append('\t');
+                sb.append(tableModel.getValueAt(row, column));
+            }
+        }
+        Toolkit.getDefaultToolkit().getSystemClipboard().setContents(new StringSelection(sb.toString()), null);
+    }
+
+    private static String format(Duration duration)
+    {
+        return String.format("%.2f ms", duration.toNanos() / 1_000_000.0);
+    }
+
+    private class MetricsTableModel extends AbstractTableModel
+    {
+        private List<String[]> rows = new ArrayList<>();
+
+        private void refresh()
+        {
+            List<String[]> newRows = new ArrayList<>();
+            for (Map.Entry<String, MetricsRegistry.Metric> entry : metrics.getMetrics().entrySet())
+                newRows.add(toRow(entry.getKey(), entry.getValue()));
+
+            boolean sameRows = newRows.size() == rows.size();
+            for (int i = 0; sameRows && i < rows.size(); i++)
+                sameRows = rows.get(i)[0].equals(newRows.get(i)[0]);
+
+            rows = newRows;
+            // only fire a structural change when metrics were added or removed, so the selection survives a refresh
+            if (sameRows && !rows.isEmpty())
+                fireTableRowsUpdated(0, rows.size() - 1);
+            else
+                fireTableDataChanged();
+        }
+
+        private String[] toRow(String name, MetricsRegistry.Metric metric)
+        {
+            if (metric instanceof MetricsRegistry.Timer timer)
+            {
+                if (timer.getCount() == 0)
+                    return new String[] {name, "0", "", "", "", ""};
+                return new String[] {name, String.valueOf(timer.getCount()), format(timer.getMean()), format(timer.getMax()),
+                        format(timer.getLast()), format(timer.getTotal())};
+            }
+            if (metric instanceof MetricsRegistry.Counter counter)
+                return new String[] {name, String.valueOf(counter.getCount()), "", "", "", ""};
+            if (metric instanceof MetricsRegistry.Gauge gauge)
+            {
+                String value;
+                try {
+                    value = String.valueOf(gauge.getValue());
+                }
+                catch (RuntimeException e) {
+                    value = "Error: " + e.getMessage();
+                }
+                return new String[] {name, value, "", "", "", ""};
+            }
+            return new String[] {name, metric.getValues().toString(), "", "", "", ""};
+        }
+
+        @Override
+        public int getRowCount()
+        {
+            return rows.size();
+        }
+
+        @Override
+        public int getColumnCount()
+        {
+            return columnNames.length;
+        }
+
+        @Override
+        public String getColumnName(int column)
+        {
+            return columnNames[column];
+        }
+
+        @Override
+        public Object getValueAt(int rowIndex, int columnIndex)
+        {
+            return rows.get(rowIndex)[columnIndex];
+        }
+    }
+}
@@ -0,0 +1,468 @@
+package io.github.turtleisaac.nds4j.ui;
+
+import io.github.turtleisaac.nds4j.ui.exceptions.ToolAttributeModificationException;
+
+import javax.management.*;
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * A set of named timers, counters and gauges describing how a <code>Tool</code> is performing.
+ * <p>Every <code>Tool</code> owns one, which it fills in as it loads, validates, saves, commits and exports ROMs.
+ * It can be viewed live from the Debug menu of the tool window, and is exposed over JMX (under
+ * <code>io.github.turtleisaac.nds4j.ui:type=Metrics</code>) for tools such as JConsole or VisualVM.</p>
+ * <p>Metric names are dot-separated, such as <code>rom.load</code>. Asking for a metric which doesn't exist yet
+ * creates it, and asking again returns the same one, so metrics can be looked up wherever they are needed.</p>
+ */
+public class MetricsRegistry
+{
+    private static final String jmxDomain = "io.github.turtleisaac.nds4j.ui";
+
+    private final ConcurrentSkipListMap<String, Metric> metrics;
+    private final String prefix;
+
+    /**
+     * Creates a new, empty <code>MetricsRegistry</code>
+     */
+    public MetricsRegistry()
+    {
+        this(new ConcurrentSkipListMap<>(), "");
+    }
+
+    private MetricsRegistry(ConcurrentSkipListMap<String, Metric> metrics, String prefix)
+    {
+        this.metrics = metrics;
+        this.prefix = prefix;
+    }
+
+    /**
+     * A single metric
+     */
+    public interface Metric
+    {
+        /**
+         * Gets the current values of this metric
+         * @return a <code>Map</code><<code>String</code>, <code>Number</code>> of each value's name to the value
+         */
+        Map<String, Number> getValues();
+    }
+
+    /**
+     * A metric which counts how many times something has happened
+     */
+    public static class Counter implements Metric
+    {
+        private final LongAdder count = new LongAdder();
+
+        /**
+         * Adds one to this counter
+         */
+        public void increment()
+        {
+            count.increment();
+        }
+
+        /**
+         * Adds the provided amount to this counter
+         * @param amount a <code>long</code>
+         */
+        public void add(long amount)
+        {
+            count.add(amount);
+        }
+
+        /**
+         * Gets the current count
+         * @return a <code>long</code>
+         */
+        public long getCount()
+        {
+            return count.sum();
+        }
+
+        @Override
+        public Map<String, Number> getValues()
+        {
+            return Map.of("count", getCount());
+        }
+    }
+
+    /**
+     * A metric which records how long something takes each time it happens
+     */
+    public static class Timer implements Metric
+    {
+        private final LongAdder count = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+        private volatile long lastNanos;
+
+        /**
+         * Records a single occurrence which took the provided amount of time
+         * @param duration a <code>Duration</code>
+         */
+        public void record(Duration duration)
+        {
+            long nanos = Math.max(0, duration.toNanos());
+            count.increment();
+            totalNanos.add(nanos);
+            maxNanos.accumulate(nanos);
+            lastNanos = nanos;
+        }
+
+        /**
+         * Records a single occurrence which started at the provided time and has just finished
+         * @param startNanos a <code>long</code> containing the value of <code>System.nanoTime()</code> when it started
+         */
+        public void recordSince(long startNanos)
+        {
+            record(Duration.ofNanos(System.nanoTime() - startNanos));
+        }
+
+        /**
+         * Runs the provided action and records how long it took, even if it throws an exception
+         * @param action a <code>Supplier</code> to run
+         * @param <T> the type of the result
+         * @return the result of <code>action</code>
+         */
+        public <T> T time(Supplier<T> action)
+        {
+            long start = System.nanoTime();
+            try {
+                return action.get();
+            }
+            finally {
+                recordSince(start);
+            }
+        }
+
+        /**
+         * Runs the provided action and records how long it took, even if it throws an exception
+         * @param action a <code>Runnable</code> to run
+         */
+        public void time(Runnable action)
+        {
+            long start = System.nanoTime();
+            try {
+                action.run();
+            }
+            finally {
+                recordSince(start);
+            }
+        }
+
+        /**
+         * Gets the number of occurrences recorded
+         * @return a <code>long</code>
+         */
+        public long getCount()
+        {
+            return count.sum();
+        }
+
+        /**
+         * Gets the combined time of every occurrence recorded
+         * @return a <code>Duration</code>
+         */
+        public Duration getTotal()
+        {
+            return Duration.ofNanos(totalNanos.sum());
+        }
+
+        /**
+         * Gets the average time of the occurrences recorded
+         * @return a <code>Duration</code>, which is zero if nothing has been recorded
+         */
+        public Duration getMean()
+        {
+            long count = getCount();
+            return count == 0 ? Duration.ZERO : Duration.ofNanos(totalNanos.sum() / count);
+        }
+
+        /**
+         * Gets the time of the longest occurrence recorded
+         * @return a <code>Duration</code>
+         */
+        public Duration getMax()
+        {
+            return Duration.ofNanos(maxNanos.get());
+        }
+
+        /**
+         * Gets the time of the most recent occurrence recorded
+         * @return a <code>Duration</code>
+         */
+        public Duration getLast()
+        {
+            return Duration.ofNanos(lastNanos);
+        }
+
+        @Override
+        public Map<String, Number> getValues()
+        {
+            Map<String, Number> values = new LinkedHashMap<>();
+            values.put("count", getCount());
+            values.put("totalMillis", toMillis(getTotal()));
+            values.put("meanMillis", toMillis(getMean()));
+            values.put("maxMillis", toMillis(getMax()));
+            values.put("lastMillis", toMillis(getLast()));
+            return values;
+        }
+
+        private static double toMillis(Duration duration)
+        {
+            return duration.toNanos() / 1_000_000.0;
+        }
+    }
+
+    /**
+     * A metric which reads a value, such as a queue length, whenever it is looked at
+     */
+    public static class Gauge implements Metric
+    {
+        private final Supplier<? extends Number> supplier;
+
+        private Gauge(Supplier<? extends Number> supplier)
+        {
+            this.supplier = supplier;
+        }
+
+        /**
+         * Reads the current value
+         * @return a <code>Number</code>
+         */
+        public Number getValue()
+        {
+            return supplier.get();
+        }
+
+        @Override
+        public Map<String, Number> getValues()
+        {
+            Number value = getValue();
+            return value == null ? Map.of() : Map.of("value", value);
+        }
+    }
+
+    /**
+     * Gets the counter with the provided name, creating it if it doesn't exist yet
+     * @param name a <code>String</code> containing the name of the counter
+     * @return a <code>Counter</code>
+     * @throws ToolAttributeModificationException if a metric of another type already has this name
+     */
+    public Counter counter(String name)
+    {
+        return getOrCreate(name, Counter.class, ignored -> new Counter());
+    }
+
+    /**
+     * Gets the timer with the provided name, creating it if it doesn't exist yet
+     * @param name a <code>String</code> containing the name of the timer
+     * @return a <code>Timer</code>
+     * @throws ToolAttributeModificationException if a metric of another type already has this name
+     */
+    public Timer timer(String name)
+    {
+        return getOrCreate(name, Timer.class, ignored -> new Timer());
+    }
+
+    /**
+     * Creates a gauge with the provided name, replacing any gauge which already has that name
+     * @param name a <code>String</code> containing the name of the gauge
+     * @param supplier a <code>Supplier</code> which reads the current value. This is called from whichever thread
+     *                 is looking at the metrics, so it must be thread-safe and quick.
+     * @return a <code>Gauge</code>
+     * @throws ToolAttributeModificationException if a metric of another type already has this name
+     */
+    public Gauge gauge(String name, Supplier<? extends Number> supplier)
+    {
+        Gauge gauge = new Gauge(supplier);
+        Metric existing = metrics.put(prefix + name, gauge);
+        if (existing != null && !(existing instanceof Gauge))
+        {
+            metrics.put(prefix + name, existing);
+            throw new ToolAttributeModificationException("A metric named \"" + prefix + name + "\" already exists and is not a gauge");
+        }
+        return gauge;
+    }
+
+    /**
+     * Adds an existing metric under the provided name, so that a metric can be shared between registries
+     * @param name a <code>String</code> containing the name of the metric
+     * @param metric a <code>Metric</code>
+     * @throws ToolAttributeModificationException if a different metric already has this name
+     */
+    public void register(String name, Metric metric)
+    {
+        Metric existing = metrics.putIfAbsent(prefix + name, metric);
+        if (existing != null && existing != metric)
+            throw new ToolAttributeModificationException("A metric named \"" + prefix + name + "\" already exists");
+    }
+
+    /**
+     * Removes the metric with the provided name, if it exists
+     * @param name a <code>String</code> containing the name of the metric
+     * @return a <code>boolean</code> containing whether a metric was removed
+     */
+    public boolean remove(String name)
+    {
+        return metrics.remove(prefix + name) != null;
+    }
+
+    /**
+     * Gets a view of this registry in which every name is prefixed with the provided string. Metrics created through
+     * the view are added to this registry.
+     * @param prefix a <code>String</code> such as <code>"panels.Trainers."</code>
+     * @return a <code>MetricsRegistry</code>
+     */
+    public MetricsRegistry withPrefix(String prefix)
+    {
+        return new MetricsRegistry(metrics, this.prefix + prefix);
+    }
+
+    /**
+     * Gets every metric in this registry, or in this view of a registry
+     * @return an unmodifiable <code>SortedMap</code><<code>String</code>, <code>Metric</code>> of each metric's full
+     * name to the metric, sorted by name
+     */
+    public SortedMap<String, Metric> getMetrics()
+    {
+        if (prefix.isEmpty())
+            return Collections.unmodifiableSortedMap(metrics);
+        return Collections.unmodifiableSortedMap(metrics.subMap(prefix, prefix + Character.MAX_VALUE));
+    }
+
+    private <T extends Metric> T getOrCreate(String name, Class<T> type, Function<String, T> factory)
+    {
+        Metric metric = metrics.computeIfAbsent(prefix + name, factory);
+        if (!type.isInstance(metric))
+            throw new ToolAttributeModificationException("A metric named \"" + prefix + name + "\" already exists and is not a " + type.getSimpleName().toLowerCase());
+        return type.cast(metric);
+    }
+
+    /**
+     * Exposes every metric in this registry over JMX, as the attributes of a single MBean
+     * @param toolName a <code>String</code> containing the name of the <code>Tool</code>, which identifies the MBean
+     */
+    protected void registerMBean(String toolName)
+    {
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(new MetricsMBean(metrics), getObjectName(toolName));
+        }
+        catch (JMException e) {
+            System.err.println("[WARNING]: Failed to expose metrics over JMX: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Stops exposing the metrics in this registry over JMX
+     * @param toolName a <code>String</code> containing the name the MBean was registered under
+     */
+    protected void unregisterMBean(String toolName)
+    {
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(getObjectName(toolName));
+        }
+        catch (InstanceNotFoundException ignored) {
+        }
+        catch (JMException e) {
+            System.err.println("[WARNING]: Failed to stop exposing metrics over JMX: " + e.getMessage());
+        }
+    }
+
+    private static ObjectName getObjectName(String toolName) throws MalformedObjectNameException
+    {
+        Hashtable<String, String> properties = new Hashtable<>();
+        properties.put("type", "Metrics");
+        properties.put("name", ObjectName.quote(toolName == null ? "Tool" : toolName));
+        return new ObjectName(jmxDomain, properties);
+    }
+
+    /**
+     * Presents each value of each metric as a read-only attribute named after the metric and the value, such as
+     * <code>rom.load.meanMillis</code>. Metrics added later show up the next time the attributes are listed.
+     */
+    private static class MetricsMBean implements DynamicMBean
+    {
+        private final SortedMap<String, Metric> metrics;
+
+        private MetricsMBean(SortedMap<String, Metric> metrics)
+        {
+            this.metrics = metrics;
+        }
+
+        @Override
+        public Object getAttribute(String attribute) throws AttributeNotFoundException
+        {
+            int separator = attribute.lastIndexOf('.');
+            Metric metric = separator == -1 ? null : metrics.get(attribute.substring(0, separator));
+            Number value = metric == null ? null : metric.getValues().get(attribute.substring(separator + 1));
+            if (value == null)
+                throw new AttributeNotFoundException(attribute);
+            return value instanceof Long ? value : value.doubleValue();
+        }
+
+        @Override
+        public AttributeList getAttributes(String[] attributes)
+        {
+            AttributeList list = new AttributeList();
+            for (String attribute : attributes)
+            {
+                try {
+                    list.add(new Attribute(attribute, getAttribute(attribute)));
+                }
+                catch (AttributeNotFoundException | RuntimeException ignored) {
+                }
+            }
+            return list;
+        }
+
+        @Override
+        public void setAttribute(Attribute attribute) throws AttributeNotFoundException
+        {
+            throw new AttributeNotFoundException("Metrics are read-only");
+        }
+
+        @Override
+        public AttributeList setAttributes(AttributeList attributes)
+        {
+            return new AttributeList();
+        }
+
+        @Override
+        public Object invoke(String actionName, Object[] params, String[] signature) throws ReflectionException
+        {
+            throw new ReflectionException(new NoSuchMethodException(actionName));
+        }
+
+        @Override
+        public MBeanInfo getMBeanInfo()
+        {
+            List<MBeanAttributeInfo> attributes = new ArrayList<>();
+            for (Map.Entry<String, Metric> entry : metrics.entrySet())
+            {
+                Map<String, Number> values;
+                try {
+                    values = entry.getValue().getValues();
+                }
+                catch (RuntimeException e) {
+                    continue;
+                }
+
+                for (Map.Entry<String, Number> value : values.entrySet())
+                {
+                    String type = value.getValue() instanceof Long ? Long.class.getName() : Double.class.getName();
+                    attributes.add(new MBeanAttributeInfo(entry.getKey() + "." + value.getKey(), type, entry.getKey(), true, false, false));
+                }
+            }
+            return new MBeanInfo(MetricsRegistry.class.getName(), "Performance metrics of a Nds4j-ToolUI tool",
+                    attributes.toArray(new MBeanAttributeInfo[0]), null, null, null);
+        }
+    }
+}
@@ -4,11 +4,18 @@ import javax.swing.*;
 import javax.swing.event.ChangeEvent;
 import java.awt.*;
 import java.awt.event.ActionEvent;
+import java.nio.file.Path;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
 /**
  * A class which manages a set of panels which require cross-communication and sharing of data for a <code>Tool</code>
+ * <p>Panels share changes to their data through the <code>Tool</code>'s <code>EventBus</code>, which delivers the
+ * changes in batches so that many changes in a row only cause one refresh.</p>
  */
 public abstract class PanelManager
 {
@@ -30,12 +37,16 @@ public abstract class PanelManager
     /**
      * A function which returns the panels controlled by this <code>PanelManager</code> to add to
      * the global <code>ToolFrame</code>'s <code>JTabbedPane</code>
+     * <p>Panels which are expensive to create should be returned as a <code>LazyPanel</code>, so that they are only
+     * built when their tab is first selected rather than before the tool window can open.</p>
      * @return a <code>List</code><<code>JPanel</code>> containing the panels controlled by this <code>PanelManager</code>
      */
     public abstract List<JPanel> getPanels();
 
     /**
      * Gets whether the panels controlled by this <code>PanelManager</code> have unsaved changes
+     * <p>Changes made to ROM files through the <code>EditJournal</code> are already tracked by the <code>Tool</code>,
+     * so this only needs to account for changes which haven't been written to the ROM's files yet.</p>
      * @return a <code>boolean</code> containing whether this <code>PanelManager</code> has unsaved changes
      */
     public abstract boolean hasUnsavedChanges();
@@ -81,6 +92,17 @@ public abstract class PanelManager
         return tool.getToolFrame().getMenu(name);
     }
 
+    /**
+     * Gets a view of the <code>Tool</code>'s metrics for this <code>PanelManager</code> to register its own timers,
+     * counters and gauges in. Every name is prefixed with <code>panels.</code> and this manager's name, so they are
+     * grouped together in the metrics dashboard and over JMX.
+     * @return a <code>MetricsRegistry</code>
+     */
+    protected MetricsRegistry getMetrics()
+    {
+        return tool.getMetrics().withPrefix("panels." + name + ".");
+    }
+
 //    /**
 //     * This is to be used for a project-based tool saving changes which are currently stored in memory back to disk.
 //     * @return a <code>boolean</code> representing whether the action was a success
@@ -110,11 +132,96 @@ public abstract class PanelManager
         return tool.writeModifiedFile(pathWithinRom);
     }
 
+    /**
+     * Records that a file in the ROM has been modified, so that it is written by the next <code>saveAll()</code>
+     * and counted as an unsaved change when the tool is closed.
+     * @param pathWithinRom a <code>String</code> containing the path of a file within the ROM's filesystem
+     */
+    public void markModified(String pathWithinRom)
+    {
+        tool.markModified(pathWithinRom);
+    }
+
+    /**
+     * Gets whether any file in the ROM has been marked as modified and not yet saved, by any <code>PanelManager</code>
+     * @return a <code>boolean</code>
+     */
+    public boolean hasModifiedFiles()
+    {
+        return tool.hasModifiedFiles();
+    }
+
+    /**
+     * Gets the journal which records edits to the files of the ROM, so that panels can make edits which the user can
+     * undo and redo from the Edit menu. Panels should reload what they display from an <code>EditListener</code>, since
+     * an undo can change any file they show.
+     * @return an <code>EditJournal</code>
+     */
+    public EditJournal getEditJournal()
+    {
+        return tool.getEditJournal();
+    }
+
+    /**
+     * Gets the bus which the panels of every <code>PanelManager</code> in the <code>Tool</code> use to tell each other
+     * about changes to shared data
+     * @return an <code>EventBus</code>
+     */
+    public EventBus getEventBus()
+    {
+        return tool.getEventBus();
+    }
+
+    /**
+     * Runs background work for the panels of this <code>PanelManager</code> on one of the <code>Tool</code>'s virtual
+     * threads. The work is cancelled if it is still running when the tool window closes, and any exception it throws
+     * is reported on the console.
+     * @param taskName a <code>String</code> describing the work, which is prefixed with this manager's name
+     * @param work a <code>Callable</code> containing the work to do. This must not touch any Swing components.
+     * @param <T> the type of the work's result
+     * @return a <code>TaskExecutor.Task</code>, which can be used to wait for the result or to cancel the work
+     */
+    public <T> TaskExecutor.Task<T> submit(String taskName, Callable<T> work)
+    {
+        return tool.getTaskExecutor().submit(name + ": " + taskName, work);
+    }
+
+    /**
+     * Publishes an event to the panels of every <code>PanelManager</code> in the <code>Tool</code> which subscribed to
+     * its topic. It is delivered in a batch with every other event published to the topic during the same frame.
+     * @param topic the <code>EventBus.Topic</code> to publish to
+     * @param event the event
+     * @param <T> the type of the events published to the topic
+     */
+    public <T> void publish(EventBus.Topic<T> topic, T event)
+    {
+        tool.getEventBus().publish(topic, event);
+    }
+
+    /**
+     * This is to be used for a project-based tool saving every file marked as modified back to disk in one batch.
+     * @return a <code>boolean</code> representing whether the action was a success
+     */
+    public boolean saveAll()
+    {
+        return tool.saveAll();
+    }
+
     public boolean commit(String commitMessage)
     {
         return tool.commit(commitMessage);
     }
 
+    /**
+     * Records that a file inside the project directory has been written by some means other than this
+     * <code>PanelManager</code>, so that the next commit stages it
+     * @param file a <code>Path</code> to a file inside the project directory
+     */
+    public void trackUncommittedPath(Path file)
+    {
+        tool.trackUncommittedPath(file);
+    }
+
     public static class PanelGroup extends JPanel {
         private final String groupName;
         private final JPanel[] panels;
@@ -214,4 +321,130 @@ public abstract class PanelManager
             }
         }
     }
+
+    /**
+     * A cheap placeholder for a panel which is only built once its tab is first selected. Until then (and while any
+     * data it needs is being prepared in the background) a loading indicator is displayed in its place.
+     * <p>Since the placeholder is sized before the real panel exists, give it a preferred size if the tool window
+     * should open at the size of the real panel.</p>
+     */
+    public static class LazyPanel extends JPanel {
+        private final Callable<Supplier<JPanel>> preparation;
+        private final JLabel statusLabel;
+
+        private JPanel content;
+        private boolean started;
+        private MetricsRegistry.Timer buildTimer;
+
+        /**
+         * Creates a new <code>LazyPanel</code> whose panel is built on the event dispatch thread when it is first needed
+         * @param name a <code>String</code> containing the name to display on the panel's tab
+         * @param factory a <code>Supplier</code><<code>JPanel</code>> which creates the real panel
+         */
+        public LazyPanel(String name, Supplier<JPanel> factory)
+        {
+            this(name, () -> null, ignored -> factory.get());
+        }
+
+        /**
+         * Creates a new <code>LazyPanel</code> whose data is prepared on a background thread when the panel is first
+         * needed, after which the real panel is built from that data on the event dispatch thread
+         * @param name a <code>String</code> containing the name to display on the panel's tab
+         * @param preparer a <code>Callable</code> which loads or computes the data the panel needs. This must not
+         *                 touch any Swing components.
+         * @param builder a <code>Function</code> which creates the real panel from the prepared data
+         * @param <T> the type of the prepared data
+         */
+        public <T> LazyPanel(String name, Callable<T> preparer, Function<T, JPanel> builder)
+        {
+            super(new GridBagLayout());
+            this.preparation = () -> {
+                T data = preparer.call();
+                return () -> builder.apply(data);
+            };
+            setName(name);
+
+            statusLabel = new JLabel("Loading...");
+            JProgressBar progressBar = new JProgressBar();
+            progressBar.setIndeterminate(true);
+            JPanel loadingPanel = new JPanel(new BorderLayout(0, 5));
+            loadingPanel.setOpaque(false);
+            loadingPanel.add(statusLabel, BorderLayout.NORTH);
+            loadingPanel.add(progressBar, BorderLayout.CENTER);
+            add(loadingPanel);
+        }
+
+        /**
+         * Starts building the real panel if that hasn't happened yet. Must be called on the event dispatch thread.
+         */
+        public void materialize()
+        {
+            if (started)
+                return;
+            started = true;
+
+            long start = System.nanoTime();
+            new SwingWorker<Supplier<JPanel>, Void>()
+            {
+                @Override
+                protected Supplier<JPanel> doInBackground() throws Exception
+                {
+                    return preparation.call();
+                }
+
+                @Override
+                protected void done()
+                {
+                    try {
+                        setContent(get().get());
+                        if (buildTimer != null)
+                            buildTimer.recordSince(start);
+                    }
+                    catch (InterruptedException | ExecutionException | RuntimeException e) {
+                        Throwable cause = e instanceof ExecutionException && e.getCause() != null ? e.getCause() : e;
+                        System.err.println("[ERROR]: Failed to create panel \"" + getName() + "\": " + cause);
+                        statusLabel.setText("Failed to load: " + cause.getMessage());
+                        started = false;
+                    }
+                }
+            }.execute();
+        }
+
+        /**
+         * Sets the timer which records how long this panel takes to build
+         * @param buildTimer a <code>MetricsRegistry.Timer</code>
+         */
+        void setBuildTimer(MetricsRegistry.Timer buildTimer)
+        {
+            this.buildTimer = buildTimer;
+        }
+
+        private void setContent(JPanel content)
+        {
+            this.content = content;
+            removeAll();
+            setLayout(new BorderLayout());
+            add(content, BorderLayout.CENTER);
+            revalidate();
+            repaint();
+        }
+
+        /**
+         * Gets whether the real panel has been built
+         * @return a <code>boolean</code>
+         */
+        public boolean isMaterialized()
+        {
+            return content != null;
+        }
+
+        /**
+         * Gets the real panel, if it has been built
+         * @return an <code>Optional</code><<code>JPanel</code>>
+         */
+        public Optional<JPanel> getContent()
+        {
+            return Optional.ofNullable(content);
+        }
+    }
 }
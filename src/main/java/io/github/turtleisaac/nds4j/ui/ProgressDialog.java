@@ -0,0 +1,129 @@
+package io.github.turtleisaac.nds4j.ui;
+
+import net.miginfocom.swing.MigLayout;
+
+import javax.swing.*;
+import java.awt.*;
+import java.beans.PropertyChangeEvent;
+
+/**
+ * A small dialog which displays the progress of a long-running <code>SwingWorker</code> and allows the user to cancel it.
+ * <p>The dialog is only shown if the operation takes longer than a short delay, so that fast operations
+ * do not cause it to flash on screen.</p>
+ */
+class ProgressDialog extends JDialog
+{
+    private static final int showDelay = 300;
+
+    private final JLabel statusLabel;
+    private final JProgressBar progressBar;
+    private final JButton cancelButton;
+    private final Timer showTimer;
+
+    private SwingWorker<?, ?> worker;
+    private boolean finished;
+
+    /**
+     * Creates a new <code>ProgressDialog</code>
+     * @param parentComponent the <code>Component</code> this dialog should be positioned relative to, or <code>null</code>
+     * @param title a <code>String</code> containing the title of the dialog
+     */
+    protected ProgressDialog(Component parentComponent, String title)
+    {
+        super(parentComponent == null ? null : SwingUtilities.getWindowAncestor(parentComponent), title, ModalityType.DOCUMENT_MODAL);
+        setDefaultCloseOperation(DO_NOTHING_ON_CLOSE);
+
+        statusLabel = new JLabel(" ");
+        progressBar = new JProgressBar(0, 100);
+        progressBar.setStringPainted(true);
+        cancelButton = new JButton("Cancel");
+        cancelButton.addActionListener(e -> cancel());
+
+        JPanel contentPanel = new JPanel(new MigLayout(
+                "insets dialog,hidemode 3",
+                // columns
+                "[grow,fill]",
+                // rows
+                "[][][]"));
+        contentPanel.add(statusLabel, "cell 0 0");
+        contentPanel.add(progressBar, "cell 0 1,width 350:350");
+        contentPanel.add(cancelButton, "cell 0 2,alignx right,growx 0");
+        setContentPane(contentPanel);
+        pack();
+        setLocationRelativeTo(parentComponent);
+
+        showTimer = new Timer(showDelay, e -> {
+            if (!finished)
+                setVisible(true);
+        });
+        showTimer.setRepeats(false);
+    }
+
+    /**
+     * Binds this dialog to the provided <code>SwingWorker</code>, so that its progress is displayed and
+     * pressing the cancel button cancels it. Must be called on the event dispatch thread.
+     * @param worker a <code>SwingWorker</code>
+     */
+    protected void attach(SwingWorker<?, ?> worker)
+    {
+        this.worker = worker;
+        worker.addPropertyChangeListener(this::workerPropertyChanged);
+        showTimer.start();
+    }
+
+    /**
+     * Sets the status text displayed above the progress bar
+     * @param status a <code>String</code>
+     */
+    protected void setStatus(String status)
+    {
+        statusLabel.setText(status);
+    }
+
+    /**
+     * Sets whether the progress bar should be displayed as indeterminate, used for operations which can't report progress
+     * @param indeterminate a <code>boolean</code>
+     */
+    protected void setIndeterminate(boolean indeterminate)
+    {
+        progressBar.setIndeterminate(indeterminate);
+        progressBar.setStringPainted(!indeterminate);
+    }
+
+    /**
+     * Sets whether the user is allowed to cancel the attached operation
+     * @param cancellable a <code>boolean</code>
+     */
+    protected void setCancellable(boolean cancellable)
+    {
+        cancelButton.setEnabled(cancellable);
+    }
+
+    /**
+     * Hides and disposes of this dialog. Must be called on the event dispatch thread.
+     */
+    protected void finish()
+    {
+        finished = true;
+        showTimer.stop();
+        dispose();
+    }
+
+    private void cancel()
+    {
+        if (worker != null)
+        {
+            cancelButton.setEnabled(false);
+            setStatus("Cancelling...");
+            worker.cancel(true);
+        }
+    }
+
+    private void workerPropertyChanged(PropertyChangeEvent e)
+    {
+        if ("progress".equals(e.getPropertyName()))
+        {
+            progressBar.setValue((Integer) e.getNewValue());
+        }
+    }
+}
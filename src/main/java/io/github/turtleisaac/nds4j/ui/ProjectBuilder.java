@@ -0,0 +1,461 @@
+package io.github.turtleisaac.nds4j.ui;
+
+import io.github.turtleisaac.nds4j.NintendoDsRom;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Builds the ROM of a project incrementally, by keeping the last ROM it built in the project and patching only the
+ * files which changed since then into it.
+ * <p>The last built ROM and a small binary build state live in the project's <code>.nds4j</code> folder. The build state
+ * records the SHA-256 hash of every file in the ROM's filesystem as it was built, along with the size and modification
+ * time of every file in the unpacked ROM outside of its filesystem (the header, ARM binaries, overlays and banner).</p>
+ * <p>A build hashes the current contents of the files recorded as changed through <code>recordChanged()</code> since
+ * the last build, and patches the ones which really differ into the last built ROM, along with their end offsets in its
+ * FAT, as long as each still fits in the space up to the start of the next file. The first build made by a builder
+ * hashes every file instead, since the project may have been edited since the build state was written.
+ * Only if a file has outgrown its space, anything outside of the ROM's filesystem changed on disk, or there is no
+ * previous build, is the whole ROM serialized again by <code>NintendoDsRom</code>, which also lays it out again.</p>
+ */
+class ProjectBuilder
+{
+    private static final String buildName = "build.nds";
+    private static final String stateName = "build.bin";
+    private static final int magic = 0x4E445342; // "NDSB"
+    private static final int version = 1;
+    private static final int hashLength = 32;
+    private static final byte padding = (byte) 0xFF;
+    private static final String dataFolder = NintendoDsRom.UNPACKED_FILENAMES.DATA.getName();
+
+    private final Tool tool;
+    private final Path projectPath;
+    private final AtomicBoolean buildQueued = new AtomicBoolean();
+    private final Set<String> changedFiles = ConcurrentHashMap.newKeySet();
+    private volatile boolean allChanged = true;
+    private volatile ExecutorService executor;
+    private volatile boolean closed;
+
+    /**
+     * Used to indicate how a build was carried out
+     */
+    enum Result
+    {
+        /**
+         * Nothing changed since the last build
+         */
+        UNCHANGED,
+        /**
+         * The changed files were patched into the last build
+         */
+        PATCHED,
+        /**
+         * The whole ROM was serialized again
+         */
+        REBUILT
+    }
+
+    /**
+     * What every file looked like when the last build was made
+     */
+    private record BuildState(long buildSize, long buildModified, Map<String, SystemFile> systemFiles, Map<String, byte[]> hashes)
+    {
+    }
+
+    /**
+     * What a single file in the unpacked ROM outside of its filesystem looked like when the last build was made
+     */
+    private record SystemFile(long size, long modified)
+    {
+    }
+
+    /**
+     * Creates a new <code>ProjectBuilder</code> for the project a <code>Tool</code> has open
+     * @param tool the <code>Tool</code> whose loaded ROM is built
+     * @param projectPath a <code>Path</code> to the project directory
+     */
+    ProjectBuilder(Tool tool, Path projectPath)
+    {
+        this.tool = tool;
+        this.projectPath = projectPath;
+    }
+
+    /**
+     * Builds the loaded ROM into the project's build cache, then copies it to the target if one is given
+     * @param target a <code>Path</code> to copy the built ROM to, or <code>null</code> to only update the build cache
+     * @return a <code>Result</code> describing how the build was carried out
+     * @throws IOException if the ROM can't be built or copied
+     */
+    synchronized Result build(Path target) throws IOException
+    {
+        long start = System.nanoTime();
+        Path folder = ProjectManifest.createFolder(projectPath);
+        Path buildPath = folder.resolve(buildName);
+        Path statePath = folder.resolve(stateName);
+
+        Set<String> dataFiles = new HashSet<>();
+        Map<String, SystemFile> systemFiles = listFiles(dataFiles);
+        BuildState state = readState(statePath);
+        // taken before reading any file, so that changes recorded while building are picked up by the next build
+        boolean checkAll = allChanged;
+        allChanged = false;
+        Set<String> candidates = new HashSet<>(changedFiles);
+        changedFiles.removeAll(candidates);
+
+        Result result = null;
+        try {
+            if (state != null && state.systemFiles().equals(systemFiles) && state.hashes().keySet().equals(dataFiles)
+                    && Files.isRegularFile(buildPath)
+                    && Files.size(buildPath) == state.buildSize() && modifiedOf(buildPath) == state.buildModified())
+            {
+                result = patch(buildPath, statePath, state, checkAll ? state.hashes().keySet() : candidates);
+            }
+            if (result == null)
+                result = rebuild(buildPath, statePath, systemFiles);
+        }
+        catch (IOException | RuntimeException e) {
+            if (checkAll)
+                allChanged = true;
+            changedFiles.addAll(candidates);
+            throw e;
+        }
+
+        if (target != null)
+            copy(buildPath, target);
+
+        tool.getMetrics().timer("project.build").recordSince(start);
+        tool.getMetrics().counter("project.build." + result.name().toLowerCase()).increment();
+        return result;
+    }
+
+    /**
+     * Records that a file in the loaded ROM may no longer match the last build, so that the next build compares it
+     * @param pathWithinRom a <code>String</code> containing the path of a file within the ROM's filesystem
+     */
+    void recordChanged(String pathWithinRom)
+    {
+        changedFiles.add(pathWithinRom);
+    }
+
+    /**
+     * Records that any file in the loaded ROM may no longer match the last build, such as after a different ROM was
+     * loaded, so that the next build compares every file
+     */
+    void recordAllChanged()
+    {
+        allChanged = true;
+    }
+
+    /**
+     * Patches the candidates which changed into the last build, or returns <code>null</code> if one of them doesn't fit
+     */
+    private Result patch(Path buildPath, Path statePath, BuildState state, Set<String> candidates) throws IOException
+    {
+        Map<String, byte[]> changed = new LinkedHashMap<>();
+        Map<String, byte[]> changedHashes = new HashMap<>();
+        for (String path : candidates)
+        {
+            byte[] builtHash = state.hashes().get(path);
+            if (builtHash == null)
+                continue;
+            ByteBuffer view = tool.getFileView(path);
+            byte[] data = new byte[view.remaining()];
+            view.get(data);
+            byte[] hash = hash(ByteBuffer.wrap(data));
+            if (!Arrays.equals(hash, builtHash))
+            {
+                changed.put(path, data);
+                changedHashes.put(path, hash);
+            }
+        }
+        if (changed.isEmpty())
+            return Result.UNCHANGED;
+
+        RomLayout layout = RomLayout.read(buildPath);
+        long imageSize = Files.size(buildPath);
+        if (!layout.fitsInPlace(changed, imageSize))
+            return null;
+
+        // a build which is interrupted part way through the patches must not be mistaken for a complete one
+        Files.deleteIfExists(statePath);
+        try (FileChannel channel = FileChannel.open(buildPath, StandardOpenOption.WRITE))
+        {
+            for (Map.Entry<String, byte[]> entry : changed.entrySet())
+            {
+                int fileId = layout.getFileId(entry.getKey());
+                long start = layout.getFileStart(fileId);
+                byte[] data = entry.getValue();
+
+                ByteBuffer patch = ByteBuffer.allocate((int) Math.max(data.length, layout.getFileEnd(fileId) - start));
+                patch.put(data);
+                while (patch.hasRemaining())
+                    patch.put(padding);
+                patch.flip();
+                writeFully(channel, patch, start);
+
+                ByteBuffer fatEnd = ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN).putInt(0, (int) (start + data.length));
+                writeFully(channel, fatEnd, layout.getFatOffset() + (long) fileId * RomLayout.fatEntrySize + 4);
+            }
+            channel.force(true);
+        }
+
+        Map<String, byte[]> hashes = new HashMap<>(state.hashes());
+        hashes.putAll(changedHashes);
+        writeState(statePath, buildPath, state.systemFiles(), hashes);
+        return Result.PATCHED;
+    }
+
+    private Result rebuild(Path buildPath, Path statePath, Map<String, SystemFile> systemFiles) throws IOException
+    {
+        Files.deleteIfExists(statePath);
+        Path temp = FileUtils.createTempFileFor(buildPath);
+        try {
+            tool.getRom().saveToFile(temp.toString(), true);
+            FileUtils.replaceAtomically(temp, buildPath);
+        }
+        finally {
+            Files.deleteIfExists(temp);
+        }
+
+        // hashed from what was actually built, since the files may have been edited again while it was written
+        Map<String, byte[]> hashes = new HashMap<>();
+        try (FileChannel channel = FileChannel.open(buildPath, StandardOpenOption.READ))
+        {
+            MappedByteBuffer image = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            RomLayout layout = RomLayout.parse(image);
+            for (Map.Entry<String, Integer> entry : layout.getFileIds().entrySet())
+            {
+                int start = (int) layout.getFileStart(entry.getValue());
+                int end = (int) layout.getFileEnd(entry.getValue());
+                hashes.put(entry.getKey(), hash(image.slice(start, end - start)));
+            }
+        }
+        writeState(statePath, buildPath, systemFiles, hashes);
+        return Result.REBUILT;
+    }
+
+    private static void copy(Path buildPath, Path target) throws IOException
+    {
+        Path temp = FileUtils.createTempFileFor(target);
+        try {
+            Files.copy(buildPath, temp, StandardCopyOption.REPLACE_EXISTING);
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE))
+            {
+                channel.force(true);
+            }
+            FileUtils.replaceAtomically(temp, target);
+        }
+        finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * Queues a build on a background thread. If a build is already queued and hasn't started yet, that build will
+     * pick up these changes too, so no second one is queued. Nothing is queued once this builder has been closed.
+     * @param target a <code>Path</code> to copy the built ROM to, or <code>null</code> to only update the build cache
+     */
+    synchronized void requestBuild(Path target)
+    {
+        if (closed || !buildQueued.compareAndSet(false, true))
+            return;
+
+        if (executor == null)
+        {
+            executor = Executors.newSingleThreadExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "project-builder");
+                thread.setDaemon(true);
+                return thread;
+            });
+            // close() doesn't wait for a build in progress to give up this lock, so it may have missed the new executor
+            if (closed)
+                executor.shutdownNow();
+        }
+        try {
+            executor.execute(() -> {
+                buildQueued.set(false);
+                try (Tool.Operation ignored = tool.beginOperation("Building ROM")) {
+                    build(target);
+                }
+                catch (IOException | RuntimeException e) {
+                    System.err.println("[ERROR]: Failed to build the project's ROM: " + e.getMessage());
+                }
+            });
+        }
+        catch (RejectedExecutionException e) {
+            // closed while this build was being queued
+        }
+    }
+
+    /**
+     * Gets a <code>Future</code> which completes once every build queued by <code>requestBuild()</code> so far has finished
+     * @return a <code>Future</code>
+     */
+    synchronized Future<?> whenIdle()
+    {
+        if (executor == null)
+            return CompletableFuture.completedFuture(null);
+        try {
+            return executor.submit(() -> {});
+        }
+        catch (RejectedExecutionException e) {
+            return CompletableFuture.completedFuture(null);
+        }
+    }
+
+    /**
+     * Stops this builder's background thread once its session has ended, interrupting any build still in progress.
+     * An interrupted build is never mistaken for a complete one, so the next session simply builds again.
+     */
+    void close()
+    {
+        closed = true;
+        ExecutorService executor = this.executor;
+        if (executor != null)
+            executor.shutdownNow();
+    }
+
+    /**
+     * Discards the last build, so that the next build serializes the whole ROM again. This is needed after changing
+     * anything about the loaded ROM other than the files in its filesystem, such as its ARM9 binary, without saving
+     * it to the project.
+     * @throws IOException if the build can't be deleted
+     */
+    synchronized void invalidate() throws IOException
+    {
+        Path folder = projectPath.resolve(ProjectManifest.folderName);
+        Files.deleteIfExists(folder.resolve(stateName));
+        Files.deleteIfExists(folder.resolve(buildName));
+    }
+
+    /**
+     * Lists the size and modification time of every file in the unpacked ROM outside of its filesystem, and collects
+     * the paths of the files within its filesystem, which are only compared by their contents
+     */
+    private Map<String, SystemFile> listFiles(Set<String> dataFiles) throws IOException
+    {
+        Path unpackedRomPath = Path.of(FileUtils.getProjectUnpackedRomPath(projectPath.toString()));
+        Path dataPath = unpackedRomPath.resolve(dataFolder);
+        Map<String, SystemFile> files = new TreeMap<>();
+        Files.walkFileTree(unpackedRomPath, new SimpleFileVisitor<>()
+        {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs)
+            {
+                if (!attrs.isRegularFile())
+                    return FileVisitResult.CONTINUE;
+                String separator = file.getFileSystem().getSeparator();
+                if (file.startsWith(dataPath))
+                    dataFiles.add(dataPath.relativize(file).toString().replace(separator, "/"));
+                else
+                    files.put(unpackedRomPath.relativize(file).toString().replace(separator, "/"),
+                            new SystemFile(attrs.size(), attrs.lastModifiedTime().to(TimeUnit.NANOSECONDS)));
+                return FileVisitResult.CONTINUE;
+            }
+        });
+        return files;
+    }
+
+    private static BuildState readState(Path statePath) throws IOException
+    {
+        if (!Files.isRegularFile(statePath))
+            return null;
+
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(statePath))))
+        {
+            if (in.readInt() != magic || in.readInt() != version)
+                return null;
+            long buildSize = in.readLong();
+            long buildModified = in.readLong();
+
+            int systemCount = in.readInt();
+            Map<String, SystemFile> systemFiles = new TreeMap<>();
+            for (int i = 0; i < systemCount; i++)
+                systemFiles.put(in.readUTF(), new SystemFile(in.readLong(), in.readLong()));
+
+            int fileCount = in.readInt();
+            Map<String, byte[]> hashes = new HashMap<>(fileCount * 2);
+            for (int i = 0; i < fileCount; i++)
+            {
+                String path = in.readUTF();
+                byte[] hash = new byte[hashLength];
+                in.readFully(hash);
+                hashes.put(path, hash);
+            }
+            return new BuildState(buildSize, buildModified, systemFiles, hashes);
+        }
+        catch (EOFException e) {
+            System.err.println("[WARNING]: The project's build state is truncated: " + statePath);
+            return null;
+        }
+    }
+
+    private static void writeState(Path statePath, Path buildPath, Map<String, SystemFile> systemFiles, Map<String, byte[]> hashes) throws IOException
+    {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64 + hashes.size() * 64);
+        try (DataOutputStream out = new DataOutputStream(bytes))
+        {
+            out.writeInt(magic);
+            out.writeInt(version);
+            out.writeLong(Files.size(buildPath));
+            out.writeLong(modifiedOf(buildPath));
+
+            out.writeInt(systemFiles.size());
+            for (Map.Entry<String, SystemFile> entry : systemFiles.entrySet())
+            {
+                out.writeUTF(entry.getKey());
+                out.writeLong(entry.getValue().size());
+                out.writeLong(entry.getValue().modified());
+            }
+
+            out.writeInt(hashes.size());
+            for (Map.Entry<String, byte[]> entry : new TreeMap<>(hashes).entrySet())
+            {
+                out.writeUTF(entry.getKey());
+                out.write(entry.getValue());
+            }
+        }
+        FileUtils.writeFileAtomically(statePath, bytes.toByteArray());
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer data, long position) throws IOException
+    {
+        long written = 0;
+        while (data.hasRemaining())
+            written += channel.write(data, position + written);
+    }
+
+    private static long modifiedOf(Path file) throws IOException
+    {
+        return Files.getLastModifiedTime(file).to(TimeUnit.NANOSECONDS);
+    }
+
+    private static byte[] hash(ByteBuffer data)
+    {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(data);
+            return digest.digest();
+        }
+        catch (NoSuchAlgorithmException e) {
+            // every Java platform is required to support SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -117,9 +117,10 @@ public class ProjectCreateDialog extends JDialog {
     }
 
     private void baseRomButtonPressed(ActionEvent e) {
-        String romPath = tool.selectAndValidateRom(this);
-        baseRomField.setText(romPath);
-        attemptEnableOkButton();
+        tool.selectAndValidateRom(this, romPath -> {
+            baseRomField.setText(romPath);
+            attemptEnableOkButton();
+        });
     }
 
     private void parentFolderButtonPressed(ActionEvent e) {
@@ -147,11 +148,19 @@ public class ProjectCreateDialog extends JDialog {
     private void okButtonPressed(ActionEvent e) {
         File projectDir = Path.of(parentFolderField.getText(), projectNameField.getText()).toFile();
 
-        try {
-            if (!projectDir.mkdir())
-                throw new RuntimeException("Failed to create project directory: " + projectDir.getAbsolutePath());
+        if (!projectDir.mkdir()) {
+            JOptionPane.showMessageDialog(this, "Failed to create project directory: " + projectDir.getAbsolutePath(), "Error", JOptionPane.ERROR_MESSAGE);
+            return;
+        }
 
-            tool.getRom().unpack(FileUtils.getProjectUnpackedRomPath(projectDir.getAbsolutePath()));
+        okButton.setEnabled(false);
+        new ProjectUnpacker(Path.of(baseRomField.getText()), projectDir.toPath(), tool.getContentStore().orElse(null), this,
+                () -> finishProjectCreation(projectDir),
+                this::attemptEnableOkButton).start();
+    }
+
+    private void finishProjectCreation(File projectDir) {
+        try {
             projectCreated = true;
             projectPath = projectDir.getAbsolutePath();
             File projectFile = new File(FileUtils.getProjectfilePath(projectDir.getAbsolutePath()));
@@ -159,8 +168,7 @@ public class ProjectCreateDialog extends JDialog {
                 throw new RuntimeException("Failed to write " + FileUtils.projectFileName);
             if (gitRadioButton.isSelected())
             {
-                Thread gitThread = getGitThread(projectDir);
-                tool.setGitThread(gitThread);
+                tool.setGitInitialization(initializeGit(projectDir));
             }
             else
             {
@@ -179,9 +187,9 @@ public class ProjectCreateDialog extends JDialog {
         dispose();
     }
 
-    private Thread getGitThread(File projectDir)
+    private TaskExecutor.Task<Void> initializeGit(File projectDir)
     {
-        Thread gitThread = new Thread(() -> {
+        return tool.getTaskExecutor().submit("Creating Git repository for " + projectDir.getName(), () -> {
             try (Git git = Git.init().setDirectory(new File(projectDir.getAbsolutePath())).call()) {
                 tool.setGit(git);
                 AddCommand add = git.add();
@@ -190,13 +198,10 @@ public class ProjectCreateDialog extends JDialog {
                 commit.setMessage("Initial commit").call();
             }
             catch (GitAPIException ex) {
-                JOptionPane.showMessageDialog(this, ex.getMessage(), "Git Commit Error", JOptionPane.ERROR_MESSAGE);
+                SwingUtilities.invokeLater(() -> JOptionPane.showMessageDialog(this, ex.getMessage(), "Git Commit Error", JOptionPane.ERROR_MESSAGE));
                 throw new RuntimeException(ex);
             }
-            tool.setGitThread(null);
         });
-        gitThread.start();
-        return gitThread;
     }
 
     protected boolean wasProjectCreated() {return projectCreated;}
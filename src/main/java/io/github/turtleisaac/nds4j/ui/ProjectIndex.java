@@ -0,0 +1,212 @@
+package io.github.turtleisaac.nds4j.ui;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.*;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Remembers which directories are projects (directly contain a Projectfile) so that file choosers don't have to
+ * check every directory again each time they redraw.
+ * <p>Each directory is checked once and the answer kept in a bounded least-recently-used cache. Cached directories
+ * on local drives are watched with a <code>WatchService</code> so that their entry is dropped as soon as a Projectfile
+ * is created or deleted in them, and otherwise expires after half a minute in case a change was missed. Directories on
+ * network shares aren't watched, since changes made from other machines are never reported there, so their entries
+ * expire after a few seconds instead.</p>
+ */
+class ProjectIndex
+{
+    private static final int maxEntries = 1024;
+    private static final long unwatchedLifetimeNanos = TimeUnit.SECONDS.toNanos(5);
+    private static final long watchedLifetimeNanos = TimeUnit.SECONDS.toNanos(30);
+    private static final Set<String> remoteFileStoreTypes = Set.of("nfs", "nfs4", "cifs", "smb", "smb2", "smbfs", "afpfs", "webdav", "9p", "fuse.sshfs");
+    private static final ProjectIndex instance = new ProjectIndex();
+
+    private static final class IndexEntry
+    {
+        private final boolean project;
+        private final WatchKey watchKey;
+        private final long expiresAt;
+
+        private IndexEntry(boolean project, WatchKey watchKey)
+        {
+            this.project = project;
+            this.watchKey = watchKey;
+            this.expiresAt = System.nanoTime() + (watchKey == null ? unwatchedLifetimeNanos : watchedLifetimeNanos);
+        }
+
+        private boolean isExpired()
+        {
+            return System.nanoTime() - expiresAt > 0;
+        }
+    }
+
+    private final Map<Path, IndexEntry> entries = new LinkedHashMap<>(16, 0.75f, true)
+    {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Path, IndexEntry> eldest)
+        {
+            if (size() <= maxEntries)
+                return false;
+            cancel(eldest.getValue());
+            return true;
+        }
+    };
+    private final WatchService watchService;
+
+    private ProjectIndex()
+    {
+        WatchService service;
+        try {
+            service = FileSystems.getDefault().newWatchService();
+        }
+        catch (IOException | UnsupportedOperationException e) {
+            System.err.println("[WARNING]: Project folders can't be watched for changes: " + e.getMessage());
+            service = null;
+        }
+        watchService = service;
+
+        if (watchService != null)
+        {
+            Thread thread = new Thread(this::processEvents, "project-index-watcher");
+            thread.setDaemon(true);
+            thread.start();
+        }
+    }
+
+    /**
+     * Gets the index shared by every file chooser in the program
+     * @return a <code>ProjectIndex</code>
+     */
+    static ProjectIndex getInstance()
+    {
+        return instance;
+    }
+
+    /**
+     * Gets whether the given directory directly contains a Projectfile
+     * @param directory a <code>File</code> representing a directory
+     * @return a <code>boolean</code>
+     */
+    boolean isProject(File directory)
+    {
+        Path path = directory.toPath().toAbsolutePath();
+        synchronized (entries)
+        {
+            IndexEntry entry = entries.get(path);
+            if (entry != null && !entry.isExpired())
+                return entry.project;
+        }
+
+        // checked outside the lock, since this is the slow part on a network share
+        boolean project = Files.isRegularFile(path.resolve(FileUtils.projectFileName));
+        put(path, project);
+        return project;
+    }
+
+    /**
+     * Records that the given Projectfile exists, so that its directory is known to be a project without checking
+     * @param projectfile a <code>File</code> representing a Projectfile
+     */
+    void recordProjectfile(File projectfile)
+    {
+        File parent = projectfile.getAbsoluteFile().getParentFile();
+        if (parent == null)
+            return;
+
+        Path path = parent.toPath();
+        synchronized (entries)
+        {
+            IndexEntry entry = entries.get(path);
+            if (entry != null && entry.project && !entry.isExpired())
+                return;
+        }
+        put(path, true);
+    }
+
+    private void put(Path directory, boolean project)
+    {
+        WatchKey watchKey = watch(directory);
+        synchronized (entries)
+        {
+            cancel(entries.put(directory, new IndexEntry(project, watchKey)));
+        }
+    }
+
+    private WatchKey watch(Path directory)
+    {
+        if (watchService == null)
+            return null;
+
+        try {
+            if (remoteFileStoreTypes.contains(Files.getFileStore(directory).type().toLowerCase(Locale.ROOT)))
+                return null;
+            return directory.register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_DELETE);
+        }
+        catch (IOException | UnsupportedOperationException | ClosedWatchServiceException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Stops watching the directory of a replaced or evicted entry, unless another entry still relies on the same key
+     */
+    private void cancel(IndexEntry entry)
+    {
+        if (entry == null || entry.watchKey == null)
+            return;
+
+        // registering the same directory twice returns the same key, so it may still be in use by the current entry
+        for (IndexEntry other : entries.values())
+        {
+            if (other != entry && other.watchKey == entry.watchKey)
+                return;
+        }
+        entry.watchKey.cancel();
+    }
+
+    private void processEvents()
+    {
+        while (true)
+        {
+            WatchKey key;
+            try {
+                key = watchService.take();
+            }
+            catch (InterruptedException | ClosedWatchServiceException e) {
+                return;
+            }
+
+            boolean invalidate = !key.isValid();
+            for (WatchEvent<?> event : key.pollEvents())
+            {
+                if (event.kind() == StandardWatchEventKinds.OVERFLOW
+                        || (event.context() instanceof Path name && name.toString().equals(FileUtils.projectFileName)))
+                    invalidate = true;
+            }
+
+            if (invalidate)
+                invalidate(key);
+            key.reset();
+        }
+    }
+
+    private void invalidate(WatchKey key)
+    {
+        synchronized (entries)
+        {
+            Iterator<IndexEntry> iterator = entries.values().iterator();
+            while (iterator.hasNext())
+            {
+                if (iterator.next().watchKey == key)
+                    iterator.remove();
+            }
+        }
+        key.cancel();
+    }
+}
@@ -0,0 +1,140 @@
+package io.github.turtleisaac.nds4j.ui;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.format.DataFormatDetector;
+import com.fasterxml.jackson.core.format.DataFormatMatcher;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+
+/**
+ * Reads a project's Projectfile, and writes changes to its contents back in the background.
+ * <p>Projectfiles are parsed straight from the file as a stream, and may be either JSON or Smile, a binary encoding of
+ * JSON which is smaller and faster to parse. The format is detected from the start of the file, so a project can be
+ * switched between the two at any time.</p>
+ * <p>A write is only made once requests for one stop arriving, as decided by a <code>Debouncer</code>, so a tool which
+ * changes its project info many times in a row only writes the Projectfile once. The contents are written to a temporary file which is renamed over
+ * the Projectfile, and nothing is written if they didn't change.</p>
+ */
+class ProjectInfoStore
+{
+    private static final ObjectMapper jsonMapper = new ObjectMapper();
+    private static final ObjectMapper smileMapper = new ObjectMapper(new SmileFactory());
+    private static final DataFormatDetector detector = new DataFormatDetector(jsonMapper.getFactory(), smileMapper.getFactory());
+
+    private final Path projectfile;
+    private final ObjectWriter writer;
+    private final Consumer<Path> onWritten;
+    private final Debouncer debouncer;
+
+    private ObjectNode pendingInfo;
+
+    /**
+     * Creates a new <code>ProjectInfoStore</code>
+     * @param projectfile a <code>Path</code> to the Projectfile
+     * @param binary a <code>boolean</code> representing whether the Projectfile is written as Smile instead of JSON
+     * @param debounce a <code>Duration</code> containing how long to wait for further changes before writing
+     * @param onWritten a <code>Consumer</code> which is given the path of the Projectfile each time its contents are
+     *                  written, on the task which wrote it
+     * @param executor the <code>TaskExecutor</code> to write the Projectfile on
+     */
+    ProjectInfoStore(Path projectfile, boolean binary, Duration debounce, Consumer<Path> onWritten, TaskExecutor executor)
+    {
+        this.projectfile = projectfile;
+        this.writer = binary ? smileMapper.writer() : jsonMapper.writerWithDefaultPrettyPrinter();
+        this.onWritten = onWritten;
+        this.debouncer = new Debouncer(executor, "Writing the Projectfile", debounce, this::writePending);
+    }
+
+    /**
+     * Reads the contents of a Projectfile in either JSON or Smile format
+     * @param projectfile a <code>Path</code> to the Projectfile
+     * @return an <code>ObjectNode</code>, which is empty if the Projectfile is empty or doesn't contain an object
+     * @throws IOException if the Projectfile can't be read or parsed
+     */
+    static ObjectNode read(Path projectfile) throws IOException
+    {
+        try (InputStream in = Files.newInputStream(projectfile))
+        {
+            DataFormatMatcher match = detector.findFormat(in);
+            // anything which is neither is handed to the JSON parser so that the error describes what is wrong with it
+            JsonParser parser = match.hasMatch() ? match.createParserWithMatch()
+                    : jsonMapper.getFactory().createParser(match.getDataStream());
+            try (parser)
+            {
+                JsonNode node = jsonMapper.readTree(parser);
+                return node instanceof ObjectNode objectNode ? objectNode : JsonNodeFactory.instance.objectNode();
+            }
+        }
+    }
+
+    /**
+     * Queues a write of the Projectfile. This never blocks on a write which is already in progress.
+     * @param info an <code>ObjectNode</code> containing the contents to write, which must not be changed afterwards.
+     *             It replaces the contents of any write which is still queued.
+     * @throws IllegalStateException if the tool's window has closed
+     */
+    void request(ObjectNode info)
+    {
+        synchronized (this)
+        {
+            pendingInfo = info;
+        }
+        debouncer.request();
+    }
+
+    /**
+     * Writes the Projectfile right away if a write is queued, skipping the rest of the debounce window
+     * @return a <code>Future</code> which completes once the write (if there was anything to write) has finished
+     */
+    Future<?> flush()
+    {
+        return debouncer.flush();
+    }
+
+    /**
+     * Gets whether a write of the Projectfile is queued and has not been made yet
+     * @return a <code>boolean</code>
+     */
+    synchronized boolean isPending()
+    {
+        return pendingInfo != null;
+    }
+
+    private void writePending()
+    {
+        ObjectNode info;
+        synchronized (this)
+        {
+            if (pendingInfo == null)
+                return;
+            info = pendingInfo;
+            pendingInfo = null;
+        }
+
+        try {
+            if (FileUtils.writeFileIfChanged(projectfile, writer.writeValueAsBytes(info)))
+                onWritten.accept(projectfile);
+        }
+        catch (IOException e) {
+            // left queued unless something newer was, so that the next request or flush tries again
+            synchronized (this)
+            {
+                if (pendingInfo == null)
+                    pendingInfo = info;
+            }
+            System.err.println("[ERROR]: Failed to write " + FileUtils.projectFileName + ": " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,351 @@
+package io.github.turtleisaac.nds4j.ui;
+
+import io.github.turtleisaac.nds4j.NintendoDsRom;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Lets a project be opened again without reading every file in it, by keeping a packed copy of its ROM along with a
+ * manifest of what the project's files looked like when that copy was made.
+ * <p>Both live in a <code>.nds4j</code> folder in the project, which is ignored by Git. The snapshot is a regular ROM
+ * file, and the manifest is a small binary file recording the path, size, modification time and SHA-256 hash of every
+ * file in the unpacked ROM. When the project is opened, the files' metadata is compared against the manifest, and if
+ * only the contents of files in the ROM's filesystem changed, the ROM is loaded from the snapshot in a single read with
+ * just the changed files read from the project. Files whose metadata changed are hashed, so files which were rewritten
+ * with the same contents (such as by a Git checkout) don't count as changed.</p>
+ * <p>As in Git, a file whose modification time is not clearly older than the manifest itself is always hashed, since
+ * on filesystems which only store modification times to the nearest second or two (such as FAT or HFS+), an edit
+ * which keeps the file's size and lands in the same tick as the manifest was written would otherwise go unnoticed.</p>
+ * <p>Once the changed files add up to a large part of the ROM, or anything other than the contents of the ROM's
+ * filesystem changed (such as the header, the ARM binaries or a file being added), the whole project is read as before
+ * and the snapshot and manifest are rewritten in the background once the project is open.</p>
+ */
+class ProjectManifest
+{
+    static final String folderName = ".nds4j";
+    private static final String manifestName = "manifest.bin";
+    static final String snapshotName = "snapshot.nds";
+    private static final int magic = 0x4E44534D; // "NDSM"
+    private static final int version = 1;
+    private static final int hashLength = 32;
+    private static final String dataPrefix = NintendoDsRom.UNPACKED_FILENAMES.DATA.getName() + "/";
+    // the coarsest modification time resolution of any filesystem a project is likely to be on (FAT)
+    private static final long timestampGranularityNanos = TimeUnit.SECONDS.toNanos(2);
+
+    /**
+     * What a single file in the unpacked ROM looked like when the manifest was written
+     */
+    private record Entry(long size, long modified, byte[] hash)
+    {
+    }
+
+    private final long snapshotSize;
+    private final long snapshotModified;
+    private final long manifestModified;
+    private final Map<String, Entry> entries;
+
+    private ProjectManifest(long snapshotSize, long snapshotModified, long manifestModified, Map<String, Entry> entries)
+    {
+        this.snapshotSize = snapshotSize;
+        this.snapshotModified = snapshotModified;
+        this.manifestModified = manifestModified;
+        this.entries = entries;
+    }
+
+    /**
+     * Gets whether a file's recorded metadata can be trusted to show that it hasn't changed since the manifest was
+     * written. It can't if the file was modified so close to the manifest being written that a later edit could have
+     * been given the same modification time.
+     */
+    private boolean isUnchanged(Entry entry, BasicFileAttributes attributes)
+    {
+        return attributes.size() == entry.size() && modifiedOf(attributes) == entry.modified()
+                && entry.modified() < manifestModified - timestampGranularityNanos;
+    }
+
+    /**
+     * Records the current state of a freshly unpacked project, using a copy of the ROM it was unpacked from as the
+     * snapshot, without hashing again any file whose hash is already known. The project must not be modified until
+     * this returns.
+     * @param projectPath a <code>Path</code> to the project directory
+     * @param romPath a <code>Path</code> to the ROM file the project was unpacked from, unmodified
+     * @param store the <code>ContentStore</code> to link the snapshot from, or <code>null</code> to copy it
+     * @param romHash a <code>byte[]</code> containing the SHA-256 hash of the ROM file, or <code>null</code> if it isn't known
+     * @param hashes a <code>Map</code> of the paths of files relative to the unpacked ROM's folder to the SHA-256 hashes
+     *               of their contents, for the files whose hashes are known
+     * @throws IOException if the project can't be read or the manifest can't be written
+     */
+    static void create(Path projectPath, Path romPath, ContentStore store, byte[] romHash, Map<String, byte[]> hashes) throws IOException
+    {
+        Path folder = createFolder(projectPath);
+        Path snapshot = folder.resolve(snapshotName);
+        Files.deleteIfExists(snapshot);
+        if (store == null)
+            Files.copy(romPath, snapshot);
+        else if (romHash != null)
+            store.link(snapshot, romPath, romHash);
+        else
+            store.link(snapshot, romPath);
+
+        Path unpackedRomPath = getUnpackedRomPath(projectPath);
+        Map<String, Entry> entries = new HashMap<>();
+        for (Map.Entry<String, BasicFileAttributes> file : listFiles(unpackedRomPath).entrySet())
+        {
+            BasicFileAttributes attributes = file.getValue();
+            byte[] hash = hashes.get(file.getKey());
+            if (hash == null)
+                hash = hash(Files.readAllBytes(unpackedRomPath.resolve(file.getKey())));
+            entries.put(file.getKey(), new Entry(attributes.size(), modifiedOf(attributes), hash));
+        }
+        write(projectPath, snapshot, entries);
+    }
+
+    /**
+     * Loads the ROM inside a project, reading only the files which changed since the manifest was written if possible.
+     * If the project has no usable manifest or snapshot, the whole project is read and a new manifest and snapshot are
+     * written for next time before this returns.
+     * @param projectPath a <code>Path</code> to the project directory
+     * @return a <code>NintendoDsRom</code>
+     */
+    static NintendoDsRom load(Path projectPath)
+    {
+        return load(projectPath, Runnable::run);
+    }
+
+    /**
+     * Loads the ROM inside a project, reading only the files which changed since the manifest was written if possible.
+     * If the project has no usable manifest or snapshot, the whole project is read, and a new manifest and snapshot
+     * are written for next time on the given <code>Executor</code>, so that the project can be used in the meantime.
+     * @param projectPath a <code>Path</code> to the project directory
+     * @param background an <code>Executor</code> to write a new manifest and snapshot on
+     * @return a <code>NintendoDsRom</code>
+     */
+    static NintendoDsRom load(Path projectPath, Executor background)
+    {
+        Path unpackedRomPath = getUnpackedRomPath(projectPath);
+        try {
+            ProjectManifest manifest = read(projectPath);
+            Map<String, BasicFileAttributes> files = listFiles(unpackedRomPath);
+            if (manifest != null)
+            {
+                NintendoDsRom rom = manifest.loadIncrementally(projectPath, files);
+                if (rom != null)
+                    return rom;
+            }
+
+            NintendoDsRom rom = NintendoDsRom.fromUnpacked(unpackedRomPath.toString());
+            background.execute(() -> rewrite(projectPath, manifest));
+            return rom;
+        }
+        catch (IOException | UncheckedIOException e) {
+            System.err.println("[WARNING]: Failed to use the project's manifest, reading every file instead: " + e.getMessage());
+            return NintendoDsRom.fromUnpacked(unpackedRomPath.toString());
+        }
+    }
+
+    /**
+     * Loads the ROM from the snapshot with any changed files read from the project, or returns <code>null</code> if
+     * the project changed in a way which means it has to be read in full
+     */
+    private NintendoDsRom loadIncrementally(Path projectPath, Map<String, BasicFileAttributes> files) throws IOException
+    {
+        Path snapshot = projectPath.resolve(folderName).resolve(snapshotName);
+        if (!Files.isRegularFile(snapshot) || Files.size(snapshot) != snapshotSize
+                || Files.getLastModifiedTime(snapshot).to(TimeUnit.NANOSECONDS) != snapshotModified)
+            return null;
+        if (!files.keySet().equals(entries.keySet()))
+            return null;
+
+        Path unpackedRomPath = getUnpackedRomPath(projectPath);
+        Map<String, byte[]> changed = new HashMap<>();
+        Map<String, Entry> touched = new HashMap<>();
+        long changedBytes = 0;
+        for (Map.Entry<String, BasicFileAttributes> file : files.entrySet())
+        {
+            String path = file.getKey();
+            Entry entry = entries.get(path);
+            BasicFileAttributes attributes = file.getValue();
+            long modified = modifiedOf(attributes);
+            if (isUnchanged(entry, attributes))
+                continue;
+
+            byte[] data = Files.readAllBytes(unpackedRomPath.resolve(path));
+            byte[] hash = hash(data);
+            if (Arrays.equals(hash, entry.hash())) {
+                // rewriting the manifest also stops an unchanged file from having to be hashed again next time
+                touched.put(path, new Entry(entry.size(), modified, hash));
+                continue;
+            }
+            if (!path.startsWith(dataPrefix))
+                return null;
+            changed.put(path.substring(dataPrefix.length()), data);
+            changedBytes += data.length;
+        }
+
+        // past this point reading everything and writing a new snapshot is about as cheap as patching this one
+        if (changedBytes > snapshotSize / 4)
+            return null;
+
+        NintendoDsRom rom = NintendoDsRom.fromFile(snapshot.toString());
+        for (Map.Entry<String, byte[]> file : changed.entrySet())
+            rom.setFileByName(file.getKey(), file.getValue());
+
+        if (!touched.isEmpty())
+        {
+            Map<String, Entry> updated = new HashMap<>(entries);
+            updated.putAll(touched);
+            write(projectPath, snapshot, updated);
+        }
+        return rom;
+    }
+
+    /**
+     * Writes a new snapshot of the project's ROM along with a manifest of the files it was read from. Failing to do so
+     * only means the next open is slow, so it is not treated as an error.
+     * <p>This reads the project again rather than using the ROM which was opened, since that may already be being
+     * edited. The files are hashed before the snapshot is read, so a file saved in between no longer matches its
+     * recorded hash and is read from the project next time rather than from the snapshot.</p>
+     */
+    private static void rewrite(Path projectPath, ProjectManifest previous)
+    {
+        try {
+            Path unpackedRomPath = getUnpackedRomPath(projectPath);
+            Map<String, BasicFileAttributes> files = listFiles(unpackedRomPath);
+            Map<String, Entry> entries = new HashMap<>();
+            for (Map.Entry<String, BasicFileAttributes> file : files.entrySet())
+            {
+                BasicFileAttributes attributes = file.getValue();
+                long modified = modifiedOf(attributes);
+                Entry entry = previous == null ? null : previous.entries.get(file.getKey());
+                if (entry == null || !previous.isUnchanged(entry, attributes))
+                    entry = new Entry(attributes.size(), modified, hash(Files.readAllBytes(unpackedRomPath.resolve(file.getKey()))));
+                entries.put(file.getKey(), entry);
+            }
+
+            NintendoDsRom rom = NintendoDsRom.fromUnpacked(unpackedRomPath.toString());
+            Path snapshot = createFolder(projectPath).resolve(snapshotName);
+            Path temp = FileUtils.createTempFileFor(snapshot);
+            try {
+                rom.saveToFile(temp.toString(), true);
+                // a snapshot linked from a content store is replaced rather than written through
+                FileUtils.replaceAtomically(temp, snapshot);
+            }
+            finally {
+                Files.deleteIfExists(temp);
+            }
+            write(projectPath, snapshot, entries);
+        }
+        catch (IOException | UncheckedIOException e) {
+            System.err.println("[WARNING]: Failed to write the project's manifest: " + e.getMessage());
+        }
+    }
+
+    private static ProjectManifest read(Path projectPath) throws IOException
+    {
+        Path manifestPath = projectPath.resolve(folderName).resolve(manifestName);
+        if (!Files.isRegularFile(manifestPath))
+            return null;
+
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(manifestPath))))
+        {
+            if (in.readInt() != magic || in.readInt() != version)
+                return null;
+            long snapshotSize = in.readLong();
+            long snapshotModified = in.readLong();
+            int count = in.readInt();
+            Map<String, Entry> entries = new HashMap<>(count * 2);
+            for (int i = 0; i < count; i++)
+            {
+                String path = in.readUTF();
+                long size = in.readLong();
+                long modified = in.readLong();
+                byte[] hash = new byte[hashLength];
+                in.readFully(hash);
+                entries.put(path, new Entry(size, modified, hash));
+            }
+            return new ProjectManifest(snapshotSize, snapshotModified, Files.getLastModifiedTime(manifestPath).to(TimeUnit.NANOSECONDS), entries);
+        }
+        catch (EOFException e) {
+            System.err.println("[WARNING]: The project's manifest is truncated: " + manifestPath);
+            return null;
+        }
+    }
+
+    private static void write(Path projectPath, Path snapshot, Map<String, Entry> entries) throws IOException
+    {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64 + entries.size() * 64);
+        try (DataOutputStream out = new DataOutputStream(bytes))
+        {
+            out.writeInt(magic);
+            out.writeInt(version);
+            out.writeLong(Files.size(snapshot));
+            out.writeLong(Files.getLastModifiedTime(snapshot).to(TimeUnit.NANOSECONDS));
+            out.writeInt(entries.size());
+            for (Map.Entry<String, Entry> entry : new TreeMap<>(entries).entrySet())
+            {
+                out.writeUTF(entry.getKey());
+                out.writeLong(entry.getValue().size());
+                out.writeLong(entry.getValue().modified());
+                out.write(entry.getValue().hash());
+            }
+        }
+        FileUtils.writeFileAtomically(projectPath.resolve(folderName).resolve(manifestName), bytes.toByteArray());
+    }
+
+    static Path createFolder(Path projectPath) throws IOException
+    {
+        Path folder = Files.createDirectories(projectPath.resolve(folderName));
+        Path gitignore = folder.resolve(".gitignore");
+        if (!Files.exists(gitignore))
+            Files.writeString(gitignore, "*\n", StandardCharsets.UTF_8);
+        return folder;
+    }
+
+    /**
+     * Lists every regular file in the unpacked ROM by its path relative to the unpacked ROM's folder
+     */
+    private static Map<String, BasicFileAttributes> listFiles(Path unpackedRomPath) throws IOException
+    {
+        Map<String, BasicFileAttributes> files = new HashMap<>();
+        Files.walkFileTree(unpackedRomPath, new SimpleFileVisitor<>()
+        {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs)
+            {
+                if (attrs.isRegularFile())
+                    files.put(unpackedRomPath.relativize(file).toString().replace(file.getFileSystem().getSeparator(), "/"), attrs);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+        return files;
+    }
+
+    private static Path getUnpackedRomPath(Path projectPath)
+    {
+        return Path.of(FileUtils.getProjectUnpackedRomPath(projectPath.toString()));
+    }
+
+    private static long modifiedOf(BasicFileAttributes attributes)
+    {
+        return attributes.lastModifiedTime().to(TimeUnit.NANOSECONDS);
+    }
+
+    private static byte[] hash(byte[] data)
+    {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(data);
+        }
+        catch (NoSuchAlgorithmException e) {
+            // every Java platform is required to support SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -6,16 +6,13 @@ package io.github.turtleisaac.nds4j.ui;
 
 import java.awt.*;
 import java.awt.event.*;
-import java.nio.charset.StandardCharsets;
+import java.io.IOException;
 import java.nio.file.Paths;
 import java.util.*;
 import javax.swing.*;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.formdev.flatlaf.util.SystemInfo;
-import io.github.turtleisaac.nds4j.framework.Buffer;
 import net.miginfocom.swing.*;
 
 public class ProjectStartPanel extends JPanel {
@@ -90,19 +87,12 @@ public class ProjectStartPanel extends JPanel {
     {
         projectOpened = true;
         this.projectPath = projectPath;
-        ObjectMapper objectMapper = new ObjectMapper();
         try {
-            projectInfo = (ObjectNode) objectMapper.readTree(new String(Buffer.readFile(Paths.get(projectPath, FileUtils.projectFileName)), StandardCharsets.UTF_8));
+            projectInfo = ProjectInfoStore.read(Paths.get(projectPath, FileUtils.projectFileName));
         }
-        catch (JsonProcessingException e) {
+        catch (IOException e) {
             JOptionPane.showMessageDialog(this, "A fatal error occurred while reading data:\n" + e.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
             throw new RuntimeException(e);
-        } catch(ClassCastException ignored) {
-        } finally {
-            if (projectInfo == null)
-            {
-                projectInfo = objectMapper.createObjectNode();
-            }
         }
         tool.getProjectStartFrame().dispose();
     }
@@ -0,0 +1,338 @@
+package io.github.turtleisaac.nds4j.ui;
+
+import io.github.turtleisaac.nds4j.NintendoDsRom;
+
+import javax.swing.*;
+import java.awt.*;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+import java.util.function.IntConsumer;
+import java.util.stream.Stream;
+
+/**
+ * Unpacks a ROM file into a new project directory on a background thread, writing the files in the ROM's filesystem in
+ * parallel while displaying the progress to the user in a <code>ProgressDialog</code>.
+ * <p>The ROM is read into a private <code>NintendoDsRom</code> for this, so a ROM the tool has already loaded from the
+ * same file is never touched while its files are detached for unpacking.</p>
+ * <p>If the operation fails or the user cancels it, the project directory is deleted again.</p>
+ * <p>If a <code>ContentStore</code> is given, the files are linked from the store instead of written out, with any file
+ * the store doesn't have yet being added to it first. A ROM the store has unpacked before isn't parsed at all, its
+ * files are just linked again.</p>
+ * <p>Every file is hashed once while it is written, and those hashes are what the project's manifest is made from.</p>
+ */
+class ProjectUnpacker extends SwingWorker<Void, Void>
+{
+    private static final byte[] emptyFile = new byte[0];
+    private static final AtomicInteger poolNumber = new AtomicInteger();
+
+    private final Path baseRomPath;
+    private final Path projectPath;
+    private final ContentStore store;
+    private final Component parentComponent;
+    private final Runnable onUnpacked;
+    private final Runnable onFailed;
+    private final ProgressDialog dialog;
+
+    /**
+     * Creates a new <code>ProjectUnpacker</code>. Nothing happens until <code>start()</code> is called.
+     * @param baseRomPath a <code>Path</code> to the ROM file to unpack
+     * @param projectPath a <code>Path</code> to the already created, empty project directory
+     * @param store the <code>ContentStore</code> to link the files from, or <code>null</code> to write them all out
+     * @param parentComponent the <code>Component</code> to display the progress and any errors relative to
+     * @param onUnpacked a <code>Runnable</code> which is run on the event dispatch thread if unpacking succeeds
+     * @param onFailed a <code>Runnable</code> which is run on the event dispatch thread if unpacking fails or is cancelled
+     */
+    protected ProjectUnpacker(Path baseRomPath, Path projectPath, ContentStore store, Component parentComponent, Runnable onUnpacked, Runnable onFailed)
+    {
+        this.baseRomPath = baseRomPath;
+        this.projectPath = projectPath;
+        this.store = store;
+        this.parentComponent = parentComponent;
+        this.onUnpacked = onUnpacked;
+        this.onFailed = onFailed;
+        this.dialog = new ProgressDialog(parentComponent, "Creating Project");
+        dialog.setStatus("Preparing...");
+    }
+
+    /**
+     * Starts unpacking in the background. Must be called on the event dispatch thread.
+     */
+    protected void start()
+    {
+        dialog.attach(this);
+        execute();
+    }
+
+    @Override
+    protected Void doInBackground() throws Exception
+    {
+        // the rollback happens here rather than in done(), since done() runs as soon as the worker is cancelled,
+        // which may be before the writers have stopped
+        try {
+            unpack(baseRomPath, projectPath, store, this::isCancelled, this::setProgress);
+        }
+        catch (Exception e) {
+            rollBack();
+            throw e;
+        }
+
+        if (isCancelled())
+            rollBack();
+        return null;
+    }
+
+    /**
+     * Unpacks a ROM into an empty project directory on the calling thread, without displaying anything.
+     * <p>Nothing is rolled back if this fails or is cancelled part way through.</p>
+     * @param baseRomPath a <code>Path</code> to the ROM file to unpack
+     * @param projectPath a <code>Path</code> to the already created, empty project directory
+     * @param cancelled a <code>BooleanSupplier</code> which is checked between files, and stops unpacking once it returns true
+     * @param progress an <code>IntConsumer</code> which is given the percentage of the filesystem written so far
+     * @throws Exception if the ROM can't be read or the project can't be written
+     */
+    static void unpack(Path baseRomPath, Path projectPath, BooleanSupplier cancelled, IntConsumer progress) throws Exception
+    {
+        unpack(baseRomPath, projectPath, null, cancelled, progress);
+    }
+
+    /**
+     * Unpacks a ROM into an empty project directory on the calling thread, linking its files from a
+     * <code>ContentStore</code>, without displaying anything.
+     * <p>Nothing is rolled back if this fails or is cancelled part way through.</p>
+     * @param baseRomPath a <code>Path</code> to the ROM file to unpack
+     * @param projectPath a <code>Path</code> to the already created, empty project directory
+     * @param store the <code>ContentStore</code> to link the files from, or <code>null</code> to write them all out
+     * @param cancelled a <code>BooleanSupplier</code> which is checked between files, and stops unpacking once it returns true
+     * @param progress an <code>IntConsumer</code> which is given the percentage of the filesystem written so far
+     * @throws Exception if the ROM can't be read or the project can't be written
+     */
+    static void unpack(Path baseRomPath, Path projectPath, ContentStore store, BooleanSupplier cancelled, IntConsumer progress) throws Exception
+    {
+        Path unpackedRomPath = Path.of(FileUtils.getProjectUnpackedRomPath(projectPath.toString()));
+        Path dataPath = unpackedRomPath.resolve(NintendoDsRom.UNPACKED_FILENAMES.DATA.getName());
+
+        byte[] romHash = null;
+        if (store != null)
+        {
+            romHash = ContentStore.hash(baseRomPath);
+            Map<String, byte[]> known = store.findRom(romHash);
+            if (known != null)
+            {
+                linkFiles(unpackedRomPath, known, store, cancelled, progress);
+                if (!cancelled.getAsBoolean())
+                    createManifest(projectPath, baseRomPath, store, romHash, known);
+                return;
+            }
+        }
+
+        Set<String> paths = RomLayout.read(baseRomPath).getFileIds().keySet();
+
+        // NintendoDsRom.unpack() writes everything one file at a time, so the filesystem's files are detached from
+        // this private copy of the ROM first. It then only has to write the header, ARM binaries, overlays and banner,
+        // and leaves empty placeholders in the data folder which the pool below overwrites in parallel.
+        NintendoDsRom rom = NintendoDsRom.fromFile(baseRomPath.toString());
+        Map<String, byte[]> detached = new LinkedHashMap<>();
+        for (String path : paths)
+        {
+            detached.put(path, rom.getFileByName(path));
+            rom.setFileByName(path, emptyFile);
+        }
+        rom.unpack(unpackedRomPath.toString());
+
+        if (cancelled.getAsBoolean())
+            return;
+
+        createDirectories(dataPath, paths);
+        Map<String, byte[]> hashes = new HashMap<>();
+        String dataPrefix = NintendoDsRom.UNPACKED_FILENAMES.DATA.getName() + "/";
+        for (Map.Entry<String, byte[]> file : writeFiles(dataPath, detached, store, cancelled, progress).entrySet())
+            hashes.put(dataPrefix + file.getKey(), file.getValue());
+
+        if (cancelled.getAsBoolean())
+            return;
+        if (store != null)
+        {
+            storeUnpackedFiles(unpackedRomPath, hashes, store);
+            createManifest(projectPath, baseRomPath, store, romHash, hashes);
+            try {
+                store.recordRom(romHash, hashes);
+            }
+            catch (IOException e) {
+                System.err.println("[WARNING]: Failed to record the ROM in the content store: " + e.getMessage());
+            }
+        }
+        else
+        {
+            createManifest(projectPath, baseRomPath, null, null, hashes);
+        }
+    }
+
+    private static void createManifest(Path projectPath, Path baseRomPath, ContentStore store, byte[] romHash, Map<String, byte[]> hashes)
+    {
+        try {
+            ProjectManifest.create(projectPath, baseRomPath, store, romHash, hashes);
+        }
+        catch (IOException e) {
+            // the project is still usable, it just opens slower the first time
+            System.err.println("[WARNING]: Failed to write the project's manifest: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Links every file of a ROM the store has unpacked before into the unpacked ROM's folder
+     */
+    private static void linkFiles(Path unpackedRomPath, Map<String, byte[]> files, ContentStore store, BooleanSupplier cancelled, IntConsumer progress) throws IOException
+    {
+        SortedSet<Path> directories = new TreeSet<>();
+        for (String path : files.keySet())
+            directories.add(unpackedRomPath.resolve(path).getParent());
+        for (Path directory : directories)
+            Files.createDirectories(directory);
+
+        int linked = 0;
+        for (Map.Entry<String, byte[]> file : files.entrySet())
+        {
+            if (cancelled.getAsBoolean())
+                return;
+            store.linkStored(unpackedRomPath.resolve(file.getKey()), file.getValue());
+            progress.accept(++linked * 100 / files.size());
+        }
+    }
+
+    /**
+     * Moves the files written by <code>NintendoDsRom.unpack()</code> outside the filesystem (the header, ARM binaries,
+     * overlays and banner) into the store, so the store holds every file of the ROM and can link it next time
+     * @param hashes the hashes of the files already in the store, which the hashes of the moved files are added to
+     */
+    private static void storeUnpackedFiles(Path unpackedRomPath, Map<String, byte[]> hashes, ContentStore store) throws IOException
+    {
+        java.util.List<Path> unstored;
+        try (Stream<Path> files = Files.walk(unpackedRomPath))
+        {
+            unstored = files.filter(Files::isRegularFile)
+                    .filter(file -> !hashes.containsKey(getRelativePath(unpackedRomPath, file)))
+                    .toList();
+        }
+        for (Path file : unstored)
+        {
+            byte[] data = Files.readAllBytes(file);
+            byte[] hash = ContentStore.hash(data);
+            Files.delete(file);
+            store.link(file, data, hash);
+            hashes.put(getRelativePath(unpackedRomPath, file), hash);
+        }
+    }
+
+    private static String getRelativePath(Path unpackedRomPath, Path file)
+    {
+        return unpackedRomPath.relativize(file).toString().replace(file.getFileSystem().getSeparator(), "/");
+    }
+
+    /**
+     * Creates every folder needed by the filesystem up front, once each, so the writers never race to create them
+     */
+    private static void createDirectories(Path dataPath, Set<String> paths) throws IOException
+    {
+        SortedSet<Path> directories = new TreeSet<>();
+        for (String path : paths)
+        {
+            Path parent = dataPath.resolve(path).getParent();
+            if (parent != null)
+                directories.add(parent);
+        }
+        for (Path directory : directories)
+            Files.createDirectories(directory);
+    }
+
+    /**
+     * Writes or links the files of the filesystem in parallel
+     * @return a <code>Map</code> of the path of every file written to the SHA-256 hash of its contents
+     */
+    private static Map<String, byte[]> writeFiles(Path dataPath, Map<String, byte[]> files, ContentStore store, BooleanSupplier cancelled, IntConsumer progress) throws Exception
+    {
+        Map<String, byte[]> hashes = new ConcurrentHashMap<>();
+        long totalBytes = 0;
+        for (byte[] data : files.values())
+            totalBytes += data.length;
+
+        int threads = Math.max(2, Math.min(16, Runtime.getRuntime().availableProcessors() * 2));
+        String poolName = "project-unpack-" + poolNumber.incrementAndGet();
+        AtomicInteger threadNumber = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, poolName + "-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        try {
+            CompletionService<Integer> completionService = new ExecutorCompletionService<>(executor);
+            for (Map.Entry<String, byte[]> entry : files.entrySet())
+            {
+                String path = entry.getKey();
+                Path target = dataPath.resolve(path);
+                byte[] data = entry.getValue();
+                completionService.submit(() -> {
+                    byte[] hash = ContentStore.hash(data);
+                    if (store == null) {
+                        Files.write(target, data);
+                    }
+                    else {
+                        // a link can't replace the placeholder left by NintendoDsRom.unpack()
+                        Files.deleteIfExists(target);
+                        store.link(target, data, hash);
+                    }
+                    hashes.put(path, hash);
+                    return data.length;
+                });
+            }
+
+            long writtenBytes = 0;
+            for (int i = 0; i < files.size(); i++)
+            {
+                if (cancelled.getAsBoolean())
+                    return hashes;
+
+                writtenBytes += completionService.take().get();
+                progress.accept(totalBytes == 0 ? 100 : (int) (writtenBytes * 100 / totalBytes));
+            }
+            return hashes;
+        }
+        finally {
+            executor.shutdownNow();
+            boolean interrupted = Thread.interrupted();
+            executor.awaitTermination(10, TimeUnit.SECONDS);
+            if (interrupted)
+                Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    protected void done()
+    {
+        dialog.finish();
+
+        try {
+            get();
+            onUnpacked.run();
+            return;
+        }
+        catch (CancellationException | InterruptedException ignored) {
+        }
+        catch (ExecutionException e) {
+            Throwable cause = e.getCause() == null ? e : e.getCause();
+            JOptionPane.showMessageDialog(parentComponent, cause.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
+        }
+        onFailed.run();
+    }
+
+    private void rollBack()
+    {
+        if (Files.exists(projectPath) && !FileUtils.clearDirectory(projectPath.toFile()))
+            System.err.println("[WARNING]: Failed to remove partially created project: " + projectPath);
+    }
+}
@@ -0,0 +1,277 @@
+package io.github.turtleisaac.nds4j.ui;
+
+import io.github.turtleisaac.nds4j.NintendoDsRom;
+
+import javax.swing.*;
+import java.awt.*;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Exports a ROM to disk on a background thread, displaying the progress to the user in a <code>ProgressDialog</code>.
+ * <p>The ROM is always written to a temporary file next to the target, which is only renamed over the target once it
+ * has been completely written and flushed to disk. If the export fails, is cancelled or the program dies part way
+ * through, whatever was at the target before is left untouched.</p>
+ * <p>A memory-mapped ROM whose modified files all still fit in their original space is streamed straight from the
+ * mapping: the original image is copied in sections on several threads using positional writes, and then the
+ * modified files and their FAT entries are patched in. A project is built through its <code>ProjectBuilder</code>, which
+ * patches the changed files into the last ROM it built. Any other ROM is serialized by <code>NintendoDsRom</code>.</p>
+ */
+class RomExporter extends SwingWorker<Void, Void>
+{
+    private static final int sectionSize = 8 << 20;
+    private static final byte padding = (byte) 0xFF;
+    private static final AtomicInteger poolNumber = new AtomicInteger();
+
+    private final Tool tool;
+    private final NintendoDsRom rom;
+    private final MappedRom mappedRom;
+    private final ProjectBuilder projectBuilder;
+    private final Path target;
+    private final Component parentComponent;
+    private final Runnable onExported;
+    private final ProgressDialog dialog;
+
+    private RomExporter(Tool tool, NintendoDsRom rom, MappedRom mappedRom, ProjectBuilder projectBuilder, Path target, Component parentComponent, Runnable onExported)
+    {
+        this.tool = tool;
+        this.rom = rom;
+        this.mappedRom = mappedRom;
+        this.projectBuilder = projectBuilder;
+        this.target = target;
+        this.parentComponent = parentComponent;
+        this.onExported = onExported;
+        this.dialog = new ProgressDialog(parentComponent, "Exporting ROM");
+        dialog.setStatus("Writing " + target.getFileName());
+    }
+
+    /**
+     * Creates a new <code>RomExporter</code> for a ROM on the heap. Nothing happens until <code>start()</code> is called.
+     * @param tool the <code>Tool</code> the export is reported to as an operation in progress
+     * @param rom the <code>NintendoDsRom</code> to export
+     * @param target a <code>Path</code> to the file to export to
+     * @param parentComponent the <code>Component</code> to display the progress and any errors relative to
+     * @param onExported a <code>Runnable</code> which is run on the event dispatch thread if the export succeeds, or <code>null</code>
+     * @return a <code>RomExporter</code>
+     */
+    static RomExporter of(Tool tool, NintendoDsRom rom, Path target, Component parentComponent, Runnable onExported)
+    {
+        return new RomExporter(tool, rom, null, null, target, parentComponent, onExported);
+    }
+
+    /**
+     * Creates a new <code>RomExporter</code> for a memory-mapped ROM. Nothing happens until <code>start()</code> is called.
+     * @param tool the <code>Tool</code> the export is reported to as an operation in progress
+     * @param mappedRom the <code>MappedRom</code> to export, with all of its modifications applied
+     * @param target a <code>Path</code> to the file to export to
+     * @param parentComponent the <code>Component</code> to display the progress and any errors relative to
+     * @param onExported a <code>Runnable</code> which is run on the event dispatch thread if the export succeeds, or <code>null</code>
+     * @return a <code>RomExporter</code>
+     */
+    static RomExporter of(Tool tool, MappedRom mappedRom, Path target, Component parentComponent, Runnable onExported)
+    {
+        return new RomExporter(tool, null, mappedRom, null, target, parentComponent, onExported);
+    }
+
+    /**
+     * Creates a new <code>RomExporter</code> for the ROM of a project, which is built incrementally by the given
+     * <code>ProjectBuilder</code>. Nothing happens until <code>start()</code> is called.
+     * @param tool the <code>Tool</code> the export is reported to as an operation in progress
+     * @param projectBuilder the <code>ProjectBuilder</code> of the project whose ROM is exported
+     * @param target a <code>Path</code> to the file to export to
+     * @param parentComponent the <code>Component</code> to display the progress and any errors relative to
+     * @param onExported a <code>Runnable</code> which is run on the event dispatch thread if the export succeeds, or <code>null</code>
+     * @return a <code>RomExporter</code>
+     */
+    static RomExporter of(Tool tool, ProjectBuilder projectBuilder, Path target, Component parentComponent, Runnable onExported)
+    {
+        return new RomExporter(tool, null, null, projectBuilder, target, parentComponent, onExported);
+    }
+
+    /**
+     * Starts exporting in the background. Must be called on the event dispatch thread.
+     */
+    protected void start()
+    {
+        if (mappedRom == null || !mappedRom.getLayout().fitsInPlace(mappedRom.getModifiedFiles(), mappedRom.getImage().capacity()))
+        {
+            dialog.setIndeterminate(true);
+            dialog.setCancellable(false);
+        }
+        dialog.attach(this);
+        execute();
+    }
+
+    @Override
+    protected Void doInBackground() throws Exception
+    {
+        if (projectBuilder != null)
+        {
+            try (Tool.Operation ignored = tool.beginOperation("Building ROM to " + target)) {
+                projectBuilder.build(target);
+            }
+            return null;
+        }
+
+        Path temp = FileUtils.createTempFileFor(target);
+        try (Tool.Operation ignored = tool.beginOperation("Exporting ROM to " + target)) {
+            if (mappedRom != null && !isCancelled() && streamMapped(temp))
+            {
+                if (!isCancelled())
+                    FileUtils.replaceAtomically(temp, target);
+            }
+            else if (!isCancelled())
+            {
+                NintendoDsRom source = rom != null ? rom : mappedRom.toNintendoDsRom();
+                source.saveToFile(temp.toString(), true);
+                try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE))
+                {
+                    channel.force(true);
+                }
+                FileUtils.replaceAtomically(temp, target);
+            }
+        }
+        finally {
+            Files.deleteIfExists(temp);
+        }
+        return null;
+    }
+
+    /**
+     * Streams the mapped image into the temporary file, with the modified files patched in
+     * @return a <code>boolean</code> which is false if the modified files don't fit and the ROM needs to be rebuilt instead
+     */
+    private boolean streamMapped(Path temp) throws Exception
+    {
+        RomLayout layout = mappedRom.getLayout();
+        ByteBuffer image = mappedRom.getImage();
+        Map<String, byte[]> modifiedFiles = mappedRom.getModifiedFiles();
+        long imageSize = image.capacity();
+        if (!layout.fitsInPlace(modifiedFiles, imageSize))
+            return false;
+
+        long totalBytes = imageSize;
+        for (byte[] data : modifiedFiles.values())
+            totalBytes += data.length;
+        AtomicLong writtenBytes = new AtomicLong();
+
+        int threads = Math.max(2, Math.min(8, Runtime.getRuntime().availableProcessors()));
+        String poolName = "rom-export-" + poolNumber.incrementAndGet();
+        AtomicInteger threadNumber = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, poolName + "-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING))
+        {
+            // the original image first, then the patches over the top of it
+            List<Callable<Long>> sections = new ArrayList<>();
+            for (long position = 0; position < imageSize; position += sectionSize)
+            {
+                ByteBuffer section = image.slice((int) position, (int) Math.min(sectionSize, imageSize - position));
+                sections.add(positionalWrite(channel, section, position));
+            }
+            runAll(executor, sections, writtenBytes, totalBytes);
+
+            List<Callable<Long>> patches = new ArrayList<>();
+            for (Map.Entry<String, byte[]> entry : modifiedFiles.entrySet())
+            {
+                int fileId = layout.getFileId(entry.getKey());
+                long start = layout.getFileStart(fileId);
+                long oldEnd = layout.getFileEnd(fileId);
+                byte[] data = entry.getValue();
+                long newEnd = start + data.length;
+
+                ByteBuffer patch = ByteBuffer.allocate((int) Math.max(data.length, oldEnd - start));
+                patch.put(data);
+                while (patch.hasRemaining())
+                    patch.put(padding);
+                patch.flip();
+                patches.add(positionalWrite(channel, patch, start));
+
+                // only the file's end offset in the FAT changes, and its size isn't counted towards the progress
+                ByteBuffer fatEnd = ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN).putInt(0, (int) newEnd);
+                Callable<Long> fatWrite = positionalWrite(channel, fatEnd, layout.getFatOffset() + (long) fileId * RomLayout.fatEntrySize + 4);
+                patches.add(() -> {
+                    fatWrite.call();
+                    return 0L;
+                });
+            }
+            runAll(executor, patches, writtenBytes, totalBytes);
+
+            if (!isCancelled())
+                channel.force(true);
+        }
+        finally {
+            executor.shutdownNow();
+            boolean interrupted = Thread.interrupted();
+            executor.awaitTermination(10, TimeUnit.SECONDS);
+            if (interrupted)
+                Thread.currentThread().interrupt();
+        }
+        return true;
+    }
+
+    private static Callable<Long> positionalWrite(FileChannel channel, ByteBuffer data, long position)
+    {
+        return () -> {
+            ByteBuffer buffer = data.duplicate();
+            long written = 0;
+            while (buffer.hasRemaining())
+                written += channel.write(buffer, position + written);
+            return written;
+        };
+    }
+
+    private void runAll(ExecutorService executor, List<Callable<Long>> tasks, AtomicLong writtenBytes, long totalBytes) throws Exception
+    {
+        CompletionService<Long> completionService = new ExecutorCompletionService<>(executor);
+        List<Future<Long>> futures = new ArrayList<>();
+        for (Callable<Long> task : tasks)
+            futures.add(completionService.submit(task));
+
+        try {
+            for (int i = 0; i < futures.size(); i++)
+            {
+                if (isCancelled())
+                    return;
+
+                long written = writtenBytes.addAndGet(completionService.take().get());
+                setProgress(totalBytes == 0 ? 100 : (int) Math.min(100, written * 100 / totalBytes));
+            }
+        }
+        finally {
+            for (Future<Long> future : futures)
+                future.cancel(true);
+        }
+    }
+
+    @Override
+    protected void done()
+    {
+        dialog.finish();
+
+        try {
+            get();
+            if (onExported != null)
+                onExported.run();
+        }
+        catch (CancellationException | InterruptedException ignored) {
+        }
+        catch (ExecutionException e) {
+            Throwable cause = e.getCause() == null ? e : e.getCause();
+            JOptionPane.showMessageDialog(parentComponent, cause.getMessage(), "ROM Export Failed", JOptionPane.ERROR_MESSAGE);
+        }
+    }
+}
@@ -0,0 +1,283 @@
+package io.github.turtleisaac.nds4j.ui;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A read-only description of where things live inside a packed Nintendo DS ROM image, parsed directly from the
+ * header, file name table (FNT) and file allocation table (FAT) without loading any file contents.
+ */
+class RomLayout
+{
+    static final int gameCodeOffset = 0x0C;
+    static final int fntOffsetOffset = 0x40;
+    static final int fntSizeOffset = 0x44;
+    static final int fatOffsetOffset = 0x48;
+    static final int fatSizeOffset = 0x4C;
+    static final int fatEntrySize = 8;
+    static final int usedRomSizeOffset = 0x80;
+    static final int headerSizeOffset = 0x84;
+    private static final int minimumHeaderSize = 0x200;
+    // the ARM9 and ARM7 binaries, FNT, FAT, both overlay tables and the banner, which files must never grow into
+    private static final int[] regionOffsetOffsets = {0x20, 0x30, 0x40, 0x48, 0x50, 0x58, 0x68};
+
+    private final String gameCode;
+    private final int fntOffset;
+    private final int fntSize;
+    private final int fatOffset;
+    private final int fileCount;
+    private final long[] fileStarts;
+    private final long[] fileEnds;
+    private final long[] regionStarts;
+    private final long usedRomSize;
+    private final long headerSize;
+    private final Map<String, Integer> fileIds;
+    private volatile long[] sortedStarts;
+
+    private RomLayout(ByteBuffer rom)
+    {
+        byte[] gameCodeBytes = new byte[4];
+        rom.get(gameCodeOffset, gameCodeBytes);
+        gameCode = new String(gameCodeBytes, StandardCharsets.US_ASCII);
+
+        fntOffset = rom.getInt(fntOffsetOffset);
+        fntSize = rom.getInt(fntSizeOffset);
+        fatOffset = rom.getInt(fatOffsetOffset);
+        fileCount = rom.getInt(fatSizeOffset) / fatEntrySize;
+
+        fileStarts = new long[fileCount];
+        fileEnds = new long[fileCount];
+        for (int i = 0; i < fileCount; i++)
+        {
+            fileStarts[i] = Integer.toUnsignedLong(rom.getInt(fatOffset + i * fatEntrySize));
+            fileEnds[i] = Integer.toUnsignedLong(rom.getInt(fatOffset + i * fatEntrySize + 4));
+        }
+
+        regionStarts = new long[regionOffsetOffsets.length];
+        for (int i = 0; i < regionOffsetOffsets.length; i++)
+            regionStarts[i] = Integer.toUnsignedLong(rom.getInt(regionOffsetOffsets[i]));
+        usedRomSize = Integer.toUnsignedLong(rom.getInt(usedRomSizeOffset));
+        headerSize = Math.max(minimumHeaderSize, Integer.toUnsignedLong(rom.getInt(headerSizeOffset)));
+
+        fileIds = new LinkedHashMap<>();
+        if (fntSize > 0)
+            readDirectory(rom, 0xF000, "");
+    }
+
+    /**
+     * Parses the layout of the provided ROM image
+     * @param rom a <code>ByteBuffer</code> containing (or mapping) an entire Nintendo DS ROM
+     * @return a <code>RomLayout</code>
+     * @throws IllegalArgumentException if the FNT or FAT point outside of the image
+     */
+    static RomLayout parse(ByteBuffer rom)
+    {
+        ByteBuffer buffer = rom.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        try {
+            return new RomLayout(buffer);
+        }
+        catch (IndexOutOfBoundsException e) {
+            throw new IllegalArgumentException("The provided file is not a valid Nintendo DS ROM", e);
+        }
+    }
+
+    /**
+     * Parses the layout of the ROM at the provided path. Only the pages containing the header, FNT and FAT are
+     * actually read from disk.
+     * @param romPath a <code>Path</code> to a Nintendo DS ROM
+     * @return a <code>RomLayout</code>
+     * @throws IOException if the file can't be read
+     */
+    static RomLayout read(Path romPath) throws IOException
+    {
+        try (FileChannel channel = FileChannel.open(romPath, StandardOpenOption.READ))
+        {
+            return parse(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    private void readDirectory(ByteBuffer rom, int directoryId, String prefix)
+    {
+        int entryOffset = fntOffset + (directoryId & 0xFFF) * 8;
+        int subtableOffset = fntOffset + rom.getInt(entryOffset);
+        int fileId = Short.toUnsignedInt(rom.getShort(entryOffset + 4));
+
+        int position = subtableOffset;
+        int length;
+        while ((length = Byte.toUnsignedInt(rom.get(position++))) != 0)
+        {
+            byte[] nameBytes = new byte[length & 0x7F];
+            rom.get(position, nameBytes);
+            position += nameBytes.length;
+            String name = prefix + new String(nameBytes, StandardCharsets.ISO_8859_1);
+
+            if (length < 0x80)
+            {
+                fileIds.put(name, fileId++);
+            }
+            else
+            {
+                int subdirectoryId = Short.toUnsignedInt(rom.getShort(position));
+                position += 2;
+                readDirectory(rom, subdirectoryId, name + "/");
+            }
+        }
+    }
+
+    /**
+     * Gets the game code stored in the ROM header
+     * @return a <code>String</code>
+     */
+    String getGameCode()
+    {
+        return gameCode;
+    }
+
+    /**
+     * Gets the FAT file id of the file with the given path
+     * @param path a <code>String</code> containing the path of a file within the ROM's filesystem
+     * @return an <code>int</code> containing the file id, or -1 if there is no such file
+     */
+    int getFileId(String path)
+    {
+        return fileIds.getOrDefault(path, -1);
+    }
+
+    /**
+     * Gets the paths of every named file in the ROM's filesystem, mapped to their FAT file ids, in FNT order
+     * @return an unmodifiable <code>Map</code><<code>String</code>, <code>Integer</code>>
+     */
+    Map<String, Integer> getFileIds()
+    {
+        return Collections.unmodifiableMap(fileIds);
+    }
+
+    /**
+     * Gets the number of entries in the FAT, including unnamed overlay files
+     * @return an <code>int</code>
+     */
+    int getFileCount()
+    {
+        return fileCount;
+    }
+
+    /**
+     * Gets the absolute offset in the ROM image of the start of the given file
+     * @param fileId an <code>int</code> containing a FAT file id
+     * @return a <code>long</code>
+     */
+    long getFileStart(int fileId)
+    {
+        return fileStarts[fileId];
+    }
+
+    /**
+     * Gets the absolute offset in the ROM image of the end (exclusive) of the given file
+     * @param fileId an <code>int</code> containing a FAT file id
+     * @return a <code>long</code>
+     */
+    long getFileEnd(int fileId)
+    {
+        return fileEnds[fileId];
+    }
+
+    /**
+     * Gets the absolute offset in the ROM image of the FAT
+     * @return an <code>int</code>
+     */
+    int getFatOffset()
+    {
+        return fatOffset;
+    }
+
+    /**
+     * Gets how much space the given file can take up without overwriting anything, which is up to the start of
+     * whichever file or other part of the ROM follows it in the image.
+     * <p>The last file may only extend up to the used ROM size in the header, since anything after that, such as the
+     * RSA signature of a download play or DSi-enhanced ROM, is not covered by the FAT and the header is never updated
+     * by a patch.</p>
+     * <p>Files which are empty, start inside the header, or share their start with another file or part of the ROM
+     * have no space at all, since there is no telling what writing there would overwrite.</p>
+     * @param fileId an <code>int</code> containing a FAT file id
+     * @param imageSize a <code>long</code> containing the size of the whole ROM image
+     * @return a <code>long</code> containing the absolute offset in the ROM image the file may extend up to (exclusive)
+     */
+    long getSlotEnd(int fileId, long imageSize)
+    {
+        long start = fileStarts[fileId];
+        if (fileEnds[fileId] <= start || start < headerSize)
+            return start;
+
+        if (sortedStarts == null)
+        {
+            // empty files take up no space, so they don't bound anything else
+            long[] starts = new long[fileCount + regionStarts.length];
+            int count = 0;
+            for (int i = 0; i < fileCount; i++)
+            {
+                if (fileEnds[i] > fileStarts[i])
+                    starts[count++] = fileStarts[i];
+            }
+            System.arraycopy(regionStarts, 0, starts, count, regionStarts.length);
+            starts = Arrays.copyOf(starts, count + regionStarts.length);
+            Arrays.sort(starts);
+            sortedStarts = starts;
+        }
+
+        long[] starts = sortedStarts;
+        int next = lowerBound(starts, start);
+        // the first match is this file itself, so a second one means something else starts at the same place
+        if (next + 1 < starts.length && starts[next + 1] == start)
+            return start;
+        next = lowerBound(starts, start + 1);
+        if (next < starts.length)
+            return starts[next];
+        return usedRomSize == 0 ? imageSize : Math.min(usedRomSize, imageSize);
+    }
+
+    /**
+     * Gets the index of the first element of a sorted array which is not less than the given value
+     */
+    private static int lowerBound(long[] sorted, long value)
+    {
+        int low = 0;
+        int high = sorted.length;
+        while (low < high)
+        {
+            int middle = (low + high) >>> 1;
+            if (sorted[middle] < value)
+                low = middle + 1;
+            else
+                high = middle;
+        }
+        return low;
+    }
+
+    /**
+     * Gets whether every one of the given files still fits in the space its original occupied, so that the image can
+     * be patched without moving anything
+     * @param files a <code>Map</code><<code>String</code>, <code>byte[]</code>> of the paths of files within the ROM's
+     *              filesystem to their new contents
+     * @param imageSize a <code>long</code> containing the size of the whole ROM image
+     * @return a <code>boolean</code>
+     */
+    boolean fitsInPlace(Map<String, byte[]> files, long imageSize)
+    {
+        for (Map.Entry<String, byte[]> entry : files.entrySet())
+        {
+            int fileId = getFileId(entry.getKey());
+            if (fileId == -1 || fileStarts[fileId] + entry.getValue().length > getSlotEnd(fileId, imageSize))
+                return false;
+        }
+        return true;
+    }
+}
@@ -0,0 +1,213 @@
+package io.github.turtleisaac.nds4j.ui;
+
+import io.github.turtleisaac.nds4j.NintendoDsRom;
+
+import javax.swing.*;
+import java.awt.*;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Loads and validates a Nintendo DS ROM on a background thread, displaying the progress to the user in a
+ * <code>ProgressDialog</code> and handing the validated ROM to the <code>Tool</code> back on the event dispatch thread.
+ * <p>If the <code>Tool</code> memory-maps ROMs, the ROM is mapped instead of read onto the heap.</p>
+ * <p>The ROM is only fingerprinted for the validation checks' cached verdicts once it is known to need checking,
+ * which is after it was parsed, so the file is read from disk just once.</p>
+ */
+class RomLoader extends SwingWorker<Tool.RomSupportContext, Long>
+{
+    private static final int chunkSize = 1 << 20;
+
+    private final Tool tool;
+    private final Component parentComponent;
+    private final String romPath;
+    private final Runnable onLoaded;
+    private final ProgressDialog dialog;
+
+    private long totalBytes;
+    private NintendoDsRom rom;
+    private MappedRom mappedRom;
+
+    /**
+     * Creates a new <code>RomLoader</code>. Nothing happens until <code>start()</code> is called.
+     * @param tool the <code>Tool</code> the ROM is being loaded for
+     * @param parentComponent the <code>Component</code> to display the progress and any errors relative to
+     * @param romPath a <code>String</code> containing the path of the ROM to load
+     * @param onLoaded a <code>Runnable</code> which is run on the event dispatch thread after the ROM has been handed
+     *                 to the <code>Tool</code>, if it loads successfully and passes validation
+     */
+    protected RomLoader(Tool tool, Component parentComponent, String romPath, Runnable onLoaded)
+    {
+        this.tool = tool;
+        this.parentComponent = parentComponent;
+        this.romPath = romPath;
+        this.onLoaded = onLoaded;
+        this.dialog = new ProgressDialog(parentComponent, "Opening ROM");
+        dialog.setStatus("Reading " + Path.of(romPath).getFileName());
+    }
+
+    /**
+     * Starts loading the ROM in the background. Must be called on the event dispatch thread.
+     */
+    protected void start()
+    {
+        dialog.attach(this);
+        execute();
+    }
+
+    @Override
+    protected Tool.RomSupportContext doInBackground() throws Exception
+    {
+        try (Tool.Operation ignored = tool.beginOperation("Loading ROM " + romPath)) {
+            return load();
+        }
+    }
+
+    private Tool.RomSupportContext load() throws Exception
+    {
+        if (tool.isRomMemoryMapped())
+            return mapAndValidate();
+
+        publish(-1L);
+        long start = System.nanoTime();
+        rom = NintendoDsRom.fromFile(romPath);
+        if (isCancelled())
+            return null;
+        tool.getMetrics().timer("rom.load").recordSince(start);
+
+        Tool.RomSupportContext supportContext = tool.isGameCodeSupported(rom.getGameCode());
+        if (!supportContext.isSupported() || !tool.hasValidationChecks())
+            return supportContext;
+
+        String fingerprint = fingerprintWithProgress();
+        if (isCancelled())
+            return null;
+        return tool.isRomSupported(rom.getGameCode(), fingerprint, () -> rom);
+    }
+
+    /**
+     * Maps the ROM rather than reading it. The game code can be checked straight from the mapped header, but any
+     * validation checks the developer registered need a full <code>NintendoDsRom</code>, so in that case the ROM is
+     * loaded anyway, unless this exact ROM has already passed them before.
+     * @return a <code>RomSupportContext</code>
+     * @throws IOException if the file can't be mapped
+     */
+    private Tool.RomSupportContext mapAndValidate() throws IOException
+    {
+        publish(-1L);
+        long start = System.nanoTime();
+        mappedRom = MappedRom.open(romPath);
+        tool.getMetrics().timer("rom.load").recordSince(start);
+        Tool.RomSupportContext supportContext = tool.isGameCodeSupported(mappedRom.getGameCode());
+        if (!supportContext.isSupported() || !tool.hasValidationChecks())
+            return supportContext;
+
+        String fingerprint = RomValidator.fingerprint(mappedRom.getImage());
+        return tool.isRomSupported(mappedRom.getGameCode(), fingerprint, () -> rom = mappedRom.toNintendoDsRom());
+    }
+
+    /**
+     * Fingerprints the ROM file which was just parsed, reporting byte-level progress. The file was left in the OS page
+     * cache by the parse, so this does not wait on the disk a second time.
+     * @return a <code>String</code> containing the ROM's fingerprint
+     * @throws IOException if the file can't be read
+     */
+    private String fingerprintWithProgress() throws IOException
+    {
+        MessageDigest digest = RomValidator.newDigest();
+        try (FileChannel channel = FileChannel.open(Path.of(romPath), StandardOpenOption.READ))
+        {
+            totalBytes = channel.size();
+            ByteBuffer buffer = ByteBuffer.allocateDirect(chunkSize);
+            long read = 0;
+            int count;
+            while (!isCancelled() && (count = channel.read(buffer)) != -1)
+            {
+                read += count;
+                buffer.flip();
+                digest.update(buffer);
+                buffer.clear();
+                publish(read);
+                setProgress(totalBytes == 0 ? 100 : (int) (read * 100 / totalBytes));
+            }
+        }
+        return RomValidator.digestToString(digest);
+    }
+
+    @Override
+    protected void process(List<Long> chunks)
+    {
+        long latest = chunks.get(chunks.size() - 1);
+        if (latest < 0)
+        {
+            dialog.setIndeterminate(true);
+            dialog.setCancellable(false);
+            dialog.setStatus("Parsing " + Path.of(romPath).getFileName());
+        }
+        else
+        {
+            dialog.setIndeterminate(false);
+            dialog.setCancellable(true);
+            dialog.setStatus(String.format("Checking %s (%d / %d MB)", Path.of(romPath).getFileName(), latest >> 20, totalBytes >> 20));
+        }
+    }
+
+    @Override
+    protected void done()
+    {
+        dialog.finish();
+
+        Tool.RomSupportContext supportContext;
+        try {
+            supportContext = get();
+        }
+        catch (CancellationException | InterruptedException e) {
+            closeMappedRom();
+            return;
+        }
+        catch (ExecutionException e) {
+            closeMappedRom();
+            Throwable cause = e.getCause() == null ? e : e.getCause();
+            JOptionPane.showMessageDialog(parentComponent, cause.getMessage(), "ROM Load Failed", JOptionPane.ERROR_MESSAGE);
+            return;
+        }
+
+        if (supportContext == null) {
+            closeMappedRom();
+            return;
+        }
+
+        if (!supportContext.isSupported()) {
+            closeMappedRom();
+            String errorMessage = supportContext.getErrorMessage().orElse("This ROM has failed a validation check for an unknown reason.");
+            JOptionPane.showMessageDialog(parentComponent, errorMessage, "ROM Not Supported", JOptionPane.ERROR_MESSAGE);
+            return;
+        }
+
+        if (rom != null)
+            closeMappedRom();
+        tool.setLoadedRom(rom, mappedRom);
+        onLoaded.run();
+    }
+
+    private void closeMappedRom()
+    {
+        if (mappedRom == null)
+            return;
+
+        try {
+            mappedRom.close();
+        }
+        catch (IOException e) {
+            System.err.println("[WARNING]: Failed to close deferred ROM: " + e.getMessage());
+        }
+        mappedRom = null;
+    }
+}
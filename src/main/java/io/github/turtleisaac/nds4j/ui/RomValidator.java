@@ -0,0 +1,311 @@
+package io.github.turtleisaac.nds4j.ui;
+
+import io.github.turtleisaac.nds4j.NintendoDsRom;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.prefs.BackingStoreException;
+import java.util.prefs.Preferences;
+
+/**
+ * Runs a <code>Tool</code>'s validation checks against a ROM concurrently, and remembers the verdict for each ROM it
+ * has seen by a fingerprint of the ROM's contents so that opening the same ROM again does not run the checks again.
+ * <p>Verdicts are always remembered for the rest of the session, and also in <code>Preferences</code> if a node is
+ * given. A remembered verdict is only discarded when the tool's name, version or checks' error messages change, since
+ * what a check actually does can't be compared, so a tool whose checks change without any of those changing must not
+ * remember verdicts across sessions, or must clear them.</p>
+ * <p>As soon as a check fails, every check registered after it is cancelled. The checks registered before it are
+ * still allowed to finish, so the reported error is always that of the first failing check in registration order,
+ * no matter which check happens to finish first.</p>
+ */
+class RomValidator
+{
+    private static final int maxCachedVerdicts = 64;
+    private static final String passed = "pass";
+    private static final AtomicInteger poolNumber = new AtomicInteger();
+
+    private final List<Predicate<NintendoDsRom>> predicates;
+    private final List<String> errorMessages;
+    private final String stamp;
+    private final Map<String, String> sessionVerdicts = new ConcurrentHashMap<>();
+    private final Preferences verdicts;
+    private ExecutorService executor;
+
+    private volatile Map<String, Duration> lastTimings = Collections.emptyMap();
+
+    /**
+     * Creates a new <code>RomValidator</code>
+     * @param checks a <code>Map</code> of validation checks to their error messages, in registration order
+     * @param toolIdentity a <code>String</code> identifying the tool, so that cached verdicts are discarded when the
+     *                     tool (and therefore possibly what its checks do) changes
+     * @param verdicts the <code>Preferences</code> node to cache verdicts in across sessions, or <code>null</code> to
+     *                 only cache them for the rest of this session
+     */
+    RomValidator(Map<Predicate<NintendoDsRom>, String> checks, String toolIdentity, Preferences verdicts)
+    {
+        this.predicates = new ArrayList<>(checks.keySet());
+        this.errorMessages = new ArrayList<>(checks.values());
+        this.stamp = digestToString(digest(toolIdentity + "\0" + String.join("\0", errorMessages)));
+        this.verdicts = verdicts;
+    }
+
+    /**
+     * Creates the <code>MessageDigest</code> used to fingerprint ROMs
+     * @return a <code>MessageDigest</code>
+     */
+    static MessageDigest newDigest()
+    {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        }
+        catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(e); // every Java platform is required to support SHA-256
+        }
+    }
+
+    /**
+     * Fingerprints the provided ROM image
+     * @param rom a <code>ByteBuffer</code> containing (or mapping) an entire ROM
+     * @return a <code>String</code> containing the fingerprint
+     */
+    static String fingerprint(ByteBuffer rom)
+    {
+        MessageDigest digest = newDigest();
+        digest.update(rom.duplicate());
+        return digestToString(digest);
+    }
+
+    /**
+     * Converts a digest which has been fed an entire ROM into a fingerprint
+     * @param digest a <code>MessageDigest</code> created by <code>newDigest()</code>
+     * @return a <code>String</code> containing the fingerprint
+     */
+    static String digestToString(MessageDigest digest)
+    {
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    private static MessageDigest digest(String text)
+    {
+        MessageDigest digest = newDigest();
+        digest.update(text.getBytes(StandardCharsets.UTF_8));
+        return digest;
+    }
+
+    /**
+     * Validates a ROM, using the cached verdict for it if there is one
+     * @param fingerprint a <code>String</code> containing the fingerprint of the ROM, or <code>null</code> if it is
+     *                    unknown, in which case the checks are always run and the verdict is not cached
+     * @param romSupplier a <code>Supplier</code><<code>NintendoDsRom</code>> which is only called if the checks need
+     *                    to be run
+     * @return a <code>RomSupportContext</code>
+     */
+    Tool.RomSupportContext validate(String fingerprint, Supplier<NintendoDsRom> romSupplier)
+    {
+        if (predicates.isEmpty())
+            return new Tool.RomSupportContext(true, null);
+
+        if (fingerprint != null)
+        {
+            String verdict = sessionVerdicts.get(fingerprint);
+            if (verdict == null && verdicts != null)
+                verdict = verdicts.get(fingerprint, null);
+            if (verdict != null && verdict.startsWith(stamp + ":"))
+            {
+                lastTimings = Collections.emptyMap();
+                return toContext(verdict.substring(stamp.length() + 1));
+            }
+        }
+
+        int failedIndex = runChecks(romSupplier.get());
+        if (fingerprint != null)
+            cacheVerdict(fingerprint, failedIndex == -1 ? passed : String.valueOf(failedIndex));
+        return failedIndex == -1 ? new Tool.RomSupportContext(true, null) : new Tool.RomSupportContext(false, errorMessages.get(failedIndex));
+    }
+
+    private record CheckResult(boolean passed, long nanos) {}
+
+    /**
+     * A single check which, if it fails, cancels every check registered after it
+     */
+    private static final class CheckTask extends FutureTask<CheckResult>
+    {
+        private final int index;
+        private final List<CheckTask> tasks;
+
+        private CheckTask(Predicate<NintendoDsRom> predicate, NintendoDsRom rom, int index, List<CheckTask> tasks)
+        {
+            super(() -> {
+                long start = System.nanoTime();
+                boolean passed = predicate.test(rom);
+                return new CheckResult(passed, System.nanoTime() - start);
+            });
+            this.index = index;
+            this.tasks = tasks;
+        }
+
+        @Override
+        protected void done()
+        {
+            boolean failed = switch (state()) {
+                case SUCCESS -> !resultNow().passed();
+                case FAILED -> true;
+                default -> false;
+            };
+            if (failed)
+            {
+                for (int i = index + 1; i < tasks.size(); i++)
+                    tasks.get(i).cancel(true);
+            }
+        }
+    }
+
+    /**
+     * Runs every check concurrently
+     * @return an <code>int</code> containing the index of the first failing check, or -1 if they all passed
+     */
+    private int runChecks(NintendoDsRom rom)
+    {
+        List<CheckTask> tasks = new ArrayList<>();
+        for (int i = 0; i < predicates.size(); i++)
+            tasks.add(new CheckTask(predicates.get(i), rom, i, tasks));
+
+        if (tasks.size() == 1)
+        {
+            tasks.get(0).run(); // not worth handing off to another thread
+        }
+        else
+        {
+            ExecutorService executor = getExecutor();
+            for (CheckTask task : tasks)
+                executor.execute(task);
+        }
+
+        try {
+            int failedIndex = awaitFirstFailure(tasks);
+            recordTimings(tasks);
+            return failedIndex;
+        }
+        finally {
+            for (CheckTask task : tasks)
+                task.cancel(true);
+        }
+    }
+
+    /**
+     * Waits on the checks in registration order. Any check which is cancelled along the way was cancelled by an
+     * earlier failing check, which is therefore reached first.
+     */
+    private static int awaitFirstFailure(List<CheckTask> tasks)
+    {
+        for (int i = 0; i < tasks.size(); i++)
+        {
+            CheckResult result;
+            try {
+                result = tasks.get(i).get();
+            }
+            catch (ExecutionException e) {
+                if (e.getCause() instanceof RuntimeException cause)
+                    throw cause;
+                if (e.getCause() instanceof Error cause)
+                    throw cause;
+                throw new RuntimeException(e.getCause());
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new CancellationException("Validation was interrupted");
+            }
+
+            if (!result.passed())
+                return i;
+        }
+        return -1;
+    }
+
+    private void recordTimings(List<CheckTask> tasks)
+    {
+        Map<String, Duration> timings = new LinkedHashMap<>();
+        for (CheckTask task : tasks)
+        {
+            if (task.state() == Future.State.SUCCESS)
+                timings.put(errorMessages.get(task.index), Duration.ofNanos(task.resultNow().nanos()));
+        }
+        lastTimings = Collections.unmodifiableMap(timings);
+    }
+
+    private synchronized ExecutorService getExecutor()
+    {
+        if (executor == null)
+        {
+            int threads = Math.max(1, Math.min(predicates.size(), Runtime.getRuntime().availableProcessors()));
+            String poolName = "rom-validation-" + poolNumber.incrementAndGet();
+            AtomicInteger threadNumber = new AtomicInteger();
+            ThreadPoolExecutor pool = new ThreadPoolExecutor(threads, threads, 30, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), runnable -> {
+                Thread thread = new Thread(runnable, poolName + "-" + threadNumber.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+            pool.allowCoreThreadTimeOut(true);
+            executor = pool;
+        }
+        return executor;
+    }
+
+    private Tool.RomSupportContext toContext(String verdict)
+    {
+        if (verdict.equals(passed))
+            return new Tool.RomSupportContext(true, null);
+        return new Tool.RomSupportContext(false, errorMessages.get(Integer.parseInt(verdict)));
+    }
+
+    private void cacheVerdict(String fingerprint, String verdict)
+    {
+        sessionVerdicts.put(fingerprint, stamp + ":" + verdict);
+        if (verdicts == null)
+            return;
+        try {
+            // the cache only needs to cover the handful of ROMs someone works with, so it is simply reset once full
+            if (verdicts.keys().length >= maxCachedVerdicts)
+                verdicts.clear();
+            verdicts.put(fingerprint, stamp + ":" + verdict);
+        }
+        catch (BackingStoreException | IllegalStateException e) {
+            System.err.println("[WARNING]: Failed to cache validation verdict: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Forgets every remembered verdict, both for this session and across sessions, so that every ROM is checked again
+     */
+    void clearCache()
+    {
+        sessionVerdicts.clear();
+        if (verdicts == null)
+            return;
+        try {
+            verdicts.clear();
+        }
+        catch (BackingStoreException | IllegalStateException e) {
+            System.err.println("[WARNING]: Failed to clear cached validation verdicts: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Gets how long each check took the last time the checks were run. Checks which were cancelled because an earlier
+     * check failed are left out, and the map is empty if the last verdict came from the cache.
+     * @return an unmodifiable <code>Map</code><<code>String</code>, <code>Duration</code>> of each check's error
+     * message to how long it took, in registration order
+     */
+    Map<String, Duration> getLastTimings()
+    {
+        return lastTimings;
+    }
+}
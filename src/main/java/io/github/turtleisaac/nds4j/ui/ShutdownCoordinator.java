@@ -0,0 +1,205 @@
+package io.github.turtleisaac.nds4j.ui;
+
+import javax.swing.*;
+import java.awt.*;
+import java.util.*;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.locks.Lock;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Waits for the work a <code>Tool</code> still has in progress to finish before its window closes, without blocking
+ * the event dispatch thread, displaying the progress to the user in a <code>ProgressDialog</code>.
+ * <p>The work is drained in order: saves which are being written, the Projectfile, ROM builds and exports, queued
+ * commits, and finally background tasks, which are cancelled. Each step starts once the one before it has finished, so
+ * that a commit includes everything which was saved before it. The user can cancel the close at any time, which keeps
+ * the window open, and once the tool's shutdown timeout has passed they are asked whether to keep waiting or to close
+ * anyway. Files are only ever replaced once they have been completely written, so closing anyway never leaves a
+ * partially written file behind, although an interrupted commit will have to be made again.</p>
+ */
+class ShutdownCoordinator extends SwingWorker<List<String>, String>
+{
+    private static final long pollMillis = 50;
+
+    private final Tool tool;
+    private final Component parentComponent;
+    private final Consumer<Outcome> onFinished;
+    private final ProgressDialog dialog;
+    private final List<Stage> stages;
+
+    /**
+     * How closing the window ended
+     */
+    enum Outcome
+    {
+        /**
+         * Everything which was in progress has finished
+         */
+        DRAINED,
+        /**
+         * The user chose to close the window even though some work hadn't finished yet
+         */
+        ABANDONED,
+        /**
+         * The user cancelled closing the window
+         */
+        CANCELLED
+    }
+
+    /**
+     * A step of the shutdown. <code>start</code> starts it and returns a check for whether it has finished, and
+     * <code>status</code> describes what is being waited for while it runs.
+     */
+    private record Stage(String name, Supplier<String> status, Supplier<BooleanSupplier> start) {}
+
+    /**
+     * Creates a new <code>ShutdownCoordinator</code>. Nothing happens until <code>start()</code> is called.
+     * @param tool the <code>Tool</code> whose work in progress is waited for
+     * @param parentComponent the <code>Component</code> to display the progress and any questions relative to
+     * @param onFinished a <code>Consumer</code> which is given how closing the window ended, on the event dispatch thread
+     */
+    ShutdownCoordinator(Tool tool, Component parentComponent, Consumer<Outcome> onFinished)
+    {
+        this.tool = tool;
+        this.parentComponent = parentComponent;
+        this.onFinished = onFinished;
+        this.dialog = new ProgressDialog(parentComponent, "Closing");
+        this.stages = createStages();
+    }
+
+    private List<Stage> createStages()
+    {
+        TaskExecutor taskExecutor = tool.getTaskExecutor();
+        return List.of(
+                new Stage("Saving files", () -> "Waiting for files to finish saving", () -> {
+                    Lock saveLock = tool.getSaveLock();
+                    return () -> isUnlocked(saveLock);
+                }),
+                new Stage("Writing the Projectfile", () -> "Writing the Projectfile", () -> tool.startInfoFlush()::isDone),
+                new Stage("Building the ROM", () -> "Waiting for the project's ROM to finish building", () -> tool.getPendingBuilds()::isDone),
+                new Stage("Exporting the ROM", () -> "Waiting for " + countOf(tool.getPendingExports().size(), "ROM export") + " to finish",
+                        () -> () -> tool.getPendingExports().isEmpty()),
+                new Stage("Committing changes", () -> "Committing changes to Git", () -> tool.startCommitFlush()::isDone),
+                new Stage("Stopping background tasks", () -> "Stopping " + String.join(", ", taskExecutor.getRunningTasks()), () -> {
+                    taskExecutor.cancelAll();
+                    return () -> taskExecutor.getRunningTasks().isEmpty();
+                })
+        );
+    }
+
+    /**
+     * Starts waiting in the background. Must be called on the event dispatch thread.
+     */
+    protected void start()
+    {
+        dialog.attach(this);
+        execute();
+    }
+
+    @Override
+    protected List<String> doInBackground() throws Exception
+    {
+        long start = System.nanoTime();
+        long deadline = start + tool.getShutdownTimeout().toNanos();
+        try (Tool.Operation ignored = tool.beginOperation("Closing the tool window"))
+        {
+            for (int i = 0; i < stages.size(); i++)
+            {
+                Stage stage = stages.get(i);
+                setProgress(i * 100 / stages.size());
+
+                BooleanSupplier finished;
+                try {
+                    finished = stage.start().get();
+                }
+                catch (RuntimeException e) {
+                    // there is nothing left to wait for if the step couldn't even be started
+                    System.err.println("[ERROR]: " + stage.name() + " failed while closing: " + e);
+                    continue;
+                }
+
+                while (!finished.getAsBoolean())
+                {
+                    if (System.nanoTime() - deadline >= 0)
+                        return unfinishedStages(i);
+                    publish(stage.status().get());
+                    Thread.sleep(pollMillis);
+                }
+            }
+            setProgress(100);
+        }
+        finally {
+            tool.getMetrics().timer("window.close").recordSince(start);
+        }
+        return List.of();
+    }
+
+    @Override
+    protected void process(List<String> chunks)
+    {
+        dialog.setStatus(chunks.get(chunks.size() - 1));
+    }
+
+    @Override
+    protected void done()
+    {
+        dialog.finish();
+        if (isCancelled())
+        {
+            onFinished.accept(Outcome.CANCELLED);
+            return;
+        }
+
+        List<String> unfinished;
+        try {
+            unfinished = get();
+        }
+        catch (InterruptedException | ExecutionException e) {
+            Throwable cause = e.getCause() == null ? e : e.getCause();
+            System.err.println("[ERROR]: Failed to wait for work in progress before closing: " + cause);
+            unfinished = List.of("Work in progress");
+        }
+
+        if (unfinished.isEmpty())
+        {
+            onFinished.accept(Outcome.DRAINED);
+            return;
+        }
+
+        String[] options = {"Keep Waiting", "Close Anyway", "Cancel"};
+        int result = JOptionPane.showOptionDialog(parentComponent,
+                "The following haven't finished yet:\n" + String.join("\n", unfinished)
+                        + "\n\nClosing now abandons them. Files on disk are never left partially written, but an interrupted commit will have to be made again.",
+                "Still Working", JOptionPane.YES_NO_CANCEL_OPTION, JOptionPane.WARNING_MESSAGE, null, options, options[0]);
+        if (result == 0)
+            new ShutdownCoordinator(tool, parentComponent, onFinished).start();
+        else if (result == 1)
+            onFinished.accept(Outcome.ABANDONED);
+        else
+            onFinished.accept(Outcome.CANCELLED);
+    }
+
+    private List<String> unfinishedStages(int from)
+    {
+        List<String> names = new ArrayList<>();
+        for (Stage stage : stages.subList(from, stages.size()))
+            names.add(stage.name());
+        return names;
+    }
+
+    private static boolean isUnlocked(Lock lock)
+    {
+        if (!lock.tryLock())
+            return false;
+        lock.unlock();
+        return true;
+    }
+
+    private static String countOf(int count, String noun)
+    {
+        return count + " " + noun + (count == 1 ? "" : "s");
+    }
+}
@@ -0,0 +1,165 @@
+package io.github.turtleisaac.nds4j.ui;
+
+import net.miginfocom.swing.MigLayout;
+
+import javax.swing.*;
+import javax.swing.table.AbstractTableModel;
+import java.awt.*;
+import java.io.File;
+import java.io.IOException;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A window listing the stalls of the event dispatch thread recorded by an <code>EdtWatchdog</code>, along with the
+ * stack captured for whichever one is selected
+ */
+class StallViewer extends JDialog
+{
+    private static final String[] columnNames = {"Time", "Duration", "Operations", "Event"};
+    private static final DateTimeFormatter timeFormatter = DateTimeFormatter.ofPattern("HH:mm:ss.SSS").withZone(ZoneId.systemDefault());
+
+    private final EdtWatchdog watchdog;
+    private final StallTableModel tableModel;
+    private final JTable table;
+    private final JTextArea stackArea;
+
+    /**
+     * Creates a new <code>StallViewer</code>. It is not shown until <code>setVisible(true)</code> is called.
+     * @param owner the <code>Window</code> this viewer belongs to
+     * @param watchdog the <code>EdtWatchdog</code> whose stalls are displayed, or <code>null</code> if it is disabled
+     */
+    protected StallViewer(Window owner, EdtWatchdog watchdog)
+    {
+        super(owner, "EDT Stalls", ModalityType.MODELESS);
+        setDefaultCloseOperation(DISPOSE_ON_CLOSE);
+        this.watchdog = watchdog;
+
+        tableModel = new StallTableModel();
+        table = new JTable(tableModel);
+        table.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+        table.setFillsViewportHeight(true);
+        table.getColumnModel().getColumn(2).setPreferredWidth(200);
+        table.getColumnModel().getColumn(3).setPreferredWidth(300);
+        table.getSelectionModel().addListSelectionListener(e -> showSelectedStack());
+
+        stackArea = new JTextArea();
+        stackArea.setEditable(false);
+        stackArea.setFont(new Font(Font.MONOSPACED, Font.PLAIN, stackArea.getFont().getSize()));
+
+        JButton refreshButton = new JButton("Refresh");
+        refreshButton.addActionListener(e -> tableModel.refresh());
+        JButton clearButton = new JButton("Clear");
+        clearButton.addActionListener(e -> {
+            watchdog.clearStallEvents();
+            tableModel.refresh();
+        });
+        JButton exportButton = new JButton("Export...");
+        exportButton.addActionListener(e -> export());
+
+        JPanel contentPanel = new JPanel(new MigLayout(
+                "insets dialog",
+                // columns
+                "[grow,fill]",
+                // rows
+                "[][grow,fill][grow,fill][]"));
+        String status = watchdog == null
+                ? "The stall watchdog is not enabled for this tool."
+                : "Dispatches taking longer than " + watchdog.getThreshold().toMillis() + " ms. Only the most recent 100 are kept.";
+        contentPanel.add(new JLabel(status), "cell 0 0");
+        contentPanel.add(new JScrollPane(table), "cell 0 1,width 800:800,height 200:200");
+        contentPanel.add(new JScrollPane(stackArea), "cell 0 2,height 250:250");
+        contentPanel.add(refreshButton, "cell 0 3,alignx right,growx 0");
+        contentPanel.add(clearButton, "cell 0 3,growx 0");
+        contentPanel.add(exportButton, "cell 0 3,growx 0");
+        setContentPane(contentPanel);
+
+        refreshButton.setEnabled(watchdog != null);
+        clearButton.setEnabled(watchdog != null);
+        exportButton.setEnabled(watchdog != null);
+
+        tableModel.refresh();
+        pack();
+        setLocationRelativeTo(owner);
+    }
+
+    private void showSelectedStack()
+    {
+        int row = table.getSelectedRow();
+        if (row == -1)
+        {
+            stackArea.setText("");
+            return;
+        }
+        stackArea.setText(tableModel.events.get(row).toString());
+        stackArea.setCaretPosition(0);
+    }
+
+    private void export()
+    {
+        String lastPath = Tool.preferences.get("stallExportPath", null);
+        if (lastPath == null) {
+            lastPath = System.getProperty("user.dir");
+        }
+
+        JFileChooser fc = new JFileChooser(lastPath);
+        fc.setDialogTitle("Export EDT stalls");
+        fc.setFileSelectionMode(JFileChooser.FILES_ONLY);
+        fc.setSelectedFile(new File(lastPath, "edt-stalls.txt"));
+        if (fc.showSaveDialog(this) != JFileChooser.APPROVE_OPTION)
+            return;
+
+        File selected = fc.getSelectedFile();
+        Tool.preferences.put("stallExportPath", selected.getParent());
+        try {
+            watchdog.exportStallEvents(selected.toPath());
+        }
+        catch (IOException e) {
+            JOptionPane.showMessageDialog(this, "Failed to export the stalls: " + e.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
+        }
+    }
+
+    private class StallTableModel extends AbstractTableModel
+    {
+        private List<EdtWatchdog.StallEvent> events = new ArrayList<>();
+
+        private void refresh()
+        {
+            events = watchdog == null ? new ArrayList<>() : watchdog.getStallEvents();
+            fireTableDataChanged();
+            stackArea.setText("");
+        }
+
+        @Override
+        public int getRowCount()
+        {
+            return events.size();
+        }
+
+        @Override
+        public int getColumnCount()
+        {
+            return columnNames.length;
+        }
+
+        @Override
+        public String getColumnName(int column)
+        {
+            return columnNames[column];
+        }
+
+        @Override
+        public Object getValueAt(int rowIndex, int columnIndex)
+        {
+            EdtWatchdog.StallEvent event = events.get(rowIndex);
+            return switch (columnIndex) {
+                case 0 -> timeFormatter.format(event.getTime());
+                case 1 -> event.getDuration().toMillis() + " ms" + (event.isFinished() ? "" : "+");
+                case 2 -> event.getOperations().isEmpty() ? "" : String.join("; ", event.getOperations().values());
+                default -> event.getEvent();
+            };
+        }
+    }
+}
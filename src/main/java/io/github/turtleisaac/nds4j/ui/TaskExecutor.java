@@ -0,0 +1,303 @@
+package io.github.turtleisaac.nds4j.ui;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.List;
+import java.util.concurrent.*;
+
+/**
+ * Runs the background work of a <code>Tool</code>, each task on its own virtual thread.
+ * <p>Every task has a name, which is used as the name of its thread while it runs and reported as an operation in
+ * progress, so that it shows up in thread dumps and alongside any stall of the tool window. The tasks which are
+ * running can be listed, and at most a fixed number of them run at once, with the rest waiting their turn. A task
+ * which fails is always reported the same way: on the console and in the <code>tasks.failed</code> metric.</p>
+ * <p>Tasks which belong together can be forked from a <code>Scope</code>. If one of them fails the others are
+ * cancelled, and closing the scope cancels and waits for whichever are still running, so none of them outlive the
+ * code which started them. When the <code>Tool</code>'s window closes, every task which is still running is cancelled
+ * and given a few seconds to finish.</p>
+ */
+public class TaskExecutor
+{
+    private static final int maxConcurrentTasks = Math.max(16, Runtime.getRuntime().availableProcessors() * 4);
+
+    private final Tool tool;
+    private final ExecutorService executor;
+    private final Semaphore permits = new Semaphore(maxConcurrentTasks);
+    private final Set<Task<?>> tasks = ConcurrentHashMap.newKeySet();
+    private volatile boolean shutDown;
+
+    /**
+     * A piece of background work which has been submitted to a <code>TaskExecutor</code>. Cancelling it interrupts its
+     * thread if it has already started.
+     * @param <T> the type of the task's result
+     */
+    public static final class Task<T> extends FutureTask<T>
+    {
+        private final String name;
+        private final Scope scope;
+        private final CountDownLatch stopped = new CountDownLatch(1);
+
+        private Task(String name, Callable<T> work, Scope scope)
+        {
+            super(work);
+            this.name = name;
+            this.scope = scope;
+        }
+
+        /**
+         * Gets the name of this <code>Task</code>
+         * @return a <code>String</code>
+         */
+        public String getName()
+        {
+            return name;
+        }
+
+        @Override
+        public String toString()
+        {
+            return name;
+        }
+    }
+
+    /**
+     * A group of tasks which is closed as a whole. If any task forked from a scope fails, every other task in it is
+     * cancelled. Closing the scope cancels any task which is still running and waits for it to finish.
+     * <pre>
+     * try (TaskExecutor.Scope scope = executor.openScope()) {
+     *     TaskExecutor.Task&lt;byte[]&gt; narc = scope.fork("Reading NARC", () -&gt; ...);
+     *     TaskExecutor.Task&lt;Index&gt; index = scope.fork("Indexing", () -&gt; ...);
+     *     scope.join();
+     *     ...
+     * }
+     * </pre>
+     */
+    public final class Scope implements AutoCloseable
+    {
+        private final List<Task<?>> forked = new CopyOnWriteArrayList<>();
+        private volatile Throwable failure;
+
+        private Scope()
+        {
+        }
+
+        /**
+         * Starts a task in this scope
+         * @param name a <code>String</code> describing the task
+         * @param work a <code>Callable</code> containing the work to do
+         * @param <T> the type of the task's result
+         * @return a <code>Task</code>
+         * @throws IllegalStateException if this scope has already failed, or the tool's window has closed
+         */
+        public <T> Task<T> fork(String name, Callable<T> work)
+        {
+            if (failure != null)
+                throw new IllegalStateException("A task in this scope has already failed", failure);
+            Task<T> task = new Task<>(name, work, this);
+            forked.add(task);
+            start(task);
+            return task;
+        }
+
+        /**
+         * Waits for every task forked so far to finish
+         * @throws ExecutionException if any of them failed, with the first failure as its cause
+         * @throws InterruptedException if the calling thread is interrupted while waiting, in which case the tasks
+         * keep running until the scope is closed
+         */
+        public void join() throws ExecutionException, InterruptedException
+        {
+            for (Task<?> task : forked)
+            {
+                try {
+                    task.get();
+                }
+                catch (CancellationException | ExecutionException ignored) {
+                }
+            }
+            if (failure != null)
+                throw new ExecutionException(failure);
+        }
+
+        private void failed(Throwable cause)
+        {
+            synchronized (this)
+            {
+                if (failure != null)
+                    return;
+                failure = cause;
+            }
+            for (Task<?> task : forked)
+                task.cancel(true);
+        }
+
+        /**
+         * Cancels every task in this scope which hasn't finished yet, and waits for them to stop
+         */
+        @Override
+        public void close()
+        {
+            boolean interrupted = false;
+            for (Task<?> task : forked)
+            {
+                task.cancel(true);
+                try {
+                    task.stopped.await();
+                }
+                catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted)
+                Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Creates a new <code>TaskExecutor</code>
+     * @param tool the <code>Tool</code> whose operations and metrics the tasks are reported in
+     */
+    TaskExecutor(Tool tool)
+    {
+        this.tool = tool;
+        this.executor = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("tool-task-", 1).factory());
+    }
+
+    /**
+     * Starts a task
+     * @param name a <code>String</code> describing the task
+     * @param work a <code>Callable</code> containing the work to do
+     * @param <T> the type of the task's result
+     * @return a <code>Task</code>, which can be used to wait for the result or to cancel the task
+     * @throws IllegalStateException if the tool's window has closed
+     */
+    public <T> Task<T> submit(String name, Callable<T> work)
+    {
+        Task<T> task = new Task<>(name, work, null);
+        start(task);
+        return task;
+    }
+
+    /**
+     * Starts a task which has no result
+     * @param name a <code>String</code> describing the task
+     * @param work a <code>Runnable</code> containing the work to do
+     * @return a <code>Task</code>, which can be used to wait for the task or to cancel it
+     * @throws IllegalStateException if the tool's window has closed
+     */
+    public Task<Void> submit(String name, Runnable work)
+    {
+        return submit(name, () -> {
+            work.run();
+            return null;
+        });
+    }
+
+    /**
+     * Opens a scope to fork a group of related tasks from
+     * @return a <code>Scope</code>, which must be closed
+     */
+    public Scope openScope()
+    {
+        return new Scope();
+    }
+
+    /**
+     * Gets the names of the tasks which have been submitted and haven't finished yet
+     * @return an unmodifiable <code>List</code><<code>String</code>>, sorted by name
+     */
+    public List<String> getRunningTasks()
+    {
+        List<String> names = new ArrayList<>();
+        for (Task<?> task : tasks)
+            names.add(task.getName());
+        Collections.sort(names);
+        return Collections.unmodifiableList(names);
+    }
+
+    private void start(Task<?> task)
+    {
+        if (shutDown)
+            throw new IllegalStateException("The tool's window has closed");
+
+        tasks.add(task);
+        tool.getMetrics().counter("tasks.submitted").increment();
+        try {
+            executor.execute(() -> run(task));
+        }
+        catch (RejectedExecutionException e) {
+            tasks.remove(task);
+            task.stopped.countDown();
+            throw new IllegalStateException("The tool's window has closed", e);
+        }
+    }
+
+    private void run(Task<?> task)
+    {
+        Thread thread = Thread.currentThread();
+        String threadName = thread.getName();
+        thread.setName(threadName + " " + task.getName());
+        boolean acquired = false;
+        try (Tool.Operation ignored = tool.beginOperation(task.getName())) {
+            permits.acquire();
+            acquired = true;
+            task.run();
+        }
+        catch (InterruptedException e) {
+            // cancelled while waiting for its turn
+            task.cancel(false);
+        }
+        finally {
+            if (acquired)
+                permits.release();
+            thread.setName(threadName);
+            tasks.remove(task);
+            task.stopped.countDown();
+        }
+
+        if (task.isCancelled())
+            return;
+        try {
+            task.get();
+        }
+        catch (ExecutionException e) {
+            Throwable cause = e.getCause() == null ? e : e.getCause();
+            tool.getMetrics().counter("tasks.failed").increment();
+            System.err.println("[ERROR]: Background task \"" + task.getName() + "\" failed: " + cause);
+            if (task.scope != null)
+                task.scope.failed(cause);
+        }
+        catch (InterruptedException | CancellationException ignored) {
+        }
+    }
+
+    /**
+     * Cancels every task which is still running, without stopping further tasks from being submitted
+     */
+    void cancelAll()
+    {
+        for (Task<?> task : tasks)
+            task.cancel(true);
+    }
+
+    /**
+     * Cancels every task which is still running, and waits up to the given time for them to stop. No tasks can be
+     * submitted afterwards.
+     * @param timeout a <code>Duration</code> containing the longest time to wait
+     * @return a <code>boolean</code> containing whether every task stopped within the timeout
+     */
+    protected boolean shutdown(Duration timeout)
+    {
+        shutDown = true;
+        executor.shutdown();
+        cancelAll();
+
+        try {
+            return executor.awaitTermination(timeout.toMillis(), TimeUnit.MILLISECONDS);
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
@@ -7,9 +7,13 @@ import io.github.turtleisaac.nds4j.ui.exceptions.ToolAttributeModificationExcept
 
 import javax.swing.*;
 import java.awt.*;
-import java.io.IOException;
-import java.util.ArrayList;
-import java.util.Iterator;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
+import java.net.URL;
+import java.time.Duration;
+import java.util.*;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * Provides functionality relating to theme switching for a <code>Tool</code>
@@ -19,6 +23,7 @@ public class ThemeUtils
     private static final ArrayList<LookAndFeel> themes = new ArrayList<>();
     private static final ThemeIterator iterator = new ThemeIterator();
     private static LookAndFeel currentTheme;
+    private static final MetricsRegistry.Timer themeChangeTimer = new MetricsRegistry.Timer();
 
     /**
      * A color to be used for miscellaneous purposes in dark themes
@@ -35,110 +40,204 @@ public class ThemeUtils
      */
     public static final FlatSVGIcon.ColorFilter iconColorFilter = FlatSVGIcon.ColorFilter.getInstance();
 
+    /**
+     * Notified whenever a registered icon's SVG is parsed, for measuring how much icon loading costs and where
+     */
+    @FunctionalInterface
+    public interface IconLoadListener
+    {
+        /**
+         * Called after an icon's SVG has been parsed
+         * @param key a <code>String</code> containing the key the icon was registered with
+         * @param duration a <code>Duration</code> containing how long loading took
+         * @param preloaded a <code>boolean</code> which is true if the icon was loaded by <code>preloadIcons()</code>
+         *                  rather than the first time it was displayed
+         */
+        void iconLoaded(String key, Duration duration, boolean preloaded);
+    }
+
+    private static final Map<String, RegisteredIcon> icons = new LinkedHashMap<>();
+    private static final Map<String, Duration> iconLoadTimings = Collections.synchronizedMap(new LinkedHashMap<>());
+    private static final AtomicBoolean preloadStarted = new AtomicBoolean();
+    private static volatile IconLoadListener iconLoadListener;
+
     /**
      * A symbol representing a right arrow
      */
-    public static final FlatSVGIcon rightIcon;
+    public static final FlatSVGIcon rightIcon = registerIcon("right", "/icons/svg/chevron-right.svg");
     /**
      * A symbol representing a left arrow
      */
-    public static final FlatSVGIcon leftIcon;
+    public static final FlatSVGIcon leftIcon = registerIcon("left", "/icons/svg/chevron-left.svg");
     /**
      * A symbol representing a folder selection operation
      */
-    public static final FlatSVGIcon folderSearchIcon;
+    public static final FlatSVGIcon folderSearchIcon = registerIcon("folderSearch", "/icons/svg/folder-search.svg");
     /**
      * A symbol representing a file selection operation
      */
-    public static final FlatSVGIcon fileSearchIcon;
+    public static final FlatSVGIcon fileSearchIcon = registerIcon("fileSearch", "/icons/svg/file-search.svg");
     /**
      * A symbol representing a project selection and opening operation
      */
-    public static final FlatSVGIcon folderOpenIcon;
+    public static final FlatSVGIcon folderOpenIcon = registerIcon("folderOpen", "/icons/svg/folder-open.svg");
     /**
      * A symbol representing a ROM or project save operation
      */
-    public static final FlatSVGIcon saveIcon;
+    public static final FlatSVGIcon saveIcon = registerIcon("save", "/icons/svg/device-floppy.svg");
     /**
      * A symbol representing an info display operation
      */
-    public static final FlatSVGIcon infoIcon;
+    public static final FlatSVGIcon infoIcon = registerIcon("info", "/icons/svg/info-square-rounded.svg");
     /**
      * A symbol representing a tool selection operation
      */
-    public static final FlatSVGIcon appWindowIcon;
+    public static final FlatSVGIcon appWindowIcon = registerIcon("appWindow", "/icons/svg/app-window.svg");
     /**
      * A symbol representing valid data
      */
-    public static final FlatSVGIcon validIcon;
+    public static final FlatSVGIcon validIcon = registerIcon("valid", "/icons/svg/checks.svg");
     /**
      * A symbol representing invalid data
      */
-    public static final FlatSVGIcon invalidIcon;
+    public static final FlatSVGIcon invalidIcon = registerIcon("invalid", "/icons/svg/alert-circle.svg");
     /**
      * A symbol representing a game file
      */
-    public static final FlatSVGIcon gamepadIcon;
+    public static final FlatSVGIcon gamepadIcon = registerIcon("gamepad", "/icons/svg/device-gamepad.svg");
     /**
      * A symbol representing a zoom-in operation
      */
-    public static final FlatSVGIcon zoomInIcon;
+    public static final FlatSVGIcon zoomInIcon = registerIcon("zoomIn", "/icons/svg/zoom-in.svg");
     /**
      * A symbol representing a zoom-out operation
      */
-    public static final FlatSVGIcon zoomOutIcon;
+    public static final FlatSVGIcon zoomOutIcon = registerIcon("zoomOut", "/icons/svg/zoom-out.svg");
     /**
      * A symbol representing a refresh/reload operation
      */
-    public static final FlatSVGIcon reloadIcon;
+    public static final FlatSVGIcon reloadIcon = registerIcon("reload", "/icons/svg/refresh.svg");
     /**
      * A symbol representing a file import operation
      */
-    public static final FlatSVGIcon fileImportIcon;
+    public static final FlatSVGIcon fileImportIcon = registerIcon("fileImport", "/icons/svg/file-import.svg");
     /**
      * A symbol representing a file export operation
      */
-    public static final FlatSVGIcon fileExportIcon;
+    public static final FlatSVGIcon fileExportIcon = registerIcon("fileExport", "/icons/svg/file-export.svg");
 
-    static {
-        try {
-            rightIcon = new FlatSVGIcon(ToolFrame.class.getResourceAsStream("/icons/svg/chevron-right.svg"));
-            leftIcon = new FlatSVGIcon(ToolFrame.class.getResourceAsStream("/icons/svg/chevron-left.svg"));
-            folderSearchIcon = new FlatSVGIcon(ToolFrame.class.getResourceAsStream("/icons/svg/folder-search.svg"));
-            fileSearchIcon = new FlatSVGIcon(ToolFrame.class.getResourceAsStream("/icons/svg/file-search.svg"));
-            folderOpenIcon = new FlatSVGIcon(ToolFrame.class.getResourceAsStream("/icons/svg/folder-open.svg"));
-            saveIcon = new FlatSVGIcon(ToolFrame.class.getResourceAsStream("/icons/svg/device-floppy.svg"));
-            infoIcon = new FlatSVGIcon(ToolFrame.class.getResourceAsStream("/icons/svg/info-square-rounded.svg"));
-            appWindowIcon = new FlatSVGIcon(ToolFrame.class.getResourceAsStream("/icons/svg/app-window.svg"));
-            validIcon = new FlatSVGIcon(ToolFrame.class.getResourceAsStream("/icons/svg/checks.svg"));
-            invalidIcon = new FlatSVGIcon(ToolFrame.class.getResourceAsStream("/icons/svg/alert-circle.svg"));
-            gamepadIcon = new FlatSVGIcon(ToolFrame.class.getResourceAsStream("/icons/svg/device-gamepad.svg"));
-            zoomInIcon = new FlatSVGIcon(ToolFrame.class.getResourceAsStream("/icons/svg/zoom-in.svg"));
-            zoomOutIcon = new FlatSVGIcon(ToolFrame.class.getResourceAsStream("/icons/svg/zoom-out.svg"));
-            reloadIcon = new FlatSVGIcon(ToolFrame.class.getResourceAsStream("/icons/svg/refresh.svg"));
-            fileImportIcon = new FlatSVGIcon(ToolFrame.class.getResourceAsStream("/icons/svg/file-import.svg"));
-            fileExportIcon = new FlatSVGIcon(ToolFrame.class.getResourceAsStream("/icons/svg/file-export.svg"));
-
-            leftIcon.setColorFilter(iconColorFilter);
-            rightIcon.setColorFilter(iconColorFilter);
-            folderSearchIcon.setColorFilter(iconColorFilter);
-            fileSearchIcon.setColorFilter(iconColorFilter);
-            folderOpenIcon.setColorFilter(iconColorFilter);
-            saveIcon.setColorFilter(iconColorFilter);
-            infoIcon.setColorFilter(iconColorFilter);
-            appWindowIcon.setColorFilter(iconColorFilter);
-            validIcon.setColorFilter(iconColorFilter);
-            invalidIcon.setColorFilter(iconColorFilter);
-            gamepadIcon.setColorFilter(iconColorFilter);
-            zoomInIcon.setColorFilter(iconColorFilter);
-            zoomOutIcon.setColorFilter(iconColorFilter);
-            reloadIcon.setColorFilter(iconColorFilter);
-            fileImportIcon.setColorFilter(iconColorFilter);
-            fileExportIcon.setColorFilter(iconColorFilter);
-        }
-        catch(IOException e) {
-            throw new RuntimeException(e);
+    /**
+     * Registers an SVG icon under the given key. The SVG is not parsed until the icon is first displayed or
+     * <code>preloadIcons()</code> gets to it, and it is recolored to match the current theme by <code>iconColorFilter</code>.
+     * @param key a <code>String</code> containing the key to register the icon with
+     * @param resourcePath a <code>String</code> containing the classpath location of the SVG file
+     * @return the registered <code>FlatSVGIcon</code>
+     * @throws ToolAttributeModificationException if the key is already in use or the SVG file does not exist
+     */
+    public static FlatSVGIcon registerIcon(String key, String resourcePath)
+    {
+        URL url = ThemeUtils.class.getResource(resourcePath);
+        if (url == null)
+            throw new ToolAttributeModificationException("No icon exists at the provided path: " + resourcePath);
+
+        RegisteredIcon icon = new RegisteredIcon(key, url);
+        icon.setColorFilter(iconColorFilter);
+        synchronized (icons)
+        {
+            if (icons.putIfAbsent(key, icon) != null)
+                throw new ToolAttributeModificationException("An icon has already been registered with the key: " + key);
+        }
+        return icon;
+    }
+
+    /**
+     * Gets the icon registered with the given key
+     * @param key a <code>String</code> containing the key the icon was registered with
+     * @return a <code>FlatSVGIcon</code>
+     * @throws IllegalArgumentException if no icon has been registered with the key
+     */
+    public static FlatSVGIcon getIcon(String key)
+    {
+        synchronized (icons)
+        {
+            RegisteredIcon icon = icons.get(key);
+            if (icon == null)
+                throw new IllegalArgumentException("No icon has been registered with the key: " + key);
+            return icon;
+        }
+    }
+
+    /**
+     * Parses every registered icon which hasn't been displayed yet on a background thread, so that they can be
+     * displayed later on without a delay. This only does anything the first time it is called.
+     */
+    public static void preloadIcons()
+    {
+        if (!preloadStarted.compareAndSet(false, true))
+            return;
+
+        List<RegisteredIcon> toLoad;
+        synchronized (icons)
+        {
+            toLoad = new ArrayList<>(icons.values());
         }
+
+        Thread thread = new Thread(() -> {
+            for (RegisteredIcon icon : toLoad)
+                icon.preload();
+        }, "icon-preload");
+        thread.setDaemon(true);
+        thread.setPriority(Thread.MIN_PRIORITY);
+        thread.start();
+    }
+
+    /**
+     * Schedules <code>preloadIcons()</code> to run once the provided window has been opened and painted
+     * @param window the <code>Window</code> which is about to be displayed for the first time
+     */
+    protected static void preloadIconsAfterFirstPaint(Window window)
+    {
+        window.addWindowListener(new WindowAdapter()
+        {
+            @Override
+            public void windowOpened(WindowEvent e)
+            {
+                window.removeWindowListener(this);
+                // queued behind the paint events for the newly opened window
+                EventQueue.invokeLater(ThemeUtils::preloadIcons);
+            }
+        });
+    }
+
+    /**
+     * Gets how long each registered icon which has been loaded so far took to parse
+     * @return a <code>Map</code><<code>String</code>, <code>Duration</code>> of icon keys to the time taken by
+     * whichever load happened first, in the order the icons were loaded
+     */
+    public static Map<String, Duration> getIconLoadTimings()
+    {
+        synchronized (iconLoadTimings)
+        {
+            return new LinkedHashMap<>(iconLoadTimings);
+        }
+    }
+
+    /**
+     * Sets the listener to notify whenever a registered icon is loaded
+     * @param listener an <code>IconLoadListener</code>, or <code>null</code> to stop notifying
+     */
+    public static void setIconLoadListener(IconLoadListener listener)
+    {
+        iconLoadListener = listener;
+    }
+
+    private static void recordIconLoad(String key, long nanos, boolean preloaded)
+    {
+        Duration duration = Duration.ofNanos(nanos);
+        iconLoadTimings.putIfAbsent(key, duration);
+        IconLoadListener listener = iconLoadListener;
+        if (listener != null)
+            listener.iconLoaded(key, duration, preloaded);
     }
 
     /**
@@ -146,6 +245,7 @@ public class ThemeUtils
      */
     public static void changeTheme()
     {
+        long start = System.nanoTime();
         try {
             currentTheme = iterator.next();
             System.out.println(currentTheme.getClass().getName());
@@ -173,6 +273,19 @@ public class ThemeUtils
         catch(UnsupportedLookAndFeelException | NullPointerException e) {
             throw new ToolAttributeModificationException("An error occurred while setting the look and feel of the tool", e);
         }
+        finally {
+            themeChangeTimer.recordSince(start);
+        }
+    }
+
+    /**
+     * Gets the timer recording how long each theme change takes. Themes are shared by every <code>Tool</code>, so
+     * every <code>Tool</code>'s metrics include this same timer.
+     * @return a <code>MetricsRegistry.Timer</code>
+     */
+    protected static MetricsRegistry.Timer getThemeChangeTimer()
+    {
+        return themeChangeTimer;
     }
 
     /**
@@ -220,6 +333,83 @@ public class ThemeUtils
         return themes.size();
     }
 
+    /**
+     * An icon which records how long its SVG took to parse the first time it is needed. Parsed SVGs are kept in a
+     * cache shared by every <code>FlatSVGIcon</code>, and the colors are only applied by the color filter when painting,
+     * so preloading only has to parse a throwaway icon with the same URL and the result serves every theme.
+     */
+    private static final class RegisteredIcon extends FlatSVGIcon
+    {
+        private final String key;
+        private final URL url;
+        private volatile boolean loaded;
+        private volatile boolean preloaded;
+
+        private RegisteredIcon(String key, URL url)
+        {
+            super(url);
+            this.key = key;
+            this.url = url;
+        }
+
+        private void preload()
+        {
+            if (loaded || preloaded)
+                return;
+
+            long start = System.nanoTime();
+            new FlatSVGIcon(url).hasFound();
+            preloaded = true;
+            recordIconLoad(key, System.nanoTime() - start, true);
+        }
+
+        private void ensureLoaded()
+        {
+            if (loaded)
+                return;
+
+            loaded = true;
+            long start = System.nanoTime();
+            super.hasFound();
+            recordIconLoad(key, System.nanoTime() - start, false);
+        }
+
+        @Override
+        public boolean hasFound()
+        {
+            ensureLoaded();
+            return super.hasFound();
+        }
+
+        @Override
+        public int getIconWidth()
+        {
+            ensureLoaded();
+            return super.getIconWidth();
+        }
+
+        @Override
+        public int getIconHeight()
+        {
+            ensureLoaded();
+            return super.getIconHeight();
+        }
+
+        @Override
+        public void paintIcon(Component c, Graphics g, int x, int y)
+        {
+            ensureLoaded();
+            super.paintIcon(c, g, x, y);
+        }
+
+        @Override
+        public Image getImage()
+        {
+            ensureLoaded();
+            return super.getImage();
+        }
+    }
+
     private static class ThemeIterator implements Iterator<LookAndFeel>
     {
         private int idx = 0;
@@ -9,10 +9,22 @@ import java.awt.event.WindowAdapter;
 import java.awt.event.WindowEvent;
 import java.io.File;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.time.Duration;
 import java.util.*;
 import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 import java.util.function.Consumer;
@@ -20,11 +32,10 @@ import java.util.function.Predicate;
 import java.util.function.Supplier;
 import java.util.prefs.Preferences;
 
-import io.github.turtleisaac.nds4j.framework.BinaryWriter;
 import io.github.turtleisaac.nds4j.ui.exceptions.ToolAttributeModificationException;
 import io.github.turtleisaac.nds4j.ui.exceptions.ToolCreationException;
 import io.github.turtleisaac.nds4j.NintendoDsRom;
-import org.eclipse.jgit.api.CommitCommand;
+import org.eclipse.jgit.api.AddCommand;
 import org.eclipse.jgit.api.Git;
 import org.eclipse.jgit.api.errors.*;
 import org.eclipse.jgit.errors.RepositoryNotFoundException;
@@ -39,6 +50,10 @@ public class Tool {
      */
     public static Preferences preferences = Preferences.userNodeForPackage(Tool.class);
 
+    private static final Duration infoWriteDebounce = Duration.ofSeconds(2);
+    private static final CopyOnWriteArrayList<Tool> sessions = new CopyOnWriteArrayList<>();
+    private static final AtomicInteger sessionNumber = new AtomicInteger(1);
+
     private boolean started;
     private boolean windowMode;
 
@@ -53,10 +68,21 @@ public class Tool {
     private Locale defaultLocale;
     private List<Locale> locales;
     private boolean gitEnabled;
+    private boolean romMemoryMapped;
+    private boolean projectLoadedLazily;
+    private boolean validationVerdictsRemembered = true;
+    private Path contentStorePath;
+    private ContentStore contentStore;
+    private Path buildOnSavePath;
+    private boolean projectfileBinary;
+    private Duration commitDebounce = Duration.ofSeconds(10);
+    private Duration stallThreshold = Duration.ofMillis(250);
+    private Duration shutdownTimeout = Duration.ofSeconds(30);
 
     private final List<String> gameCodes;
     private final List<String> gameTitles;
     private final Map<Predicate<NintendoDsRom>, String> validationChecks;
+    private RomValidator romValidator;
 
     private Image icon;
 
@@ -68,21 +94,90 @@ public class Tool {
     private ToolFrame toolFrame;
 
     private Git git;
-    private Thread gitThread;
+    private TaskExecutor.Task<?> gitInitialization;
+    private CommitScheduler commitScheduler;
+    private ProjectInfoStore projectInfoStore;
     private Lock saveLock = new ReentrantLock();
     private Lock gitLock = new ReentrantLock();
-
-    private NintendoDsRom rom;
+    private final Lock romLock = new ReentrantLock();
+
+    private final MetricsRegistry metrics = new MetricsRegistry();
+    private Map<Thread, Operation> operations = new ConcurrentHashMap<>();
+    private final EditJournal editJournal = new EditJournal(this);
+    private final EventBus eventBus = new EventBus(metrics.withPrefix("events."));
+    private final TaskExecutor taskExecutor = new TaskExecutor(this);
+    private final Set<Future<?>> exports = ConcurrentHashMap.newKeySet();
+    private EdtWatchdog edtWatchdog;
+    private volatile ProjectBuilder projectBuilder;
+    private String sessionName;
+    private NintendoDsRom sizedRom;
+    private long sizedRomBytes;
+
+    private volatile NintendoDsRom rom;
+    private volatile DeferredRom deferredRom;
     private ObjectNode info;
 
+    private final Set<String> modifiedFiles = ConcurrentHashMap.newKeySet();
+    private final Set<String> uncommittedPaths = ConcurrentHashMap.newKeySet();
+
     private Tool() {
         alternateStartPanels = new ArrayList<>();
         gameCodes = new ArrayList<>();
         gameTitles = new ArrayList<>();
-        validationChecks = new HashMap<>();
+        validationChecks = new LinkedHashMap<>();
         panelManagerSuppliers = new ArrayList<>();
         functions = new ArrayList<>();
         locales = new ArrayList<>();
+
+        metrics.register("theme.change", ThemeUtils.getThemeChangeTimer());
+        metrics.gauge("theme.iconsLoaded", () -> ThemeUtils.getIconLoadTimings().size());
+        metrics.gauge("rom.modifiedFiles", modifiedFiles::size);
+        metrics.gauge("journal.memoryBytes", editJournal::getMemoryUsage);
+        metrics.gauge("git.commit.queueDepth", this::getCommitQueueDepth);
+        metrics.gauge("memory.heapUsedMB", () -> (Runtime.getRuntime().totalMemory() - Runtime.getRuntime().freeMemory()) >> 20);
+        metrics.gauge("session.memoryBytes", this::getMemoryUsage);
+        metrics.gauge("tasks.running", () -> taskExecutor.getRunningTasks().size());
+    }
+
+    /**
+     * Creates a new session with the same configuration as the given started <code>Tool</code>, sharing its stall
+     * watchdog, ROM validator, content store and operations in progress
+     */
+    private Tool(Tool template)
+    {
+        this();
+        started = true;
+        windowMode = template.windowMode;
+        type = template.type;
+        name = template.name;
+        version = template.version;
+        flavorText = template.flavorText;
+        author = template.author;
+        alternateStartPanels = template.alternateStartPanels;
+        defaultLocale = template.defaultLocale;
+        locales = template.locales;
+        gitEnabled = template.gitEnabled;
+        romMemoryMapped = template.romMemoryMapped;
+        projectLoadedLazily = template.projectLoadedLazily;
+        validationVerdictsRemembered = template.validationVerdictsRemembered;
+        contentStorePath = template.contentStorePath;
+        contentStore = template.getContentStore().orElse(null);
+        buildOnSavePath = template.buildOnSavePath;
+        projectfileBinary = template.projectfileBinary;
+        commitDebounce = template.commitDebounce;
+        stallThreshold = template.stallThreshold;
+        shutdownTimeout = template.shutdownTimeout;
+        gameCodes.addAll(template.gameCodes);
+        gameTitles.addAll(template.gameTitles);
+        validationChecks.putAll(template.validationChecks);
+        romValidator = template.getRomValidator();
+        icon = template.icon;
+        panelManagerSuppliers = template.panelManagerSuppliers;
+        functions = template.functions;
+
+        // there is only one event dispatch thread, so every session reports to the same watchdog
+        operations = template.operations;
+        edtWatchdog = template.edtWatchdog;
     }
 
     /**
@@ -234,6 +329,148 @@ public class Tool {
         return this;
     }
 
+    /**
+     * Sets how long Git commits are held back for after a save, so that commits requested in quick succession are
+     * merged into one. The default is 10 seconds.
+     * @param debounce a <code>Duration</code> containing how long to wait for further commit requests before committing.
+     *                 <p>This will do nothing if Git is not enabled</p>
+     * @return a reference to this object
+     * @throws ToolAttributeModificationException if ran after calling <code>init()</code>
+     */
+    public Tool setCommitDebounce(Duration debounce)
+    {
+        testStarted();
+        if (debounce == null || debounce.isNegative())
+            throw new ToolAttributeModificationException("The commit debounce window must be zero or a positive duration");
+        this.commitDebounce = debounce;
+        return this;
+    }
+
+    /**
+     * Sets how long the tool window may spend handling a single event before the <code>EdtWatchdog</code> records it
+     * as a stall, capturing what the event dispatch thread was doing at the time. The default is 250 milliseconds.
+     * @param threshold a <code>Duration</code> containing the longest an event may take, or <code>null</code> to
+     *                  disable the watchdog.
+     *                  <p>This will do nothing in function mode, since there is no tool window</p>
+     * @return a reference to this object
+     * @throws ToolAttributeModificationException if ran after calling <code>init()</code>
+     */
+    public Tool setStallThreshold(Duration threshold)
+    {
+        testStarted();
+        if (threshold != null && (threshold.isNegative() || threshold.isZero()))
+            throw new ToolAttributeModificationException("The stall threshold must be a positive duration");
+        this.stallThreshold = threshold;
+        return this;
+    }
+
+    /**
+     * Sets how long closing the tool window may spend waiting for saves, commits, exports and background tasks which
+     * are still in progress before the user is asked whether to keep waiting or close anyway. The default is 30 seconds.
+     * @param timeout a <code>Duration</code> containing the longest time to wait before asking.
+     *                <p>This will do nothing in function mode, since there is no tool window</p>
+     * @return a reference to this object
+     * @throws ToolAttributeModificationException if ran after calling <code>init()</code>
+     */
+    public Tool setShutdownTimeout(Duration timeout)
+    {
+        testStarted();
+        if (timeout == null || timeout.isNegative() || timeout.isZero())
+            throw new ToolAttributeModificationException("The shutdown timeout must be a positive duration");
+        this.shutdownTimeout = timeout;
+        return this;
+    }
+
+    /**
+     * Makes this <code>Tool</code> memory-map the selected ROM instead of loading all of it onto the heap.
+     * <p>In this mode, files should be accessed through <code>getFileView()</code> and <code>getFileForWriting()</code>.
+     * Only files requested for writing are copied onto the heap, so memory usage scales with the files the tool
+     * actually touches rather than with the size of the ROM. Calling <code>getRom()</code> or registering validation
+     * checks loads the full ROM onto the heap, as does exporting the ROM if a modified file has outgrown its space.</p>
+     * @param enabled a <code>boolean</code> representing whether the ROM should be memory-mapped.
+     *                <p>This will do nothing if <code>ProgramType.PROJECT</code> has been set</p>
+     * @return a reference to this object
+     * @throws ToolAttributeModificationException if ran after calling <code>init()</code>
+     */
+    public Tool setRomMemoryMapped(boolean enabled)
+    {
+        testStarted();
+        this.romMemoryMapped = enabled;
+        return this;
+    }
+
+    /**
+     * Makes this <code>Tool</code> open projects lazily instead of reading every file in the project up front.
+     * <p>In this mode, only the project's header is read and its files are indexed when it is opened. Each file is
+     * read from disk the first time it is requested through <code>getFileView()</code> or <code>getFileForWriting()</code>,
+     * with nearby files read ahead in the background. Calling <code>getRom()</code> or registering validation checks
+     * loads the full project onto the heap.</p>
+     * @param enabled a <code>boolean</code> representing whether projects should be opened lazily.
+     *                <p>This will do nothing if <code>ProgramType.ROM</code> has been set</p>
+     * @return a reference to this object
+     * @throws ToolAttributeModificationException if ran after calling <code>init()</code>
+     */
+    public Tool setProjectLoadedLazily(boolean enabled)
+    {
+        testStarted();
+        this.projectLoadedLazily = enabled;
+        return this;
+    }
+
+    /**
+     * Makes new projects share the files of their base ROM through a <code>ContentStore</code> in the given directory,
+     * instead of each project getting its own copy of every file.
+     * <p>Files are hard linked from the store into the project, and only copied once they are first saved, so creating
+     * a project from a base ROM which has been used before takes almost no time or space. The same directory can be
+     * shared by several tools. This is off by default.</p>
+     * @param directory a <code>String</code> containing the path of the store's directory, which is created if it doesn't
+     *                  exist, or <code>null</code> to give every project its own copy of every file.
+     *                  <p>This will do nothing if <code>ProgramType.ROM</code> has been set</p>
+     * @return a reference to this object
+     * @throws ToolAttributeModificationException if ran after calling <code>init()</code>
+     */
+    public Tool setContentStore(String directory)
+    {
+        testStarted();
+        this.contentStorePath = directory == null ? null : Path.of(directory);
+        return this;
+    }
+
+    /**
+     * Makes this <code>Tool</code> build the project's ROM in the background every time modified files are saved.
+     * <p>Builds are incremental: the last ROM built is kept in the project, and files which changed since then are
+     * patched into it as long as they still fit in their existing space. Saves made while a build is waiting to start
+     * are covered by that build. Failed builds are only reported on the console. This is off by default.</p>
+     * @param outputPath a <code>String</code> containing the path to write the built ROM to, or <code>null</code> to
+     *                   not build on save.
+     *                   <p>This will do nothing if <code>ProgramType.ROM</code> has been set</p>
+     * @return a reference to this object
+     * @throws ToolAttributeModificationException if ran after calling <code>init()</code>
+     */
+    public Tool setBuildOnSave(String outputPath)
+    {
+        testStarted();
+        this.buildOnSavePath = outputPath == null ? null : Path.of(outputPath);
+        return this;
+    }
+
+    /**
+     * Makes this <code>Tool</code> write its Projectfile in Smile, a binary encoding of JSON, instead of as JSON text.
+     * <p>Smile files are smaller and faster to parse, which matters for tools which keep large indices in their project
+     * info, but can't be read or diffed as text. Projectfiles in either format can always be opened, and an existing
+     * Projectfile is converted the next time it is written. This is off by default.</p>
+     * @param enabled a <code>boolean</code> representing whether the Projectfile should be written as Smile.
+     *                <p>This will do nothing if <code>ProgramType.ROM</code> has been set</p>
+     * @return a reference to this object
+     * @throws ToolAttributeModificationException if ran after calling <code>init()</code>
+     */
+    public Tool setProjectfileBinary(boolean enabled)
+    {
+        testStarted();
+        this.projectfileBinary = enabled;
+        return this;
+    }
+
     /**
      * Sets the icon of this <code>Tool</code>
      * @param icon a <code>ImageIcon</code> to serve as the icon of this <code>Tool</code>
@@ -284,6 +521,7 @@ public class Tool {
 
     /**
      * Adds a check to be performed on the selected ROM to this <code>Tool</code>
+     * <p>Checks are run concurrently with one another, so they must only read from the ROM.</p>
      * @param predicate a <code>Predicate</code><<code>NintendoDsRom</code>> which performs a check on the selected ROM
      * @param errorMessage a <code>String</code> containing an error message to be displayed if the validation fails.
      * @return a reference to this object
@@ -298,6 +536,25 @@ public class Tool {
         return this;
     }
 
+    /**
+     * Sets whether the verdicts of this <code>Tool</code>'s validation checks are remembered between sessions, so that
+     * a ROM which has been checked before isn't checked again the next time the tool runs.
+     * <p>Verdicts are remembered for each ROM by a fingerprint of its contents, and are discarded when the tool's name,
+     * version or validation checks' error messages change. They are not discarded when only what a check does changes,
+     * so tools whose checks change without any of those changing, such as during development, should turn this off or
+     * call <code>clearValidationVerdicts()</code>. Verdicts are always remembered for the rest of the current session.
+     * This is on by default.</p>
+     * @param enabled a <code>boolean</code> representing whether verdicts should be remembered between sessions
+     * @return a reference to this object
+     * @throws ToolAttributeModificationException if ran after calling <code>init()</code>
+     */
+    public Tool setValidationVerdictsRemembered(boolean enabled)
+    {
+        testStarted();
+        this.validationVerdictsRemembered = enabled;
+        return this;
+    }
+
     /**
      * Adds a function to be run on the selected ROM to this <code>Tool</code>.
      * <p>This cannot be used in conjunction with the <code>addFunction()</code> function</p>
@@ -353,6 +610,14 @@ public class Tool {
         }
 
         windowMode = functions.isEmpty(); // if functions is empty, then panelManagerSuppliers is not, and vice-versa
+        sessionName = name;
+        metrics.registerMBean(sessionName);
+
+        if (windowMode && stallThreshold != null && !GraphicsEnvironment.isHeadless())
+        {
+            edtWatchdog = new EdtWatchdog(this, stallThreshold);
+            edtWatchdog.start();
+        }
 
         if (windowMode && SystemInfo.isMacOS)
         {
@@ -363,6 +628,7 @@ public class Tool {
         }
 
         testGitAllowed();
+        testDeferredLoadingAllowed();
 
         setLookAndFeel();
         switch (type) {
@@ -391,29 +657,81 @@ public class Tool {
         }
     }
 
+    private void testDeferredLoadingAllowed()
+    {
+        if (romMemoryMapped && type == ProgramType.PROJECT)
+        {
+            System.err.println("[WARNING]: This tool is configured to memory-map ROMs, but this is only available for ROM-based tools.");
+            romMemoryMapped = false;
+        }
+        if (projectLoadedLazily && type == ProgramType.ROM)
+        {
+            System.err.println("[WARNING]: This tool is configured to open projects lazily, but this is only available for project-based tools.");
+            projectLoadedLazily = false;
+        }
+    }
+
     private void startRomBasedTool()
     {
-        String romPath = selectAndValidateRom(toolFrame);
+        selectAndValidateRom(toolFrame, romPath -> {
+            if (windowMode)
+                startToolWindow(romPath);
+            else
+                runProvidedFunctionsAndExport();
+        });
+    }
 
-        if (romPath == null)
-            return;
+    /**
+     * Runs the provided functions on a background thread while displaying the progress to the user, then asks where to
+     * export the modified ROM to. Must be called on the event dispatch thread.
+     */
+    private void runProvidedFunctionsAndExport()
+    {
+        ProgressDialog dialog = new ProgressDialog(null, "Running " + name);
+        dialog.setStatus("Modifying ROM");
+        dialog.setIndeterminate(true);
+        dialog.setCancellable(false);
 
-        if (windowMode)
-            startToolWindow(romPath);
-        else {
-            runProvidedFunctions();
-            String outputPath = selectRomToExport();
-            try {
-                rom.saveToFile(outputPath, true);
+        SwingWorker<Void, Void> worker = new SwingWorker<>()
+        {
+            @Override
+            protected Void doInBackground()
+            {
+                try (Operation ignored = beginOperation("Running the provided functions")) {
+                    runProvidedFunctions();
+                }
+                return null;
             }
-            catch(IOException e) {
-                throw new RuntimeException(e);
+
+            @Override
+            protected void done()
+            {
+                dialog.finish();
+                try {
+                    get();
+                }
+                catch (CancellationException | InterruptedException e) {
+                    return;
+                }
+                catch (ExecutionException e) {
+                    Throwable cause = e.getCause() == null ? e : e.getCause();
+                    JOptionPane.showMessageDialog(null, cause.getMessage(), "ROM Modification Failed", JOptionPane.ERROR_MESSAGE);
+                    return;
+                }
+
+                String outputPath = selectRomToExport();
+                if (outputPath == null)
+                    return;
+                exportRom(null, outputPath, null);
             }
-        }
+        };
+        dialog.attach(worker);
+        worker.execute();
     }
 
     private void startProjectBasedTool()
     {
+        registerSession();
         projectStartFrame = new JFrame();
         projectStartFrame.setTitle(name);
         ProjectStartPanel panel = new ProjectStartPanel(this);
@@ -451,7 +769,7 @@ public class Tool {
                     startToolWindow(panel.getProjectPath());
                 }
                 else {
-                    System.exit(0);
+                    endSession();
                 }
             }
         });
@@ -459,6 +777,7 @@ public class Tool {
         projectStartFrame.setLocationRelativeTo(null);
         projectStartFrame.setContentPane(startPanel);
         handleMacOS(projectStartFrame);
+        ThemeUtils.preloadIconsAfterFirstPaint(projectStartFrame);
         projectStartFrame.setVisible(true);
     }
 
@@ -472,13 +791,15 @@ public class Tool {
     protected void startToolWindow(String path)
     {
         this.path = path;
+        registerSession();
         toolFrame = new ToolFrame(this);
         //todo uncomment
         toolFrame.setTitle(name + " " + version + " " + new File(path).getName());
 //        toolFrame.setTitle(name + " " + version + " ~/Documents/Projects/HeartGold.nds");
 
+        MetricsRegistry.Timer panelTimer = metrics.timer("panels.construction");
         for (Supplier<PanelManager> panelManagerSupplier : panelManagerSuppliers) {
-            toolFrame.addToolPanels(panelManagerSupplier.get());
+            panelTimer.time(() -> toolFrame.addToolPanels(panelManagerSupplier.get()));
         }
 
         toolFrame.setPreferredSize(toolFrame.getPreferredSize());
@@ -488,6 +809,7 @@ public class Tool {
 
         toolFrame.setLocationRelativeTo(null);
         handleMacOS(toolFrame);
+        ThemeUtils.preloadIconsAfterFirstPaint(toolFrame);
         toolFrame.setVisible(true);
 
         toolFrame.addWindowListener(new WindowAdapter()
@@ -496,21 +818,208 @@ public class Tool {
             public void windowClosed(WindowEvent e)
             {
                 super.windowClosed(e);
-                System.exit(0);
+                endSession();
             }
         });
     }
 
+    /**
+     * Opens another ROM or project alongside the ones already open, in its own window with its own panel managers.
+     * <p>The new session has the same configuration as this <code>Tool</code>, and starts by asking the user for a ROM
+     * or project just like <code>init()</code> does. Sessions share the look and feel, the theme's icons, the user
+     * preferences, the stall watchdog, the results of ROM validation and the content store, but each has its own loaded
+     * ROM, edit history, Git repository, metrics and background threads. The program exits once every session's
+     * window has been closed. Must be called on the event dispatch thread.</p>
+     * @return the new session's <code>Tool</code>
+     * @throws IllegalStateException if this <code>Tool</code> has not been started with a window
+     */
+    public Tool newSession()
+    {
+        if (!started || !windowMode)
+            throw new IllegalStateException("Only a tool which has been started with a window can open another session");
+
+        Tool session = new Tool(this);
+        switch (type) {
+            case PROJECT -> session.startProjectBasedTool();
+            case ROM -> session.startRomBasedTool();
+        }
+        return session;
+    }
+
+    /**
+     * Gets every session which is currently open in this program, in the order they were opened
+     * @return an unmodifiable <code>List</code><<code>Tool</code>>
+     */
+    public static List<Tool> getSessions()
+    {
+        return Collections.unmodifiableList(new ArrayList<>(sessions));
+    }
+
+    /**
+     * Records that this session has a window open, so that the program doesn't exit until it is closed
+     */
+    private void registerSession()
+    {
+        if (!sessions.addIfAbsent(this) || sessionName != null)
+            return;
+        sessionName = name + " #" + sessionNumber.incrementAndGet();
+        metrics.registerMBean(sessionName);
+    }
+
+    /**
+     * Ends this session once its window has been closed, releasing the ROM it had loaded. The program exits once no
+     * sessions are left.
+     */
+    protected void endSession()
+    {
+        endSession(Duration.ofSeconds(5));
+    }
+
+    /**
+     * Ends this session, waiting up to the given time for its background tasks to stop after cancelling them. The
+     * session's other background threads are stopped and its Git repository is closed.
+     * @param taskTimeout a <code>Duration</code> containing the longest time to wait
+     */
+    void endSession(Duration taskTimeout)
+    {
+        if (!sessions.remove(this))
+            return;
+
+        metrics.unregisterMBean(sessionName);
+        if (!taskExecutor.shutdown(taskTimeout))
+            System.err.println("[WARNING]: Background tasks did not stop before the window closed: " + taskExecutor.getRunningTasks());
+        if (projectBuilder != null)
+            projectBuilder.close();
+        eventBus.close();
+        closeGit();
+        setLoadedRom(null, null);
+        if (sessions.isEmpty())
+            System.exit(0);
+    }
+
+    /**
+     * Gets an estimate of how much heap this session is using for its loaded ROM and its edit history.
+     * <p>A ROM loaded onto the heap is counted as the size of the file or project it was loaded from. Memory-mapped
+     * ROMs and lazily opened projects only count their edit history, since the files they bring onto the heap are
+     * small in comparison.</p>
+     * @return a <code>long</code> containing a number of bytes
+     */
+    public long getMemoryUsage()
+    {
+        return getLoadedRomSize() + editJournal.getMemoryUsage();
+    }
+
+    private synchronized long getLoadedRomSize()
+    {
+        NintendoDsRom loaded = rom;
+        if (loaded == null || path == null)
+            return 0;
+        if (loaded == sizedRom)
+            return sizedRomBytes;
+
+        long size = 0;
+        try {
+            Path source = Path.of(path);
+            Path snapshot = source.resolve(ProjectManifest.folderName).resolve(ProjectManifest.snapshotName);
+            if (Files.isRegularFile(source))
+                size = Files.size(source);
+            else if (Files.isRegularFile(snapshot))
+                size = Files.size(snapshot);
+            else if (Files.isDirectory(source))
+                size = FileUtils.getDirectorySize(Path.of(FileUtils.getProjectUnpackedRomPath(path)));
+        }
+        catch (IOException e) {
+            System.err.println("[WARNING]: Failed to measure the loaded ROM: " + e.getMessage());
+        }
+        sizedRom = loaded;
+        sizedRomBytes = size;
+        return size;
+    }
+
+    /**
+     * Sets the ROM or project this <code>Tool</code> is working on without starting the tool window, so that files
+     * can be written and committed headlessly
+     * @param path a <code>String</code> containing either the path to the ROM or project
+     */
+    protected void setPath(String path)
+    {
+        this.path = path;
+    }
+
     /**
      * Runs the provided functions on the loaded <code>NintendoDsRom</code>
      */
     protected void runProvidedFunctions()
+    {
+        runProvidedFunctions(rom);
+    }
+
+    /**
+     * Runs the provided functions on the given <code>NintendoDsRom</code>
+     * @param rom the <code>NintendoDsRom</code> to run the functions on
+     */
+    protected void runProvidedFunctions(NintendoDsRom rom)
     {
         for (Consumer<NintendoDsRom> function : functions) {
             function.accept(rom);
         }
     }
 
+    /**
+     * Runs this function-based <code>Tool</code> over many ROMs at once without displaying any user interface, using
+     * one worker per available processor. This is used in place of <code>init()</code>.
+     * @param input a <code>String</code> containing either a directory (every ROM directly inside it is processed) or
+     *              a glob pattern matching the ROMs to process, such as <code>roms/**&#47;*.nds</code>
+     * @param outputDirectory a <code>String</code> containing the directory to save the modified ROMs to. Each ROM
+     *                        keeps its path relative to the deepest folder the inputs have in common, and a
+     *                        <code>batch-report.json</code> file is written alongside them.
+     * @return a <code>List</code><<code>BatchResult</code>> with one entry per ROM, in sorted input order
+     * @throws ToolCreationException if this <code>Tool</code> has no functions or has panel managers
+     * @throws IOException if the input can't be listed, or the output directory or report can't be written
+     */
+    public List<BatchResult> runBatch(String input, String outputDirectory) throws IOException
+    {
+        return runBatch(input, outputDirectory, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Runs this function-based <code>Tool</code> over many ROMs at once without displaying any user interface.
+     * This is used in place of <code>init()</code>.
+     * <p>Each ROM is loaded, checked against the validation checks, has every provided function run on it and is
+     * then saved, with up to <code>workerCount</code> ROMs being processed in parallel. Fewer ROMs are processed at
+     * once if they would not fit comfortably in the available heap. A ROM which fails or is not supported does not
+     * stop the rest of the batch. Since the functions may run on several ROMs at the same time, they must not share
+     * any mutable state without synchronizing it.</p>
+     * @param input a <code>String</code> containing either a directory (every ROM directly inside it is processed) or
+     *              a glob pattern matching the ROMs to process, such as <code>roms/**&#47;*.nds</code>
+     * @param outputDirectory a <code>String</code> containing the directory to save the modified ROMs to. Each ROM
+     *                        keeps its path relative to the deepest folder the inputs have in common, and a
+     *                        <code>batch-report.json</code> file is written alongside them.
+     * @param workerCount an <code>int</code> containing the maximum number of ROMs to process at once
+     * @return a <code>List</code><<code>BatchResult</code>> with one entry per ROM, in sorted input order
+     * @throws ToolCreationException if this <code>Tool</code> has no functions or has panel managers
+     * @throws IOException if the input can't be listed, or the output directory or report can't be written
+     */
+    public List<BatchResult> runBatch(String input, String outputDirectory, int workerCount) throws IOException
+    {
+        started = true;
+        if (functions.isEmpty())
+            throw new ToolCreationException("Batch mode requires functions to be provided");
+        if (!panelManagerSuppliers.isEmpty())
+            throw new ToolCreationException("Both panel managers and functions were provided - please only use one type of tool functionality");
+
+        List<Path> inputs = BatchRunner.resolveInputs(input);
+        Path outputPath = Path.of(outputDirectory);
+        for (Path inputPath : inputs)
+        {
+            if (inputPath.toAbsolutePath().getParent().equals(outputPath.toAbsolutePath()))
+                throw new IOException("The output directory must not contain the input ROMs: " + outputDirectory);
+        }
+
+        BatchRunner runner = new BatchRunner(this, workerCount, Runtime.getRuntime().maxMemory() / 4 * 3);
+        return runner.run(inputs, outputPath);
+    }
+
     private void handleToolbarIfSupported()
     {
         final Taskbar taskbar = Taskbar.getTaskbar();
@@ -568,62 +1077,492 @@ public class Tool {
         return name;
     }
 
+    /**
+     * Gets the type of this <code>Tool</code>
+     * @return a <code>ProgramType</code>
+     */
+    public ProgramType getType()
+    {
+        return type;
+    }
+
     /**
      * Gets the <code>NintendoDsRom</code> loaded by this project
+     * <p>If the ROM is memory-mapped or the project was opened lazily, this loads the entire ROM onto the heap, with all
+     * modifications made so far applied. From then on, all file accesses use the loaded <code>NintendoDsRom</code>.
+     * This may be called from any thread.</p>
      * @return a <code>NintendoDsRom</code>
      */
     public NintendoDsRom getRom()
     {
-        return rom;
+        romLock.lock();
+        try {
+            if (rom == null && deferredRom != null)
+            {
+                rom = deferredRom.toNintendoDsRom();
+                try {
+                    deferredRom.close();
+                }
+                catch (IOException e) {
+                    System.err.println("[WARNING]: Failed to close deferred ROM: " + e.getMessage());
+                }
+                deferredRom = null;
+            }
+            return rom;
+        }
+        finally {
+            romLock.unlock();
+        }
     }
 
     /**
-     * Gets the contents of this <code>Tool</code>'s Projectfile, if one exists, in JSON format
-     * @return a <code>ObjectNode</code>
+     * Exports the loaded ROM, with all modifications applied, to the given path in the background while displaying
+     * the progress to the user. The file at the path is only replaced once the new ROM has been completely written.
+     * <p>If the ROM is memory-mapped, it is streamed straight from the mapping without being loaded onto the heap
+     * whenever possible. Must be called on the event dispatch thread.</p>
+     * @param parentComponent the <code>Component</code> to display the progress and any errors relative to
+     * @param outputPath a <code>String</code> containing the path to export the ROM to
+     * @param onExported a <code>Runnable</code> which is run on the event dispatch thread if the export succeeds, or <code>null</code>
      */
-    public ObjectNode getInfo()
+    public void exportRom(Component parentComponent, String outputPath, Runnable onExported)
     {
-        return info;
+        long start = System.nanoTime();
+        Runnable onExportedTimed = () -> {
+            metrics.timer("rom.export").recordSince(start);
+            if (onExported != null)
+                onExported.run();
+        };
+
+        RomExporter exporter;
+        if (getProjectBuilder() != null)
+            exporter = RomExporter.of(this, projectBuilder, Path.of(outputPath), parentComponent, onExportedTimed);
+        else if (rom == null && deferredRom instanceof MappedRom mappedRom)
+            exporter = RomExporter.of(this, mappedRom, Path.of(outputPath), parentComponent, onExportedTimed);
+        else
+            exporter = RomExporter.of(this, getRom(), Path.of(outputPath), parentComponent, onExportedTimed);
+        exports.add(exporter);
+        exporter.start();
     }
 
-    public boolean isGitEnabled()
+    /**
+     * Gets the exports started by <code>exportRom()</code> which haven't finished yet
+     * @return a <code>List</code><<code>Future</code>>
+     */
+    List<Future<?>> getPendingExports()
     {
-        return gitEnabled;
+        exports.removeIf(Future::isDone);
+        return new ArrayList<>(exports);
     }
 
-    protected void setGitEnabledInternal(boolean gitEnabled)
+    /**
+     * Gets a <code>Future</code> which completes once every build queued by saving the project has finished
+     * @return a <code>Future</code>
+     */
+    synchronized Future<?> getPendingBuilds()
     {
-        this.gitEnabled = gitEnabled;
+        return projectBuilder == null ? CompletableFuture.completedFuture(null) : projectBuilder.whenIdle();
     }
 
     /**
-     * Gets a list of the compatible game codes for this <code>Tool</code>
-     * @return a <code>List</code><<code>String</code>> containing the compatible game codes.
-     * <p>An empty list means that all ROMs are supported</p>
+     * Gets a read-only view of the contents of a file in the loaded ROM.
+     * <p>If the ROM is memory-mapped, no data is copied onto the heap unless the file has already been modified.
+     * If the project was opened lazily, the file is read from disk if this is the first time it was requested.
+     * This may be called from any thread.</p>
+     * @param pathWithinRom a <code>String</code> containing the path of a file within the ROM's filesystem
+     * @return a read-only <code>ByteBuffer</code>
      */
-    public List<String> getGameCodes()
+    public ByteBuffer getFileView(String pathWithinRom)
     {
-        return gameCodes;
+        romLock.lock();
+        try {
+            if (rom == null && deferredRom != null)
+                return deferredRom.getFileView(pathWithinRom);
+            return ByteBuffer.wrap(rom.getFileByName(pathWithinRom)).asReadOnlyBuffer();
+        }
+        finally {
+            romLock.unlock();
+        }
     }
 
-    protected JFrame getProjectStartFrame()
+    /**
+     * Gets the contents of a file in the loaded ROM so that they can be modified in place.
+     * <p>If the ROM is memory-mapped or the project was opened lazily, the file is brought onto the heap the first time
+     * it is requested, and the same array is returned from then on.</p>
+     * @param pathWithinRom a <code>String</code> containing the path of a file within the ROM's filesystem
+     * @return a <code>byte[]</code>
+     */
+    public byte[] getFileForWriting(String pathWithinRom)
     {
-        return projectStartFrame;
+        romLock.lock();
+        try {
+            if (rom == null && deferredRom != null)
+                return deferredRom.getFileForWriting(pathWithinRom);
+            return rom.getFileByName(pathWithinRom);
+        }
+        finally {
+            romLock.unlock();
+        }
     }
 
-    protected ToolFrame getToolFrame()
+    /**
+     * Gets whether this <code>Tool</code> memory-maps ROMs instead of loading them onto the heap
+     * @return a <code>boolean</code>
+     */
+    public boolean isRomMemoryMapped()
     {
-        return toolFrame;
+        return romMemoryMapped;
     }
 
-    protected void setGit(Git git)
+    /**
+     * Gets whether this <code>Tool</code> opens projects lazily instead of reading every file up front
+     * @return a <code>boolean</code>
+     */
+    public boolean isProjectLoadedLazily()
     {
-        this.git = git;
+        return projectLoadedLazily;
     }
 
-    protected void setGitThread(Thread gitThread)
+    /**
+     * Gets the store which new projects share their files through, opening it the first time it is needed
+     * @return a <code>ContentStore</code> wrapped in an <code>Optional</code>, or <code>Optional.empty()</code> if no
+     * store was set with <code>setContentStore()</code> or its directory can't be created
+     */
+    public synchronized Optional<ContentStore> getContentStore()
     {
-        this.gitThread = gitThread;
+        if (contentStore == null && contentStorePath != null)
+        {
+            try {
+                contentStore = new ContentStore(contentStorePath);
+            }
+            catch (IOException e) {
+                System.err.println("[WARNING]: Failed to open content store, projects will get their own copy of every file: " + e.getMessage());
+                contentStorePath = null;
+            }
+        }
+        return Optional.ofNullable(contentStore);
+    }
+
+    /**
+     * Gets the builder for the ROM of the open project, creating it the first time it is needed
+     * @return a <code>ProjectBuilder</code>, or <code>null</code> if this <code>Tool</code> doesn't have a project open
+     */
+    protected synchronized ProjectBuilder getProjectBuilder()
+    {
+        if (projectBuilder == null && type == ProgramType.PROJECT && path != null)
+            projectBuilder = new ProjectBuilder(this, Path.of(path));
+        return projectBuilder;
+    }
+
+    /**
+     * Builds the ROM of the open project, with all modifications applied, and writes it to the given path. This runs on
+     * the calling thread, so it should not be called on the event dispatch thread.
+     * <p>Only files which changed since the last build are written, as long as each still fits in the space it had in
+     * that build. Otherwise, the whole ROM is serialized again.</p>
+     * @param outputPath a <code>String</code> containing the path to write the ROM to
+     * @throws IllegalStateException if this <code>Tool</code> doesn't have a project open
+     * @throws IOException if the ROM can't be built or written
+     */
+    public void buildProject(String outputPath) throws IOException
+    {
+        ProjectBuilder builder = getProjectBuilder();
+        if (builder == null)
+            throw new IllegalStateException("No project is open");
+        try (Operation ignored = beginOperation("Building ROM to " + outputPath)) {
+            builder.build(Path.of(outputPath));
+        }
+    }
+
+    /**
+     * Discards the ROM kept from the last build of the open project, so the next build serializes the whole ROM again.
+     * This must be called after changing anything about the loaded ROM other than the files in its filesystem, such as
+     * its header or ARM9 binary, without saving that change to the project.
+     */
+    public void invalidateBuildCache()
+    {
+        ProjectBuilder builder = getProjectBuilder();
+        if (builder == null)
+            return;
+        try {
+            builder.invalidate();
+        }
+        catch (IOException e) {
+            System.err.println("[WARNING]: Failed to discard the project's last build: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Gets whether this <code>Tool</code> has validation checks which must be run on a fully loaded ROM
+     * @return a <code>boolean</code>
+     */
+    protected boolean hasValidationChecks()
+    {
+        return !validationChecks.isEmpty();
+    }
+
+    /**
+     * Replaces the ROM loaded by this <code>Tool</code>
+     * @param rom a <code>NintendoDsRom</code>, or <code>null</code> if only a deferred ROM is available
+     * @param deferredRom a <code>DeferredRom</code>, or <code>null</code> if the ROM is loaded onto the heap
+     */
+    protected void setLoadedRom(NintendoDsRom rom, DeferredRom deferredRom)
+    {
+        boolean replaced;
+        romLock.lock();
+        try {
+            if (this.deferredRom != null && this.deferredRom != deferredRom)
+            {
+                try {
+                    this.deferredRom.close();
+                }
+                catch (IOException e) {
+                    System.err.println("[WARNING]: Failed to close deferred ROM: " + e.getMessage());
+                }
+            }
+            replaced = this.rom != rom || (rom == null && this.deferredRom != deferredRom);
+            this.rom = rom;
+            this.deferredRom = rom == null ? deferredRom : null;
+        }
+        finally {
+            romLock.unlock();
+        }
+
+        // outside of the lock, since the journal calls back into getFileForWriting() while holding its own
+        if (replaced)
+        {
+            editJournal.reset();
+            if (projectBuilder != null)
+                projectBuilder.recordAllChanged();
+        }
+    }
+
+    /**
+     * Gets the contents of this <code>Tool</code>'s Projectfile, if one exists, in JSON format
+     * <p>Changes made to it are only written back to the Projectfile once <code>markInfoModified()</code> is called, or
+     * when they are made through <code>updateInfo()</code>.</p>
+     * @return a <code>ObjectNode</code>
+     */
+    public ObjectNode getInfo()
+    {
+        return info;
+    }
+
+    /**
+     * Changes the contents of this <code>Tool</code>'s Projectfile, then queues writing them back to disk.
+     * <p>The update runs while holding the lock the project info is copied under before being written, so it is safe
+     * to call from any thread. Writes are made on a background thread once no further change has been made for a couple of seconds,
+     * so many changes in a row only write the Projectfile once.</p>
+     * @param update a <code>Consumer</code><<code>ObjectNode</code>> which modifies the project info
+     * @throws IllegalStateException if this <code>Tool</code> doesn't have a project open
+     */
+    public void updateInfo(Consumer<ObjectNode> update)
+    {
+        if (info == null)
+            throw new IllegalStateException("No project is open");
+        synchronized (info)
+        {
+            update.accept(info);
+        }
+        markInfoModified();
+    }
+
+    /**
+     * Queues writing the contents of this <code>Tool</code>'s Projectfile back to disk, after they were changed
+     * through <code>getInfo()</code>.
+     * <p>The contents are copied on the calling thread and the copy is written later, so this must be called on the
+     * thread which made the changes. If other threads may change the project info at the same time, use
+     * <code>updateInfo()</code> instead.</p>
+     */
+    public void markInfoModified()
+    {
+        ProjectInfoStore store = getProjectInfoStore();
+        if (store == null)
+            return;
+
+        ObjectNode snapshot;
+        synchronized (info)
+        {
+            snapshot = info.deepCopy();
+        }
+        store.request(snapshot);
+    }
+
+    /**
+     * Writes the contents of this <code>Tool</code>'s Projectfile to disk right away if a write is queued, waiting up
+     * to the given time for it to finish
+     * @param timeout a <code>Duration</code> containing the longest time to wait
+     * @return a <code>boolean</code> containing whether the queued write finished within the timeout
+     */
+    protected boolean flushInfo(Duration timeout)
+    {
+        try {
+            startInfoFlush().get(timeout.toMillis(), TimeUnit.MILLISECONDS);
+            return !isInfoPending();
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+        catch (ExecutionException | TimeoutException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Starts writing the contents of this <code>Tool</code>'s Projectfile to disk right away if a write is queued,
+     * without waiting for it
+     * @return a <code>Future</code> which completes once the write (if there was anything to write) has finished
+     */
+    synchronized Future<?> startInfoFlush()
+    {
+        if (projectInfoStore == null || !projectInfoStore.isPending())
+            return CompletableFuture.completedFuture(null);
+        return projectInfoStore.flush();
+    }
+
+    /**
+     * Gets whether a write of this <code>Tool</code>'s Projectfile is queued and has not been made yet
+     * @return a <code>boolean</code>
+     */
+    synchronized boolean isInfoPending()
+    {
+        return projectInfoStore != null && projectInfoStore.isPending();
+    }
+
+    private synchronized ProjectInfoStore getProjectInfoStore()
+    {
+        if (projectInfoStore == null && info != null && type == ProgramType.PROJECT && path != null)
+        {
+            projectInfoStore = new ProjectInfoStore(Path.of(FileUtils.getProjectfilePath(path)), projectfileBinary,
+                    infoWriteDebounce, projectfile -> {
+                        trackUncommittedPath(projectfile);
+                        metrics.counter("projectfile.writes").increment();
+                    }, taskExecutor);
+        }
+        return projectInfoStore;
+    }
+
+    public boolean isGitEnabled()
+    {
+        return gitEnabled;
+    }
+
+    protected void setGitEnabledInternal(boolean gitEnabled)
+    {
+        this.gitEnabled = gitEnabled;
+    }
+
+    /**
+     * Gets a list of the compatible game codes for this <code>Tool</code>
+     * @return a <code>List</code><<code>String</code>> containing the compatible game codes.
+     * <p>An empty list means that all ROMs are supported</p>
+     */
+    public List<String> getGameCodes()
+    {
+        return gameCodes;
+    }
+
+    protected JFrame getProjectStartFrame()
+    {
+        return projectStartFrame;
+    }
+
+    protected ToolFrame getToolFrame()
+    {
+        return toolFrame;
+    }
+
+    /**
+     * Gets the metrics this <code>Tool</code> records about how long loading, validating, saving, committing and
+     * exporting take, along with any metrics registered by its <code>PanelManager</code>s
+     * @return a <code>MetricsRegistry</code>
+     */
+    public MetricsRegistry getMetrics()
+    {
+        return metrics;
+    }
+
+    /**
+     * Gets the watchdog recording stalls of the tool window's event dispatch thread
+     * @return an <code>EdtWatchdog</code> wrapped in an <code>Optional</code>, or <code>Optional.empty()</code> if the
+     * tool has no window, has not been started or the watchdog was disabled with <code>setStallThreshold(null)</code>
+     */
+    public Optional<EdtWatchdog> getEdtWatchdog()
+    {
+        return Optional.ofNullable(edtWatchdog);
+    }
+
+    /**
+     * Records that the calling thread has started a potentially slow operation, so that it can be reported alongside
+     * any stall of the tool window which happens while it is in progress. Operations may be nested, in which case the
+     * outer one is reported again once the inner one is closed.
+     * <pre>
+     * try (Tool.Operation operation = tool.beginOperation("Rebuilding trainer table")) {
+     *     ...
+     * }
+     * </pre>
+     * @param description a <code>String</code> describing the operation
+     * @return an <code>Operation</code> which must be closed on the same thread once the operation finishes
+     */
+    public Operation beginOperation(String description)
+    {
+        Thread thread = Thread.currentThread();
+        Operation operation = new Operation(operations, thread, description, operations.get(thread));
+        operations.put(thread, operation);
+        return operation;
+    }
+
+    /**
+     * Gets the operations which are currently in progress
+     * @return a <code>Map</code><<code>String</code>, <code>String</code>> of the name of each thread with an
+     * operation in progress to the description of that operation
+     */
+    public Map<String, String> getCurrentOperations()
+    {
+        Map<String, String> current = new TreeMap<>();
+        for (Operation operation : operations.values())
+            current.put(operation.thread.getName(), operation.description);
+        return Collections.unmodifiableMap(current);
+    }
+
+    protected void setGit(Git git)
+    {
+        this.git = git;
+    }
+
+    private void closeGit()
+    {
+        // a commit which didn't stop in time may still be using it
+        if (!gitLock.tryLock())
+        {
+            System.err.println("[WARNING]: The project's Git repository is still in use and was left open");
+            return;
+        }
+        try {
+            if (git != null)
+                git.close();
+            git = null;
+        }
+        finally {
+            gitLock.unlock();
+        }
+    }
+
+    /**
+     * Sets the task which is creating the project's Git repository, so that commits wait for it to finish
+     * @param gitInitialization a <code>TaskExecutor.Task</code>, or <code>null</code>
+     */
+    protected void setGitInitialization(TaskExecutor.Task<?> gitInitialization)
+    {
+        this.gitInitialization = gitInitialization;
+    }
+
+    /**
+     * Gets how long closing the tool window may wait for work in progress before asking the user what to do
+     * @return a <code>Duration</code>
+     */
+    protected Duration getShutdownTimeout()
+    {
+        return shutdownTimeout;
     }
 
     protected Lock getSaveLock()
@@ -643,28 +1582,79 @@ public class Tool {
      */
     public RomSupportContext isRomSupported(NintendoDsRom rom)
     {
-        boolean supported = false;
+        return isRomSupported(rom.getGameCode(), null, () -> rom);
+    }
 
-        for (String gameCode : gameCodes) {
-            if (rom.getGameCode().startsWith(gameCode)) {
-                supported = true;
-                break;
-            }
-        }
+    /**
+     * Performs tests to ensure a ROM is supported by this <code>Tool</code>, skipping the validation checks if the
+     * ROM with the given fingerprint has been validated before.
+     * <p>The validation checks are run concurrently, and the error message of the first failing check in the order
+     * they were added is reported.</p>
+     * @param gameCode a <code>String</code> containing the game code from the header of the ROM
+     * @param fingerprint a <code>String</code> containing a fingerprint of the ROM's contents created by
+     *                    <code>RomValidator</code>, or <code>null</code> if it is unknown
+     * @param romSupplier a <code>Supplier</code><<code>NintendoDsRom</code>> which is only called if the
+     *                    validation checks actually need to be run
+     * @return a <code>RomSupportContext</code> object containing whether the ROM is supported and an error message if that is not the case
+     */
+    protected RomSupportContext isRomSupported(String gameCode, String fingerprint, Supplier<NintendoDsRom> romSupplier)
+    {
+        RomSupportContext gameCodeContext = isGameCodeSupported(gameCode);
+        if (!gameCodeContext.isSupported())
+            return gameCodeContext;
+
+        RomSupportContext supportContext = metrics.timer("rom.validation").time(() -> getRomValidator().validate(fingerprint, romSupplier));
+        if (!supportContext.isSupported())
+            metrics.counter("rom.validation.rejected").increment();
+        return supportContext;
+    }
+
+    private synchronized RomValidator getRomValidator()
+    {
+        if (romValidator == null)
+            romValidator = new RomValidator(validationChecks, name + " " + version, validationVerdictsRemembered ? preferences.node("validationVerdicts") : null);
+        return romValidator;
+    }
 
-        if (gameCodes.isEmpty())
-            supported = true;
+    /**
+     * Forgets the verdict of this <code>Tool</code>'s validation checks for every ROM, both for the current session and
+     * between sessions, so that every ROM is checked again the next time it is opened
+     */
+    public void clearValidationVerdicts()
+    {
+        getRomValidator().clearCache();
+    }
 
-        if (!supported)
-            return new RomSupportContext(false, createGameCodeNotSupportedMessage(rom));
+    /**
+     * Gets how long each validation check took the last time the checks were run on a ROM
+     * @return an unmodifiable <code>Map</code><<code>String</code>, <code>Duration</code>> of each check's error
+     * message to how long it took, in the order the checks were added. Checks which were skipped because an earlier
+     * check failed are left out, and the map is empty if the last ROM's verdict was already known.
+     */
+    public Map<String, Duration> getValidationTimings()
+    {
+        return getRomValidator().getLastTimings();
+    }
 
-        for (Map.Entry<Predicate<NintendoDsRom>, String> check : validationChecks.entrySet()) {
-            if (!check.getKey().test(rom))
-            {
-                return new RomSupportContext(false, check.getValue());
+    /**
+     * Performs only the game code test to ensure a ROM is supported by this <code>Tool</code>, without running any
+     * validation checks which would require the ROM to be loaded
+     * @param gameCode a <code>String</code> containing the game code from the header of the user-provided ROM
+     * @return a <code>RomSupportContext</code> object containing whether the game code is supported and an error message if that is not the case
+     */
+    public RomSupportContext isGameCodeSupported(String gameCode)
+    {
+        boolean supported = gameCodes.isEmpty();
+
+        for (String supportedGameCode : gameCodes) {
+            if (gameCode.startsWith(supportedGameCode)) {
+                supported = true;
+                break;
             }
         }
 
+        if (!supported)
+            return new RomSupportContext(false, createGameCodeNotSupportedMessage(gameCode));
         return new RomSupportContext(true, null);
     }
 
@@ -675,12 +1665,22 @@ public class Tool {
      */
     public String createGameCodeNotSupportedMessage(NintendoDsRom rom)
     {
-        StringBuilder sb = new StringBuilder("The provided ROM (").append(rom.getGameCode()).append(") is not supported by this tool.\nThe following ROM(s) are supported:");
+        return createGameCodeNotSupportedMessage(rom.getGameCode());
+    }
+
+    /**
+     * Creates the message to be displayed to the user if their provided ROM is not supported by this <code>Tool</code>
+     * @param gameCode a <code>String</code> containing the game code of the user-provided ROM
+     * @return a <code>String</code> containing the error message
+     */
+    public String createGameCodeNotSupportedMessage(String gameCode)
+    {
+        StringBuilder sb = new StringBuilder("The provided ROM (").append(gameCode).append(") is not supported by this tool.\nThe following ROM(s) are supported:");
         for (int i = 0; i < gameTitles.size(); i++)
         {
-            String gameCode = gameCodes.get(i);
-            sb.append("\n").append(gameTitles.get(i)).append(" (").append(gameCode);
-            if (gameCode.length() == 3) {
+            String supportedGameCode = gameCodes.get(i);
+            sb.append("\n").append(gameTitles.get(i)).append(" (").append(supportedGameCode);
+            if (supportedGameCode.length() == 3) {
                 sb.append("_");
             }
             sb.append(")");
@@ -688,81 +1688,347 @@ public class Tool {
         return sb.toString();
     }
 
+    /**
+     * Records that a file in the loaded ROM has been modified and needs to be written by the next <code>saveAll()</code>
+     * @param pathWithinRom a <code>String</code> containing the path of a file within the ROM's filesystem
+     */
+    public void markModified(String pathWithinRom)
+    {
+        modifiedFiles.add(pathWithinRom);
+        if (projectBuilder != null)
+            projectBuilder.recordChanged(pathWithinRom);
+    }
+
+    /**
+     * Records that a file in the loaded ROM no longer differs from what was last saved, such as after its edits were undone
+     * @param pathWithinRom a <code>String</code> containing the path of a file within the ROM's filesystem
+     */
+    protected void clearModified(String pathWithinRom)
+    {
+        modifiedFiles.remove(pathWithinRom);
+        // it may still differ from what was last built
+        if (projectBuilder != null)
+            projectBuilder.recordChanged(pathWithinRom);
+    }
+
+    /**
+     * Gets the journal which records edits to the files of the loaded ROM so that they can be undone and redone
+     * @return an <code>EditJournal</code>
+     */
+    public EditJournal getEditJournal()
+    {
+        return editJournal;
+    }
+
+    /**
+     * Gets the bus which the panels of this <code>Tool</code> use to tell each other about changes to shared data, in
+     * batches of one frame's worth of events
+     * @return an <code>EventBus</code>
+     */
+    public EventBus getEventBus()
+    {
+        return eventBus;
+    }
+
+    /**
+     * Gets the executor which runs this <code>Tool</code>'s background work on virtual threads. Tasks which are still
+     * running when the tool window closes are cancelled.
+     * @return a <code>TaskExecutor</code>
+     */
+    public TaskExecutor getTaskExecutor()
+    {
+        return taskExecutor;
+    }
+
+    /**
+     * Gets whether a file in the loaded ROM has been modified since it was last saved
+     * @param pathWithinRom a <code>String</code> containing the path of a file within the ROM's filesystem
+     * @return a <code>boolean</code>
+     */
+    public boolean isModified(String pathWithinRom)
+    {
+        return modifiedFiles.contains(pathWithinRom);
+    }
+
+    /**
+     * Gets the paths of every file in the loaded ROM which has been modified since it was last saved
+     * @return an unmodifiable <code>Set</code><<code>String</code>>
+     */
+    public Set<String> getModifiedFiles()
+    {
+        return Collections.unmodifiableSet(new TreeSet<>(modifiedFiles));
+    }
+
+    /**
+     * Gets whether any file in the loaded ROM has been modified since it was last saved
+     * @return a <code>boolean</code>
+     */
+    public boolean hasModifiedFiles()
+    {
+        return !modifiedFiles.isEmpty();
+    }
+
+    /**
+     * Writes every modified file back to the project on disk in one batch.
+     * <p>Files whose contents are identical to what is already on disk are skipped, and each file is written to a
+     * temporary file which is then renamed over the original, so a failure never leaves a partially written file.</p>
+     * @return a <code>boolean</code> representing whether the action was a success
+     */
+    public boolean saveAll()
+    {
+        long start = System.nanoTime();
+        Operation operation = beginOperation("Saving all modified files");
+        saveLock.lock();
+
+        String current = null;
+        try {
+            for (String pathWithinRom : getModifiedFiles())
+            {
+                current = pathWithinRom;
+                // cleared before reading the data, so a modification made while this file is written isn't lost
+                modifiedFiles.remove(pathWithinRom);
+                writeProjectFile(pathWithinRom);
+            }
+        }
+        catch (IOException e) {
+            modifiedFiles.add(current);
+            metrics.counter("project.save.failures").increment();
+            JOptionPane.showMessageDialog(toolFrame, e.getMessage(), "ROM Write Failed", JOptionPane.ERROR_MESSAGE);
+            throw new RuntimeException(e);
+        }
+        finally {
+            saveLock.unlock();
+            operation.close();
+            metrics.timer("project.save").recordSince(start);
+        }
+
+        requestBuildOnSave();
+        return true;
+    }
+
+    /**
+     * Writes a single modified file back to the project on disk, if its contents differ from what is already there
+     * @param pathWithinRom a <code>String</code> containing the path of a file within the ROM's filesystem
+     * @return a <code>boolean</code> representing whether the action was a success
+     */
     public boolean writeModifiedFile(String pathWithinRom)
     {
+        long start = System.nanoTime();
+        Operation operation = beginOperation("Writing " + pathWithinRom);
         saveLock.lock();
 
         try {
-            System.out.println(Paths.get(FileUtils.getProjectUnpackedRomPath(path), NintendoDsRom.UNPACKED_FILENAMES.DATA.getName(), pathWithinRom).toFile().getAbsolutePath());
-            BinaryWriter.writeFile(Paths.get(FileUtils.getProjectUnpackedRomPath(path), NintendoDsRom.UNPACKED_FILENAMES.DATA.getName(), pathWithinRom).toFile(), rom.getFileByName(pathWithinRom));
+            modifiedFiles.remove(pathWithinRom);
+            writeProjectFile(pathWithinRom);
         }
         catch (IOException e) {
+            modifiedFiles.add(pathWithinRom);
+            metrics.counter("project.save.failures").increment();
             JOptionPane.showMessageDialog(toolFrame, e.getMessage(), "ROM Write Failed", JOptionPane.ERROR_MESSAGE);
             throw new RuntimeException(e);
         }
         finally {
             saveLock.unlock();
-            System.out.println("Save unlocked");
+            operation.close();
+            metrics.timer("project.writeFile").recordSince(start);
         }
 
+        requestBuildOnSave();
         return true;
     }
 
-    public boolean commit(String commitMessage)
+    private void requestBuildOnSave()
+    {
+        if (buildOnSavePath != null && getProjectBuilder() != null)
+            projectBuilder.requestBuild(buildOnSavePath);
+    }
+
+    private void writeProjectFile(String pathWithinRom) throws IOException
     {
-        if (gitEnabled && !gitLock.tryLock())
+        Path target = getProjectFilePath(pathWithinRom);
+        if (FileUtils.writeFileIfChanged(target, getFileForWriting(pathWithinRom)))
         {
-            JOptionPane.showMessageDialog(toolFrame, "Your changes have not been saved due to a previous commit still occurring in the background. Try saving again in a few seconds.", "Save Error", JOptionPane.WARNING_MESSAGE);
-            return false;
+            trackUncommittedPath(target);
+            metrics.counter("project.filesWritten").increment();
         }
+        editJournal.markSaved(pathWithinRom);
+    }
 
-        // at this point, gitLock will be acquired, therefore we can unlock so the new thread can use it
-        gitLock.unlock();
+    private Path getProjectFilePath(String pathWithinRom)
+    {
+        return Paths.get(FileUtils.getProjectUnpackedRomPath(path), NintendoDsRom.UNPACKED_FILENAMES.DATA.getName(), pathWithinRom);
+    }
 
+    /**
+     * Records that a file inside the project directory has been written, so that the next commit stages it.
+     * <p>Commits only stage the files recorded this way, which saves walking the whole project, so tools which write
+     * files inside the project by other means should call this for them. If nothing has been recorded since the last
+     * commit, every change to a file Git already tracks is staged instead, but new files are only committed once they
+     * have been recorded.</p>
+     * @param file a <code>Path</code> to a file inside the project directory
+     */
+    public void trackUncommittedPath(Path file)
+    {
+        Path relative = Path.of(path).toAbsolutePath().relativize(file.toAbsolutePath());
+        uncommittedPaths.add(relative.toString().replace(relative.getFileSystem().getSeparator(), "/"));
+    }
+
+    /**
+     * Queues a Git commit of the project. Commits are made on a background thread once no further commit has been
+     * requested for the commit debounce window, and all requests queued by then are merged into a single commit.
+     * <p>This never blocks on, or is rejected because of, a previous commit which is still in progress.</p>
+     * @param commitMessage a <code>String</code> to use as the commit message, or <code>null</code> for a generic one
+     * @return a <code>boolean</code> representing whether the action was a success
+     */
+    public boolean commit(String commitMessage)
+    {
         if (gitEnabled)
-        {
-            gitThread = new Thread(() -> {
-                gitLock.lock();
-                System.out.println("Git locked");
-                try {
-                    Thread.sleep(10000);
-                    if (git == null)
-                        git = Git.open(new File(path));
-                    git.add().addFilepattern(".").call();
-                    CommitCommand commit = git.commit();
-                    String message = commitMessage;
-                    if (message == null)
-                        message = String.format("%s %s changes", name, version);
-                    else
-                        message = String.format("(%s %s) %s", name, version, message);
-                    commit.setMessage(message).call();
-                }
-                catch (RepositoryNotFoundException e) {
-                    gitEnabled = false;
-                }
-                catch (IOException e) {
-                    JOptionPane.showMessageDialog(toolFrame, e.getMessage(), "ROM Write Failed", JOptionPane.ERROR_MESSAGE);
-                    throw new RuntimeException(e);
-                }
-                catch (GitAPIException e) {
-                    if (toolFrame != null) {
-                        JOptionPane.showMessageDialog(toolFrame, e.getMessage(), "Git Commit Failed", JOptionPane.ERROR_MESSAGE);
-                    }
-                    throw new RuntimeException(e);
-                }
-                catch(InterruptedException e) {
-                    throw new RuntimeException(e);
-                }
-                finally {
-                    gitLock.unlock();
-                    System.out.println("Git unlocked");
-                }
-            });
+            getCommitScheduler().request(commitMessage);
 
-            gitThread.start();
+        return true;
+    }
+
+    /**
+     * Commits all queued commit requests right away, waiting up to the given time for the commit to finish
+     * @param timeout a <code>Duration</code> containing the longest time to wait
+     * @return a <code>boolean</code> containing whether the queued commits finished within the timeout
+     */
+    protected boolean flushCommits(Duration timeout)
+    {
+        try {
+            startCommitFlush().get(timeout.toMillis(), TimeUnit.MILLISECONDS);
+            return true;
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+        catch (ExecutionException | TimeoutException e) {
+            return false;
         }
+    }
 
-        return true;
+    /**
+     * Commits all queued commit requests right away, without waiting for the commit
+     * @return a <code>Future</code> which completes once the commit (if there was anything to commit) has finished
+     */
+    synchronized Future<?> startCommitFlush()
+    {
+        return commitScheduler == null ? CompletableFuture.completedFuture(null) : commitScheduler.flush();
+    }
+
+    /**
+     * Gets the number of commit requests which are queued and have not been committed yet
+     * @return an <code>int</code>
+     */
+    public int getCommitQueueDepth()
+    {
+        return commitScheduler == null ? 0 : commitScheduler.getQueueDepth();
+    }
+
+    /**
+     * Gets how long the most recent commit took from its oldest merged request being queued to the commit completing
+     * @return a <code>Duration</code> wrapped in an <code>Optional</code>, or <code>Optional.empty()</code> if no commit has been made yet
+     */
+    public Optional<Duration> getLastCommitLatency()
+    {
+        return commitScheduler == null ? Optional.empty() : Optional.ofNullable(commitScheduler.getLastCommitLatency());
+    }
+
+    private synchronized CommitScheduler getCommitScheduler()
+    {
+        if (commitScheduler == null)
+            commitScheduler = new CommitScheduler(this::performCommit, commitDebounce, taskExecutor);
+        return commitScheduler;
+    }
+
+    /**
+     * Creates a single commit out of one or more merged commit requests. Runs in a background task of this <code>Tool</code>.
+     * @param messages a <code>List</code><<code>String</code>> containing the message of each merged request
+     */
+    private void performCommit(List<String> messages)
+    {
+        Set<String> staged = new TreeSet<>(uncommittedPaths);
+        uncommittedPaths.removeAll(staged);
+
+        long start = System.nanoTime();
+        Operation operation = beginOperation("Committing " + messages.size() + " change(s) to Git");
+        gitLock.lock();
+        try {
+            awaitGitInitialization();
+            if (git == null)
+                git = Git.open(new File(path));
+
+            // naming the paths lets JGit walk and re-hash only those entries of the index instead of the whole project
+            AddCommand add = git.add();
+            if (staged.isEmpty())
+                add.addFilepattern(".").setUpdate(true);
+            else
+                staged.forEach(add::addFilepattern);
+            add.call();
+
+            git.commit().setMessage(createCommitMessage(messages)).setAllowEmpty(false).call();
+        }
+        catch (EmptyCommitException e) {
+            // nothing had changed since the last commit
+        }
+        catch (RepositoryNotFoundException e) {
+            gitEnabled = false;
+        }
+        catch (IOException e) {
+            uncommittedPaths.addAll(staged);
+            metrics.counter("git.commit.failures").increment();
+            showErrorLater(e.getMessage(), "ROM Write Failed");
+        }
+        catch (GitAPIException e) {
+            uncommittedPaths.addAll(staged);
+            metrics.counter("git.commit.failures").increment();
+            showErrorLater(e.getMessage(), "Git Commit Failed");
+        }
+        finally {
+            gitLock.unlock();
+            operation.close();
+            metrics.timer("git.commit").recordSince(start);
+        }
+    }
+
+    private String createCommitMessage(List<String> messages)
+    {
+        List<String> provided = messages.stream().filter(Objects::nonNull).distinct().toList();
+        if (provided.isEmpty())
+            return String.format("%s %s changes", name, version);
+        if (provided.size() == 1)
+            return String.format("(%s %s) %s", name, version, provided.get(0));
+
+        StringBuilder sb = new StringBuilder(String.format("(%s %s) %d changes\n", name, version, provided.size()));
+        for (String message : provided) {
+            sb.append("\n- ").append(message);
+        }
+        return sb.toString();
+    }
+
+    private void awaitGitInitialization()
+    {
+        TaskExecutor.Task<?> task = gitInitialization;
+        if (task == null)
+            return;
+        try {
+            task.get();
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        catch (ExecutionException | CancellationException ignored) {
+            // already reported by the task executor, and the commit itself finds out there is no repository
+        }
+    }
+
+    private void showErrorLater(String message, String title)
+    {
+        if (toolFrame != null)
+            SwingUtilities.invokeLater(() -> JOptionPane.showMessageDialog(toolFrame, message, title, JOptionPane.ERROR_MESSAGE));
+        else
+            System.err.println("[ERROR]: " + title + ": " + message);
     }
 
 //    public boolean wipeAndWriteUnpacked(String commitMessage)
@@ -846,20 +2112,41 @@ public class Tool {
     /**
      * Opens a JFileChooser configured for the user to select a Nintendo DS ROM to open, then
      *          performs validation checks on the ROM to ensure it is compatible with this <code>Tool</code>
+     * <p>The ROM is loaded and validated on a background thread while a progress dialog is displayed, so this
+     *          returns immediately. If the ROM loads successfully and passes validation, it becomes this
+     *          <code>Tool</code>'s ROM and <code>onValidated</code> is run on the event dispatch thread.</p>
      * @param parentComponent determines the <code>Frame</code>
      *          in which the dialog is displayed; if <code>null</code>,
      *          or if the <code>parentComponent</code> has no
      *          <code>Frame</code>, a default <code>Frame</code> is used
-     * @return a <code>String</code> containing the absolute path of the selected file, or null if cancelled
+     * @param onValidated a <code>Consumer</code><<code>String</code>> which accepts the absolute path of the selected file
      */
-    protected String selectAndValidateRom(Component parentComponent)
+    protected void selectAndValidateRom(Component parentComponent, Consumer<String> onValidated)
     {
         String romPath = Tool.selectRomToOpen();
         if (romPath == null)
-            return null;
+            return;
 
-        rom = NintendoDsRom.fromFile(romPath);
-        return performValidation(parentComponent, romPath);
+        loadRom(parentComponent, romPath, onValidated);
+    }
+
+    /**
+     * Loads the Nintendo DS ROM at the provided path on a background thread, then performs validation checks on it
+     *          to ensure it is compatible with this <code>Tool</code>.
+     * <p>The user is shown the progress of the operation and may cancel it. If the ROM loads successfully and passes
+     *          validation, it becomes this <code>Tool</code>'s ROM and <code>onValidated</code> is run on the event dispatch thread.</p>
+     * @param parentComponent the <code>Component</code> to display the progress and any errors relative to
+     * @param romPath a <code>String</code> containing the path of the ROM to load
+     * @param onValidated a <code>Consumer</code><<code>String</code>> which accepts <code>romPath</code> once the ROM is ready
+     */
+    protected void loadRom(Component parentComponent, String romPath, Consumer<String> onValidated)
+    {
+        Runnable start = () -> new RomLoader(this, parentComponent, romPath, () -> onValidated.accept(romPath)).start();
+
+        if (SwingUtilities.isEventDispatchThread())
+            start.run();
+        else
+            SwingUtilities.invokeLater(start);
     }
 
     /**
@@ -941,10 +2228,46 @@ public class Tool {
         if (projectPath == null)
             return null;
 
-        rom = NintendoDsRom.fromUnpacked(FileUtils.getProjectUnpackedRomPath(projectPath));
+        if (projectLoadedLazily)
+            return openProjectLazily(parentComponent, projectPath);
+
+        setLoadedRom(metrics.timer("project.load").time(() -> ProjectManifest.load(Path.of(projectPath),
+                work -> taskExecutor.submit("Writing the project's snapshot", work))), null);
         return performValidation(parentComponent, projectPath);
     }
 
+    private String openProjectLazily(Component parentComponent, String projectPath)
+    {
+        LazyProject project;
+        long start = System.nanoTime();
+        try {
+            project = LazyProject.open(FileUtils.getProjectUnpackedRomPath(projectPath));
+            metrics.timer("project.load").recordSince(start);
+        }
+        catch (IOException e) {
+            JOptionPane.showMessageDialog(parentComponent, e.getMessage(), "Project Load Failed", JOptionPane.ERROR_MESSAGE);
+            return null;
+        }
+
+        RomSupportContext supportContext = isGameCodeSupported(project.getGameCode());
+        if (supportContext.isSupported() && hasValidationChecks())
+        {
+            setLoadedRom(project.toNintendoDsRom(), null);
+            project.close();
+            return performValidation(parentComponent, projectPath);
+        }
+
+        if (!supportContext.isSupported()) {
+            project.close();
+            String errorMessage = supportContext.getErrorMessage().orElse("This ROM has failed a validation check for an unknown reason.");
+            JOptionPane.showMessageDialog(parentComponent, errorMessage, "ROM Not Supported", JOptionPane.ERROR_MESSAGE);
+            return null;
+        }
+
+        setLoadedRom(null, project);
+        return projectPath;
+    }
+
     private String performValidation(Component parentComponent, String path)
     {
         RomSupportContext supportContext = isRomSupported(rom);
@@ -952,7 +2275,7 @@ public class Tool {
         if (!supportContext.isSupported()) {
             String errorMessage = supportContext.getErrorMessage().orElse("This ROM has failed a validation check for an unknown reason.");
             JOptionPane.showMessageDialog(parentComponent, errorMessage, "ROM Not Supported", JOptionPane.ERROR_MESSAGE);
-            rom = null;
+            setLoadedRom(null, null);
             return null;
         }
         return path;
@@ -992,6 +2315,124 @@ public class Tool {
         return null;
     }
 
+    /**
+     * Used to represent an operation in progress, as started by <code>beginOperation()</code>
+     */
+    public static class Operation implements AutoCloseable
+    {
+        private final Map<Thread, Operation> operations;
+        private final Thread thread;
+        private final String description;
+        private final Operation outer;
+
+        private Operation(Map<Thread, Operation> operations, Thread thread, String description, Operation outer)
+        {
+            this.operations = operations;
+            this.thread = thread;
+            this.description = description;
+            this.outer = outer;
+        }
+
+        /**
+         * Gets the description of this operation
+         * @return a <code>String</code>
+         */
+        public String getDescription()
+        {
+            return description;
+        }
+
+        /**
+         * Marks this operation as finished
+         */
+        @Override
+        public void close()
+        {
+            if (outer != null)
+                operations.replace(thread, this, outer);
+            else
+                operations.remove(thread, this);
+        }
+    }
+
+    /**
+     * Used to represent the outcome of processing a single ROM in <code>runBatch()</code>
+     */
+    public static class BatchResult
+    {
+        /**
+         * The possible outcomes of processing a ROM
+         */
+        public enum Status
+        {
+            SUCCEEDED,
+            UNSUPPORTED,
+            FAILED
+        }
+
+        private final Path input;
+        private final Path output;
+        private final Status status;
+        private final String message;
+        private final Map<String, Long> timings;
+
+        BatchResult(Path input, Path output, Status status, String message, Map<String, Long> timings)
+        {
+            this.input = input;
+            this.output = output;
+            this.status = status;
+            this.message = message;
+            this.timings = Collections.unmodifiableMap(new LinkedHashMap<>(timings));
+        }
+
+        /**
+         * Gets the path of the ROM which was processed
+         * @return a <code>Path</code>
+         */
+        public Path getInput()
+        {
+            return input;
+        }
+
+        /**
+         * Gets the path the modified ROM was saved to
+         * @return an <code>Optional</code><<code>Path</code>>, which is empty unless the ROM was processed successfully
+         */
+        public Optional<Path> getOutput()
+        {
+            return Optional.ofNullable(output);
+        }
+
+        /**
+         * Gets the outcome of processing the ROM
+         * @return a <code>Status</code>
+         */
+        public Status getStatus()
+        {
+            return status;
+        }
+
+        /**
+         * Gets the validation error message or the reason the ROM failed to process
+         * @return an <code>Optional</code><<code>String</code>> possibly containing a message
+         */
+        public Optional<String> getMessage()
+        {
+            return Optional.ofNullable(message);
+        }
+
+        /**
+         * Gets how long each completed stage (<code>load</code>, <code>validate</code>, <code>functions</code> and
+         * <code>save</code>) took for this ROM
+         * @return an unmodifiable <code>Map</code><<code>String</code>, <code>Long</code>> of stage names to
+         * milliseconds, in the order the stages ran
+         */
+        public Map<String, Long> getTimings()
+        {
+            return timings;
+        }
+    }
+
     /**
      * Used to represent whether a rom is supported and an error message if one is needed
      */
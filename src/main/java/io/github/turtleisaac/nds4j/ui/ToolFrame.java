@@ -6,11 +6,9 @@ package io.github.turtleisaac.nds4j.ui;
 
 import java.awt.*;
 import java.awt.event.*;
-import java.io.IOException;
-import java.lang.reflect.InvocationTargetException;
+import java.time.Duration;
 import java.util.*;
 import java.util.List;
-import java.util.concurrent.locks.Lock;
 import javax.swing.*;
 import javax.swing.event.*;
 
@@ -32,6 +30,10 @@ public class ToolFrame extends JFrame {
 
     private Map<JPanel, PoppedPanelFrame> poppedPanelMap;
 
+    private MetricsDashboard metricsDashboard;
+    private StallViewer stallViewer;
+    private boolean closing;
+
     protected ToolFrame(Tool tool) {
         initComponents();
         this.tool = tool;
@@ -49,6 +51,19 @@ public class ToolFrame extends JFrame {
 
         setIcons();
 
+        if (tool.getType() == ProgramType.PROJECT) {
+            saveButton.setText(ResourceBundle.getBundle("tool_gui").getString("ToolFrame.saveProjectButton.text"));
+        }
+
+        int shortcutMask = Toolkit.getDefaultToolkit().getMenuShortcutKeyMaskEx();
+        undoItem.setAccelerator(KeyStroke.getKeyStroke(KeyEvent.VK_Z, shortcutMask));
+        if (SystemInfo.isMacOS) {
+            redoItem.setAccelerator(KeyStroke.getKeyStroke(KeyEvent.VK_Z, shortcutMask | InputEvent.SHIFT_DOWN_MASK));
+        } else {
+            redoItem.setAccelerator(KeyStroke.getKeyStroke(KeyEvent.VK_Y, shortcutMask));
+        }
+        tool.getEditJournal().addEditListener((paths, source) -> SwingUtilities.invokeLater(this::updateUndoItems));
+
 //        addComponentListener(new ComponentAdapter()
 //        {
 //            @Override
@@ -78,9 +93,19 @@ public class ToolFrame extends JFrame {
     protected void addToolPanels(PanelManager manager)
     {
         panelManagers.add(manager);
+        MetricsRegistry.Timer lazyBuildTimer = tool.getMetrics().timer("panels.lazyBuild");
         for (JPanel panel : manager.getPanels()) {
+            if (panel instanceof PanelManager.LazyPanel lazyPanel)
+                lazyPanel.setBuildTimer(lazyBuildTimer);
+
             if (panel instanceof PanelManager.PanelGroup group)
             {
+                for (JPanel member : group.getPanels())
+                {
+                    if (member instanceof PanelManager.LazyPanel lazyPanel)
+                        lazyPanel.setBuildTimer(lazyBuildTimer);
+                }
+
                 if (group.getPanelCount() < 1)
                     continue;
                 tabbedPane1.addTab(group.getName(), group.getPanels()[0]);
@@ -161,19 +186,85 @@ public class ToolFrame extends JFrame {
         ThemeUtils.changeTheme();
     }
 
+    private void updateUndoItems()
+    {
+        ResourceBundle bundle = ResourceBundle.getBundle("tool_gui");
+        EditJournal journal = tool.getEditJournal();
+
+        undoItem.setEnabled(journal.canUndo());
+        undoItem.setText(journal.getUndoDescription()
+                .map(description -> bundle.getString("ToolFrame.undoItem.text") + " " + description)
+                .orElse(bundle.getString("ToolFrame.undoItem.text")));
+        redoItem.setEnabled(journal.canRedo());
+        redoItem.setText(journal.getRedoDescription()
+                .map(description -> bundle.getString("ToolFrame.redoItem.text") + " " + description)
+                .orElse(bundle.getString("ToolFrame.redoItem.text")));
+    }
+
+    private void undoItem(ActionEvent e) {
+        try {
+            tool.getEditJournal().undo();
+        }
+        catch (IllegalStateException ex) {
+            // an edit is still in progress
+            Toolkit.getDefaultToolkit().beep();
+        }
+        updateUndoItems();
+    }
+
+    private void redoItem(ActionEvent e) {
+        try {
+            tool.getEditJournal().redo();
+        }
+        catch (IllegalStateException ex) {
+            Toolkit.getDefaultToolkit().beep();
+        }
+        updateUndoItems();
+    }
+
+    private void metricsItem(ActionEvent e) {
+        if (metricsDashboard == null || !metricsDashboard.isDisplayable()) {
+            metricsDashboard = new MetricsDashboard(this, tool.getMetrics());
+            metricsDashboard.setVisible(true);
+        }
+        else {
+            metricsDashboard.toFront();
+        }
+    }
+
+    private void stallsItem(ActionEvent e) {
+        if (stallViewer == null || !stallViewer.isDisplayable()) {
+            stallViewer = new StallViewer(this, tool.getEdtWatchdog().orElse(null));
+            stallViewer.setVisible(true);
+        }
+        else {
+            stallViewer.toFront();
+        }
+    }
+
     private void saveButtonPressed(ActionEvent e) {
-        //todo query PanelManagers for unsaved changes status
+        if (tool.getType() == ProgramType.PROJECT) {
+            tool.saveAll();
+        }
+        else {
+            exportRom();
+        }
+    }
+
+    private void openProjectItem(ActionEvent e) {
+        tool.newSession();
+    }
+
+    private void exportRomItem(ActionEvent e) {
+        exportRom();
+    }
 
+    private void exportRom() {
         String outputPath = Tool.selectRomToExport();
         if(outputPath == null) {
             return;
         }
-        try {
-            tool.getRom().saveToFile(outputPath, true);
-        }
-        catch(IOException exception) {
-            throw new RuntimeException(exception);
-        }
+        tool.exportRom(this, outputPath, null);
     }
 
     private void openProjectButtonPressed(ActionEvent e) {
@@ -244,7 +335,10 @@ public class ToolFrame extends JFrame {
     }
 
     private void thisWindowClosing(WindowEvent e) {
-        boolean unsaved = false;
+        if (closing)
+            return;
+
+        boolean unsaved = tool.hasModifiedFiles();
         for (PanelManager manager : panelManagers) {
             if (manager.hasUnsavedChanges()) {
                 unsaved = true;
@@ -252,68 +346,49 @@ public class ToolFrame extends JFrame {
             }
         }
 
-        Lock saveLock = tool.getSaveLock();
-        Lock gitLock = tool.getGitLock();
-
-        awaitLockRelease(e, saveLock);
-        awaitLockRelease(e, gitLock);
-
-        if (!unsaved) {
-            dispose();
-            System.exit(0);
-        }
-        else
+        if (unsaved)
         {
             int result = JOptionPane.showConfirmDialog(this, "You have unsaved changes. Are you sure you want to exit?", "PokEditor", JOptionPane.YES_NO_OPTION);
-            if (result == JOptionPane.YES_OPTION) {
-                dispose();
+            if (result != JOptionPane.YES_OPTION) {
+                // other sessions may still be open, so only this window is kept rather than the whole program
+                return;
             }
         }
 
-        System.exit(0);
-    }
-
-    private void awaitLockRelease(WindowEvent e, Lock lock)
-    {
-        if (!lock.tryLock())
-        {
-            try
-            {
-                System.err.println("Waiting for a lock to release before the program can close.");
-
-                JOptionPane pane = new JOptionPane();
-                pane.setMessage("Waiting for a save-related operation to complete. Please standby.");
-                pane.setMessageType(JOptionPane.WARNING_MESSAGE);
-                JDialog dialog = pane.createDialog(e.getWindow(), "Please wait");
-
-                SwingUtilities.invokeAndWait(() -> {
-                    dialog.setModal(false);
-                    dialog.setVisible(true);
-                    dialog.toFront();
-                });
-
-                lock.lock();
-            }
-            catch(InvocationTargetException | InterruptedException exception) {
-
-            }
-            finally
+        // saves, commits and exports in progress are waited for in the background, so the window keeps repainting
+        closing = true;
+        new ShutdownCoordinator(tool, this, outcome -> {
+            closing = false;
+            switch (outcome)
             {
-                lock.unlock();
+                case DRAINED -> dispose();
+                case ABANDONED -> {
+                    tool.endSession(Duration.ZERO);
+                    dispose();
+                }
+                case CANCELLED -> {}
             }
-        }
-        else
-        {
-            lock.unlock();
-        }
+        }).start();
     }
 
     private void tabbedPane1TabChanged(ChangeEvent e) {
+        materializeSelectedLater(tabbedPane1);
         for (PanelManager manager : panelManagers) {
             manager.doToolFrameSelectedTabChangedAction(e);
         }
     }
 
+    /**
+     * Builds the selected tab's panel if it is a <code>LazyPanel</code>. This is queued rather than done right away,
+     * so that the window (or the newly selected tab's loading indicator) gets painted first.
+     * @param tabbedPane the <code>JTabbedPane</code> whose selected tab to build
+     */
+    private static void materializeSelectedLater(JTabbedPane tabbedPane)
+    {
+        if (tabbedPane.getSelectedComponent() instanceof PanelManager.LazyPanel lazyPanel && !lazyPanel.isMaterialized())
+            SwingUtilities.invokeLater(lazyPanel::materialize);
+    }
+
     private void initComponents() {
         // JFormDesigner - Component initialization - DO NOT MODIFY  //GEN-BEGIN:initComponents  @formatter:off
         // Generated using JFormDesigner non-commercial license
@@ -324,10 +399,15 @@ public class ToolFrame extends JFrame {
         menuItem2 = new JMenuItem();
         menuItem3 = new JMenuItem();
         menuItem4 = new JMenuItem();
+        editMenu = new JMenu();
+        undoItem = new JMenuItem();
+        redoItem = new JMenuItem();
         popMenu = new JMenu();
         viewMenu = new JMenu();
         changeThemeItem = new JMenuItem();
         debugMenu = new JMenu();
+        metricsItem = new JMenuItem();
+        stallsItem = new JMenuItem();
         helpMenu = new JMenu();
         tabbedPane1 = new JTabbedPane();
         toolBar1 = new JToolBar();
@@ -342,6 +422,7 @@ public class ToolFrame extends JFrame {
         infoButton = new JButton();
 
         //======== this ========
+        setDefaultCloseOperation(WindowConstants.DO_NOTHING_ON_CLOSE);
         addWindowStateListener(e -> thisWindowStateChanged(e));
         addWindowListener(new WindowAdapter() {
             @Override
@@ -367,6 +448,7 @@ public class ToolFrame extends JFrame {
 
                 //---- menuItem1 ----
                 menuItem1.setText(bundle.getString("ToolFrame.menuItem1.text"));
+                menuItem1.addActionListener(e -> openProjectItem(e));
                 fileMenu.add(menuItem1);
 
                 //---- menuItem2 ----
@@ -380,10 +462,30 @@ public class ToolFrame extends JFrame {
 
                 //---- menuItem4 ----
                 menuItem4.setText(bundle.getString("ToolFrame.menuItem4.text"));
+                menuItem4.addActionListener(e -> exportRomItem(e));
                 fileMenu.add(menuItem4);
             }
             menuBar1.add(fileMenu);
 
+            //======== editMenu ========
+            {
+                editMenu.setText(bundle.getString("ToolFrame.editMenu.text"));
+                editMenu.setName("Edit");
+
+                //---- undoItem ----
+                undoItem.setText(bundle.getString("ToolFrame.undoItem.text"));
+                undoItem.setEnabled(false);
+                undoItem.addActionListener(e -> undoItem(e));
+                editMenu.add(undoItem);
+
+                //---- redoItem ----
+                redoItem.setText(bundle.getString("ToolFrame.redoItem.text"));
+                redoItem.setEnabled(false);
+                redoItem.addActionListener(e -> redoItem(e));
+                editMenu.add(redoItem);
+            }
+            menuBar1.add(editMenu);
+
             //======== popMenu ========
             {
                 popMenu.setText(bundle.getString("ToolFrame.popMenu.text"));
@@ -408,6 +510,16 @@ public class ToolFrame extends JFrame {
             {
                 debugMenu.setText(bundle.getString("ToolFrame.debugMenu.text"));
                 debugMenu.setName("Debug");
+
+                //---- metricsItem ----
+                metricsItem.setText(bundle.getString("ToolFrame.metricsItem.text"));
+                metricsItem.addActionListener(e -> metricsItem(e));
+                debugMenu.add(metricsItem);
+
+                //---- stallsItem ----
+                stallsItem.setText(bundle.getString("ToolFrame.stallsItem.text"));
+                stallsItem.addActionListener(e -> stallsItem(e));
+                debugMenu.add(stallsItem);
             }
             menuBar1.add(debugMenu);
 
@@ -497,10 +609,15 @@ public class ToolFrame extends JFrame {
     private JMenuItem menuItem2;
     private JMenuItem menuItem3;
     private JMenuItem menuItem4;
+    private JMenu editMenu;
+    private JMenuItem undoItem;
+    private JMenuItem redoItem;
     private JMenu popMenu;
     private JMenu viewMenu;
     private JMenuItem changeThemeItem;
     private JMenu debugMenu;
+    private JMenuItem metricsItem;
+    private JMenuItem stallsItem;
     private JMenu helpMenu;
     private JTabbedPane tabbedPane1;
     private JToolBar toolBar1;
@@ -542,6 +659,8 @@ public class ToolFrame extends JFrame {
                 this.panelGroup = null;
                 tabbedPane1.remove(panel);
                 setContentPane(panel);
+                if (panel instanceof PanelManager.LazyPanel lazyPanel)
+                    lazyPanel.materialize();
             }
 
             setPreferredSize(getContentPane().getPreferredSize());
@@ -569,6 +688,8 @@ public class ToolFrame extends JFrame {
                 tabbedPane.add(panel.getName(), panel);
             }
             tabbedPane.setSelectedIndex(group.getSelectedIndex());
+            tabbedPane.addChangeListener(e -> materializeSelectedLater(tabbedPane));
+            materializeSelectedLater(tabbedPane);
             return tabbedPane;
         }
         